@@ -12,30 +12,28 @@ import static eu.maveniverse.domtrip.maven.MavenPomElements.Elements.PROPERTIES;
 import static eu.maveniverse.domtrip.maven.MavenPomElements.Elements.TYPE;
 import static eu.maveniverse.domtrip.maven.MavenPomElements.Elements.VERSION;
 import static org.apache.commons.lang3.StringUtils.isEmpty;
-import static org.apache.commons.lang3.StringUtils.isNotEmpty;
 
-import java.io.File;
 import java.io.IOException;
+import java.net.URI;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Stream;
+import java.util.function.Predicate;
 
 import org.apache.commons.lang3.StringUtils;
 import org.commonjava.atlas.maven.ident.ref.ArtifactRef;
 import org.commonjava.atlas.maven.ident.ref.SimpleArtifactRef;
 import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.ResetCommand;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.api.errors.TransportException;
 import org.eclipse.microprofile.rest.client.inject.RestClient;
 import org.jboss.logmanager.Level;
-import org.jboss.pnc.api.reqour.dto.TranslateRequest;
-import org.jboss.pnc.api.reqour.dto.TranslateResponse;
+import org.jboss.logmanager.handlers.AsyncHandler;
 import org.jboss.pnc.bacon.auth.client.PncClientHelper;
 import org.jboss.pnc.bacon.common.Constant;
 import org.jboss.pnc.bacon.config.Config;
@@ -48,22 +46,52 @@ import org.jboss.pnc.dto.requests.CreateAndSyncSCMRequest;
 import org.jboss.pnc.dto.response.Page;
 import org.jboss.pnc.dto.response.RepositoryCreationResponse;
 import org.jboss.pnc.mavenmanipulator.common.util.ManifestUtils;
+import org.jboss.pnc.rpm.importer.backend.Backend;
+import org.jboss.pnc.rpm.importer.backend.Backends;
+import org.jboss.pnc.rpm.importer.batch.BatchEntry;
+import org.jboss.pnc.rpm.importer.batch.BatchReport;
+import org.jboss.pnc.rpm.importer.batch.BatchResult;
+import org.jboss.pnc.rpm.importer.batch.BatchRunner;
+import org.jboss.pnc.rpm.importer.batch.CostModel;
+import org.jboss.pnc.rpm.importer.batch.Journal;
+import org.jboss.pnc.rpm.importer.batch.PushStage;
+import org.jboss.pnc.rpm.importer.batch.Stage;
+import org.jboss.pnc.rpm.importer.batch.WorkQueue;
+import org.jboss.pnc.rpm.importer.checkout.Checkout;
+import org.jboss.pnc.rpm.importer.checkout.GitLabCheckout;
+import org.jboss.pnc.rpm.importer.checkout.InMemoryCheckout;
+import org.jboss.pnc.rpm.importer.checkout.WorkTreeCheckout;
 import org.jboss.pnc.rpm.importer.clients.OrchService;
 import org.jboss.pnc.rpm.importer.clients.ReqourService;
+import org.jboss.pnc.rpm.importer.clients.ScmRepositoryIndex;
+import org.jboss.pnc.rpm.importer.jfr.PomEvent;
+import org.jboss.pnc.rpm.importer.jfr.StageEvent;
+import org.jboss.pnc.rpm.importer.listen.BuildIndex;
+import org.jboss.pnc.rpm.importer.listen.BuildListener;
+import org.jboss.pnc.rpm.importer.logging.ImportContext;
+import org.jboss.pnc.rpm.importer.logging.ImportLogHandler;
+import org.jboss.pnc.rpm.importer.model.ArtifactKey;
 import org.jboss.pnc.rpm.importer.model.Macros;
-import org.jboss.pnc.rpm.importer.model.brew.BuildInfo;
-import org.jboss.pnc.rpm.importer.model.brew.Extra;
-import org.jboss.pnc.rpm.importer.model.brew.Maven;
-import org.jboss.pnc.rpm.importer.model.brew.TagInfo;
-import org.jboss.pnc.rpm.importer.model.brew.Typeinfo;
+import org.jboss.pnc.rpm.importer.model.WrappedArtifacts;
+import org.jboss.pnc.rpm.importer.model.brew.BrewBuild;
+import org.jboss.pnc.rpm.importer.model.brew.BrewTag;
+import org.jboss.pnc.rpm.importer.model.brew.MavenGav;
+import org.jboss.pnc.rpm.importer.reqour.TranslationRule;
+import org.jboss.pnc.rpm.importer.reqour.UrlTranslator;
+import org.jboss.pnc.rpm.importer.scan.DriftScanner;
+import org.jboss.pnc.rpm.importer.scan.ScanResult;
+import org.jboss.pnc.rpm.importer.scan.ScanTarget;
 import org.jboss.pnc.rpm.importer.utils.Brew;
 import org.jboss.pnc.rpm.importer.utils.ETT;
+import org.jboss.pnc.rpm.importer.utils.EttMetadata;
+import org.jboss.pnc.rpm.importer.utils.GitBackends;
+import org.jboss.pnc.rpm.importer.utils.GitStorage;
+import org.jboss.pnc.rpm.importer.utils.SpecAnalyzer;
 import org.jboss.pnc.rpm.importer.utils.Utils;
+import org.jboss.pnc.rpm.importer.workspace.WorkspaceManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 import eu.maveniverse.domtrip.Document;
 import eu.maveniverse.domtrip.Element;
 import eu.maveniverse.domtrip.maven.PomEditor;
@@ -86,8 +114,6 @@ public class App implements Runnable {
 
     private static final Logger log = LoggerFactory.getLogger(App.class);
 
-    private static final ObjectMapper MAPPER = new ObjectMapper();
-
     @RestClient
     private ReqourService reqourService;
 
@@ -103,10 +129,10 @@ public class App implements Runnable {
     @Option(names = { "-p", "--configPath" }, description = "Path to PNC configuration folder")
     private String configPath = null;
 
-    @Option(names = "--url", description = "External URL to git repository", required = true)
+    @Option(names = "--url", description = "External URL to git repository")
     private String url;
 
-    @Option(names = "--branch", description = "Branch in git repository", required = true)
+    @Option(names = "--branch", description = "Branch in git repository")
     String branch;
 
     @Option(
@@ -152,16 +178,219 @@ public class App implements Runnable {
             splitSynopsisLabel = ",")
     Map<String, String> customMacros;
 
+    @Option(
+            names = "--scan",
+            description = "Scans the repositories listed in the file (one '<url> [branch...]' per line) and reports out of date POMs")
+    Path scan;
+
+    @Option(
+            names = "--listen",
+            description = "Regenerates the --batch entries affected by each Brew build completing, as announced on this STOMP destination (e.g. stomp+ssl://umb.example.com/queue/Consumer.rpm-importer.VirtualTopic.eng.brew.build.complete)")
+    String listen;
+
+    @Option(
+            names = "--mirror",
+            description = "Directory to keep bare mirrors of scanned (or with --listen, indexed) repositories in (defaults to a temporary directory)")
+    Path mirror;
+
+    @Option(
+            names = "--exclude-artifacts",
+            description = "Pass in a (comma separated) set of groupId:artifactId:classifier:type patterns (where '*' matches anything) of wrapped build artifacts to leave out of the pom",
+            split = ",",
+            splitSynopsisLabel = ",")
+    List<String> excludeArtifacts;
+
+    @Option(
+            names = "--prune",
+            description = "Only include wrapped build artifacts that are referenced by the spec file")
+    private boolean prune;
+
+    @Option(names = "--threads", description = "Number of repositories to process concurrently")
+    int threads = 8;
+
+    @Option(
+            names = "--batch",
+            description = "Imports the repositories listed in the file (one '<url> <branch> [branch...]' per line)")
+    Path batch;
+
+    @Option(names = "--push-threads", description = "Number of concurrent pushes when importing a batch")
+    int pushThreads = 4;
+
+    @Option(
+            names = "--journal",
+            description = "File to record the progress of a batch import in (defaults to the batch file with a .journal suffix)")
+    Path journalFile;
+
+    @Option(
+            names = "--resume",
+            description = "Resumes a batch import from the progress recorded in the journal")
+    boolean resume;
+
+    @Option(
+            names = "--queue",
+            description = "Directory shared by several workers to take batch entries from; with --batch the entries are added to it first")
+    Path queue;
+
+    @Option(
+            names = "--worker",
+            description = "Name of this worker when using --queue (defaults to the host name and process id); required with --resume to find the journal of the previous run")
+    String worker;
+
+    @Option(
+            names = "--lease-timeout",
+            description = "Seconds a worker may go without renewing the lease of an entry before it is given to another worker")
+    long leaseTimeout = WorkQueue.DEFAULT_LEASE_TIMEOUT.toSeconds();
+
+    @Option(
+            names = "--workspace",
+            description = "Directory to clone repositories into (e.g. a tmpfs such as /dev/shm); defaults to the temporary directory")
+    Path workspaceRoot = Path.of(System.getProperty("java.io.tmpdir"));
+
+    @Option(
+            names = "--workspace-quota",
+            description = "Maximum space the clones may use at once (e.g. 2G); new clones wait for space. Defaults to no limit")
+    String workspaceQuota = "0";
+
+    @Option(
+            names = "--git-backend",
+            description = "Runs clones and pushes with ${COMPLETION-CANDIDATES}; auto uses native git for repositories known to be large when it is installed")
+    GitBackends.Mode gitBackend = GitBackends.Mode.AUTO;
+
+    @Option(
+            names = "--git-native-threshold",
+            description = "Size of repository (e.g. 16M) from which native git is used rather than JGit when --git-backend is auto")
+    String gitNativeThreshold = "16M";
+
+    @Option(
+            names = "--git-mmap",
+            description = "Memory maps git pack files rather than reading them into the heap")
+    boolean gitMmap;
+
+    @Option(
+            names = "--git-window-cache",
+            description = "Maximum size of git pack file pages kept in memory across all repositories (e.g. 256M). Defaults to the JGit default")
+    String gitWindowCache = "0";
+
+    @Option(
+            names = "--git-window-size",
+            description = "Size of each git pack file page (e.g. 64K). Defaults to the JGit default")
+    String gitWindowSize = "0";
+
+    @Option(
+            names = "--git-delta-base-cache",
+            description = "Maximum size of inflated git delta bases kept in memory (e.g. 64M). Defaults to the JGit default")
+    String gitDeltaBaseCache = "0";
+
+    @Option(
+            names = "--git-stream-threshold",
+            description = "Size above which git objects are streamed rather than loaded whole (e.g. 16M). Defaults to the JGit default")
+    String gitStreamThreshold = "0";
+
+    @Option(
+            names = "--in-memory",
+            description = "Generates and commits the pom in memory rather than cloning the repository to disk")
+    boolean inMemory;
+
+    @Option(
+            names = "--gitlab-api",
+            description = "Reads the files and commits the pom through this GitLab API (e.g. https://gitlab.example.com/api/v4) rather than cloning. The token is read from GITLAB_TOKEN")
+    String gitlabApi;
+
+    @Option(
+            names = "--hedge",
+            description = "Duplicates PNC and reqour reads that are slower than usual and uses whichever response arrives first")
+    boolean hedge;
+
+    @Option(
+            names = "--translation-rules",
+            description = "File of '<regex> <replacement>' rules (one per line) translating external URLs to internal without calling reqour")
+    Path translationRules;
+
+    @Option(
+            names = "--translation-cache",
+            description = "File to cache reqour URL translations in")
+    Path translationCache = Path.of(System.getProperty("user.home"), ".cache", "rpm-importer", "translations.properties");
+
+    @Option(
+            names = "--cost-history",
+            description = "File to keep the import time of each batch entry in, used to start the longest imports first")
+    Path costHistory = Path.of(System.getProperty("user.home"), ".cache", "rpm-importer", "costs.properties");
+
+    @Option(
+            names = "--log-dir",
+            description = "Directory to write a JSON log file per imported repository branch to")
+    Path logDir;
+
+    UrlTranslator translator;
+
+    /**
+     * The import time estimates, for batch imports.
+     */
+    CostModel costs;
+
+    /**
+     * Used for batch imports in place of a query per repository.
+     */
+    ScmRepositoryIndex scmRepositoryIndex;
+
+    /**
+     * The journal and entry being imported, for batch imports.
+     */
+    Journal journal;
+
+    BatchEntry batchEntry;
+
+    WorkspaceManager workspaces;
+
+    /**
+     * The branch the pom is generated for; either the {@link #repository} or held in memory.
+     */
+    Checkout checkout;
+
+    /**
+     * The stage currently being worked towards, for profiling.
+     */
+    private StageEvent stageEvent;
+
+    /**
+     * The PNC build id of the wrapped build, as found by {@link #getDependencies}.
+     */
+    private String wrappedBuildId;
+
     @Override
     public void run() {
         if (verbose) {
             java.util.logging.Logger.getLogger("org.jboss.pnc.rpm").setLevel(Level.FINE);
             log.debug("Log level set to DEBUG");
         }
-        if (isEmpty(branch)) {
+        if (scan != null) {
+            runScan();
+            return;
+        }
+        if (batch == null && queue == null && isEmpty(branch)) {
             log.warn("No branch specified; unable to proceed");
             return;
         }
+        if ((inMemory || gitlabApi != null) && repository != null) {
+            log.error("Neither --in-memory nor --gitlab-api may be used with --repository");
+            return;
+        }
+        if (inMemory && gitlabApi != null) {
+            log.error("--in-memory may not be used with --gitlab-api");
+            return;
+        }
+        if (queue != null && leaseTimeout < 1) {
+            log.error("--lease-timeout must be at least 1 second");
+            return;
+        }
+        if (queue != null && resume && worker == null && journalFile == null) {
+            // The default name includes the process id, so would open a new, empty, journal
+            log.error("--resume with --queue requires --worker (or --journal) to find the journal of the previous run");
+            return;
+        }
+        if (worker == null) {
+            worker = WorkQueue.defaultWorker();
+        }
         if (configPath != null) {
             setConfigLocation(configPath, "flag");
         } else if (System.getenv(Constant.CONFIG_ENV) != null) {
@@ -171,40 +400,102 @@ public class App implements Runnable {
         }
         PncConfig pncConfig = Config.instance().getActiveProfile().getPnc();
         Configuration pncConfiguration = PncClientHelper.getPncConfiguration();
+        Backends.setHedging(hedge);
+        if (orchService != null) {
+            orchService = Backends.guard(OrchService.class, orchService, Backend.ORCH);
+        }
+        if (reqourService != null) {
+            reqourService = Backends.guard(ReqourService.class, reqourService, Backend.REQOUR);
+        }
+        translator = createTranslator();
+        workspaces = new WorkspaceManager(workspaceRoot, WorkspaceManager.parseSize(workspaceQuota));
+        GitStorage.configure(
+                gitMmap,
+                WorkspaceManager.parseSize(gitWindowCache),
+                WorkspaceManager.parseSize(gitWindowSize),
+                WorkspaceManager.parseSize(gitDeltaBaseCache),
+                WorkspaceManager.parseSize(gitStreamThreshold));
+        GitBackends.configure(gitBackend, WorkspaceManager.parseSize(gitNativeThreshold));
 
-        if (repository == null) {
-            ReqourConfig reqourConfig = Config.instance().getActiveProfile().getReqour();
-            TranslateResponse translateResponse;
-            if (reqourConfig == null) {
-                log.error("""
-                        Configure reqour within the Bacon config file i.e.:
-                          reqour:
-                             url: "https://reqour.pnc.<as other URLS...>"
-                        """);
-                throw new RuntimeException("No reqour configuration found.");
+        AsyncHandler importLogs = null;
+        try {
+            if (logDir != null) {
+                importLogs = ImportLogHandler.install(logDir);
             }
-            try {
-                translateResponse = reqourService.external_to_internal(
-                        reqourConfig.getUrl(),
-                        TranslateRequest.builder().externalUrl(url).build());
-            } catch (RuntimeException e) {
-                log.error(
-                        "Unable to connect to reqour. Have you configured requor in the Bacon configuration file correctly?");
-                throw e;
+            if (listen != null) {
+                runListen(pncConfig, pncConfiguration);
+            } else if (batch != null || queue != null) {
+                runBatch(pncConfig, pncConfiguration);
+            } else {
+                try (ImportContext ignored = ImportContext.open(url, branch)) {
+                    runSingle(pncConfig, pncConfiguration);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            if (importLogs != null) {
+                ImportLogHandler.uninstall(importLogs);
+            }
+        }
+    }
+
+    private void runSingle(PncConfig pncConfig, Configuration pncConfiguration) {
+        boolean committed;
+        try {
+            committed = importRepository(pncConfig, pncConfiguration);
+            if (committed && push) {
+                checkout().push();
             }
+        } catch (TransportException e) {
+            workspaces.retain(repository, "push failed");
+            throw new RuntimeException(e);
+        } catch (RuntimeException e) {
+            workspaces.retain(repository, "import failed");
+            throw e;
+        }
+        if (committed && !push) {
+            workspaces.retain(repository, "commit not pushed");
+        } else {
+            workspaces.release(repository);
+        }
+    }
 
+    /**
+     * Syncs and clones (unless an existing repository is used) the repository, then generates and commits
+     * the pom.
+     *
+     * @return true if the pom was committed, false if there were no changes to commit
+     */
+    boolean importRepository(PncConfig pncConfig, Configuration pncConfiguration) {
+        stageEvent = new StageEvent(url, branch);
+        stageEvent.begin();
+        if (repository == null) {
+            if (isEmpty(url)) {
+                log.warn("No URL specified; unable to proceed");
+                return false;
+            }
             RepositoryCreationResponse repositoryCreationResponse;
-            String internalUrl = translateResponse.getInternalUrl();
+            String internalUrl = translator.translate(url);
+            reached(Stage.TRANSLATED);
 
             log.info("For external URL {} retrieved internal {}", url, internalUrl);
 
             // We search using the internal URL in case the scm repository hasn't been setup to
             // sync and doesn't have the external URL listed.
-            Optional<SCMRepository> internalUrlOpt = (orchService.getAll(
-                    pncConfig.getUrl(),
-                    pncConfiguration.getBearerTokenSupplier().get(),
-                    internalUrl)).getContent().stream().findFirst();
-            log.info("Retrieved from pnc repository information: {}", internalUrlOpt.orElse(null));
+            Optional<SCMRepository> internalUrlOpt;
+            if (scmRepositoryIndex == null) {
+                internalUrlOpt = (orchService.getAll(
+                        pncConfig.getUrl(),
+                        pncConfiguration.getBearerTokenSupplier().get(),
+                        internalUrl)).getContent().stream().findFirst();
+            } else {
+                internalUrlOpt = scmRepositoryIndex.find(internalUrl);
+            }
+            log.info(
+                    "Retrieved from pnc repository information: {}",
+                    internalUrlOpt.map(r -> r.getId() + " " + r.getInternalUrl()).orElse(null));
+            log.debug("Retrieved from pnc repository {}", internalUrlOpt.orElse(null));
 
             // If present, the repository is already synced to internal.
             if (!skipSync && internalUrlOpt.isEmpty()) {
@@ -214,6 +505,9 @@ public class App implements Runnable {
                                 pncConfig.getUrl(),
                                 "Bearer " + pncConfiguration.getBearerTokenSupplier().get(),
                                 createAndSyncSCMRequest);
+                if (scmRepositoryIndex != null) {
+                    scmRepositoryIndex.refresh(internalUrl);
+                }
                 if (repositoryCreationResponse.getTaskId() != null) {
                     log.info("Looping until sync is complete");
                     for (int i = 0; i < 5; i++) {
@@ -231,7 +525,22 @@ public class App implements Runnable {
                 log.error("Skipping repository creation but {} is not available internally", internalUrl);
                 throw new RuntimeException("Internal repository does not exist");
             }
-            repository = Utils.cloneRepository(internalUrl, branch);
+            reached(Stage.SYNCED);
+            if (gitlabApi != null || inMemory) {
+                try {
+                    if (gitlabApi != null) {
+                        String token = System.getenv(GitLabCheckout.TOKEN_ENV);
+                        checkout = GitLabCheckout.open(gitlabApi, token, internalUrl, branch);
+                    } else {
+                        checkout = InMemoryCheckout.fetch(internalUrl, branch);
+                    }
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            } else {
+                repository = cloneIntoWorkspace(internalUrl);
+            }
+            reached(Stage.CLONED);
         } else {
             log.info("Using existing repository {}", repository);
             if (!repository.toFile().exists()) {
@@ -245,25 +554,17 @@ public class App implements Runnable {
         }
 
         try {
-            BuildInfo lastMeadBuild;
+            BrewBuild lastMeadBuild;
             String version;
             String name;
             String originalVersion;
 
             if (customMacros == null) {
-                customMacros = new HashMap<>();
-                TagInfo tagInfo = MAPPER.readValue(
-                        Brew.getTagInfo(branch + "-build"),
-                        TagInfo.class);
-                if (isNotEmpty(tagInfo.getExtra().getRhpkgSclPrefix())) {
-                    customMacros.put("scl", tagInfo.getExtra().getRhpkgSclPrefix());
-                }
-                if (isNotEmpty(tagInfo.getExtra().getRpmMacroScl())) {
-                    customMacros.put("scl", tagInfo.getExtra().getRpmMacroScl());
-                }
-                if (isNotEmpty(tagInfo.getExtra().getRpmMacroDist())) {
-                    customMacros.put("dist", Utils.normalizeDistMacro(tagInfo.getExtra().getRpmMacroDist()));
+                BrewTag tag = Brew.getTag(branch + "-build");
+                if (tag == null) {
+                    throw new RuntimeException("Unable to find Brew tag " + branch + "-build");
                 }
+                customMacros = tag.macros();
                 log.info("Extracted macros from Brew tag {}", customMacros);
             } else {
                 log.info("Using custom macros {}", customMacros);
@@ -273,16 +574,14 @@ public class App implements Runnable {
             if (overrideVersionOptions == null || overrideVersionOptions.gavOverride == null) {
                 // While we have the last-mead-build value this is not reversible into a GAV. However if we call onto
                 // brew we can obtain the GAV from the NVR.
-                String lastMeadBuildFile = Files.readString(Paths.get(repository.toString(), ETT.LAST_MEAD_BUILD))
-                        .trim();
-                String buildInfo = Brew.getBuildInfo(lastMeadBuildFile);
-                lastMeadBuild = MAPPER.readValue(
-                        buildInfo,
-                        BuildInfo.class);
-
-                log.debug("Retrieved BuildInfo\n{}", buildInfo);
-                if (!Utils.validateBuildInfo(lastMeadBuild)) {
-                    log.error("This build was not built in PNC: {}", buildInfo);
+                // The ETT files are parsed and validated together before any Brew call is made.
+                EttMetadata ett = EttMetadata.read(checkout());
+                String lastMeadBuildFile = ett.lastMeadBuild();
+                lastMeadBuild = Brew.getBuild(lastMeadBuildFile);
+
+                log.debug("Retrieved {}", lastMeadBuild);
+                if (lastMeadBuild == null || lastMeadBuild.maven() == null) {
+                    log.error("This build was not built in PNC: {}", lastMeadBuild);
                     throw new RuntimeException(
                             "The build " + lastMeadBuildFile
                                     + " must be ported to PNC before attempting to wrap it in a RPM");
@@ -291,22 +590,22 @@ public class App implements Runnable {
                         "Found {} {} with GAV {}:{}:{}",
                         ETT.LAST_MEAD_BUILD,
                         lastMeadBuildFile,
-                        lastMeadBuild.getExtra().getTypeinfo().getMaven().getGroupId(),
-                        lastMeadBuild.getExtra().getTypeinfo().getMaven().getArtifactId(),
-                        lastMeadBuild.getExtra().getTypeinfo().getMaven().getVersion());
-                version = Utils.parseNamedVersionFromVersionReleaseSerial(repository);
-                name = Utils.parseMeadPkgName(repository);
-                originalVersion = Utils.parseOriginalVersionFromVersionReleaseSerial(repository);
+                        lastMeadBuild.maven().groupId(),
+                        lastMeadBuild.maven().artifactId(),
+                        lastMeadBuild.maven().version());
+                version = ett.namedVersion();
+                name = ett.meadPkgName();
+                originalVersion = ett.originalVersion();
                 log.info("Found version: {} and original version: {}", version, originalVersion);
             } else {
                 ArtifactRef artifactRef = SimpleArtifactRef.parse(overrideVersionOptions.gavOverride);
-                lastMeadBuild = new BuildInfo();
-                lastMeadBuild.setExtra(new Extra());
-                lastMeadBuild.getExtra().setTypeinfo(new Typeinfo());
-                lastMeadBuild.getExtra().getTypeinfo().setMaven(new Maven());
-                lastMeadBuild.getExtra().getTypeinfo().getMaven().setGroupId(artifactRef.getGroupId());
-                lastMeadBuild.getExtra().getTypeinfo().getMaven().setArtifactId(artifactRef.getArtifactId());
-                lastMeadBuild.getExtra().getTypeinfo().getMaven().setVersion(artifactRef.getVersionString());
+                lastMeadBuild = new BrewBuild(
+                        null,
+                        null,
+                        new MavenGav(
+                                artifactRef.getGroupId(),
+                                artifactRef.getArtifactId(),
+                                artifactRef.getVersionString()));
                 version = artifactRef.getVersionString();
                 originalVersion = overrideVersionOptions.originalVersionOverride;
                 name = artifactRef.getGroupId() + "-" + artifactRef.getArtifactId();
@@ -322,36 +621,41 @@ public class App implements Runnable {
             // Previously we used a prefix e.g. org.jboss.pnc.rpm.org.apache.sshd : sshd-jb-eap-7.4-rhel-7
             // but we've now moved to using a single suffix and also replacing any '.' in the branch
             // name to ensure it complies with maven standards.
-            String groupId = lastMeadBuild.getExtra().getTypeinfo().getMaven().getGroupId();
-            String artifactId = lastMeadBuild.getExtra().getTypeinfo().getMaven().getArtifactId() + "-rpm-"
+            String groupId = lastMeadBuild.maven().groupId();
+            String artifactId = lastMeadBuild.maven().artifactId() + "-rpm-"
                     + branch.replace(".", "-");
             log.info(
                     "Setting groupId : artifactId to comprise of: {}:{}",
                     groupId,
                     artifactId);
 
-            List<SimpleArtifactRef> dependencies = getDependencies(pncConfig, pncConfiguration, lastMeadBuild);
+            WrappedArtifacts dependencies = getDependencies(pncConfig, pncConfiguration, lastMeadBuild.maven());
+            reached(Stage.RESOLVED);
+            Optional<String> spec = findSpecFile();
+            if (prune) {
+                pruneDependencies(dependencies, spec, version);
+            }
 
+            PomEvent pomEvent = new PomEvent(url, branch);
+            pomEvent.begin();
             String source = Utils.readTemplate();
             source = source.replace("RPM_BUILDER_PLUGIN_VERSION", Utils.getLatestRpmBuilderMavenPluginVersion());
-            source = updateSpecName(source);
+            source = updateSpecName(source, spec);
             source = source
                     .replace(
                             "Generated using ",
                             "Generated using RPM-Importer " + ManifestUtils.getManifestInformation(App.class)
-                                    + " from PNC build " + lastMeadBuild.getExtra().getExternalBuildId() + " ");
+                                    + " from PNC build "
+                                    + (wrappedBuildId == null ? lastMeadBuild.externalBuildId() : wrappedBuildId)
+                                    + " ");
 
             // Replace the Source100 marker in the template. Easier to do via string
             // replace rather than searching for the element.
-            Optional<SimpleArtifactRef> projectSources = dependencies.stream()
-                    .filter(a -> "project-sources".equals(a.getClassifier()))
-                    .findFirst();
-            source = injectSourcesMacro(projectSources, source);
+            source = injectSourcesMacro(dependencies.projectSources(), source);
 
-            File target = new File(repository.toFile(), "pom.xml");
-            if (target.exists() && !overwrite) {
+            if (!overwrite && checkout().read(Checkout.POM).isPresent()) {
                 log.error("pom.xml already exists and not overwriting");
-                return;
+                return false;
             }
 
             // Using https://github.com/maveniverse/domtrip as Maven MavenXpp3Reader/Writer
@@ -371,8 +675,8 @@ public class App implements Runnable {
             pomEditor.dependencies()
                     .addDependency(
                             deps,
-                            lastMeadBuild.getExtra().getTypeinfo().getMaven().getGroupId(),
-                            lastMeadBuild.getExtra().getTypeinfo().getMaven().getArtifactId(),
+                            lastMeadBuild.maven().groupId(),
+                            lastMeadBuild.maven().artifactId(),
                             "${wrappedBuild}");
 
             Element plugins = pomEditor.findChildElement(pomEditor.findChildElement(pomEditor.root(), BUILD), PLUGINS);
@@ -395,30 +699,294 @@ public class App implements Runnable {
                     .child("artifactItems")
                     .get();
 
-            dependencies.forEach(artifactRef -> {
+            dependencies.keys().forEach(artifactKey -> {
                 Element artifactItem = pomEditor.insertMavenElement(artifactItems, "artifactItem");
-                pomEditor.insertMavenElement(artifactItem, GROUP_ID, artifactRef.getGroupId());
-                pomEditor.insertMavenElement(artifactItem, ARTIFACT_ID, artifactRef.getArtifactId());
+                pomEditor.insertMavenElement(artifactItem, GROUP_ID, artifactKey.groupId());
+                pomEditor.insertMavenElement(artifactItem, ARTIFACT_ID, artifactKey.artifactId());
                 pomEditor.insertMavenElement(artifactItem, VERSION, "${wrappedBuild}");
-                if (StringUtils.isNotEmpty(artifactRef.getClassifier())) {
-                    pomEditor.insertMavenElement(artifactItem, CLASSIFIER, artifactRef.getClassifier());
+                if (StringUtils.isNotEmpty(artifactKey.classifier())) {
+                    pomEditor.insertMavenElement(artifactItem, CLASSIFIER, artifactKey.classifier());
                 }
-                if (StringUtils.isNotEmpty(artifactRef.getType()) && !artifactRef.getType().equals("jar")) {
-                    pomEditor.insertMavenElement(artifactItem, TYPE, artifactRef.getType());
+                if (StringUtils.isNotEmpty(artifactKey.type()) && !artifactKey.type().equals("jar")) {
+                    pomEditor.insertMavenElement(artifactItem, TYPE, artifactKey.type());
                 }
             });
 
             updateMacros(pomEditor, plugins, macros);
 
-            Files.writeString(target.toPath(), pomEditor.toXml());
-
-            Utils.commitAndPushRepository(repository, push);
+            String pom = pomEditor.toXml();
+            pomEvent.artifacts = dependencies.keys().size();
+            pomEvent.bytes = pom.length();
+            pomEvent.commit();
+            checkout().writePom(pom);
+            reached(Stage.GENERATED);
 
+            return commit();
         } catch (IOException | InterruptedException e) {
             throw new RuntimeException(e);
         }
     }
 
+    private Path cloneIntoWorkspace(String internalUrl) {
+        Path directory;
+        try {
+            directory = workspaces.create();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        try {
+            Utils.cloneRepository(internalUrl, branch, directory);
+        } catch (RuntimeException e) {
+            workspaces.release(directory);
+            throw e;
+        }
+        workspaces.measure(directory);
+        return directory;
+    }
+
+    /**
+     * @return the checkout of the branch, wrapping {@link #repository} if it is on disk
+     */
+    Checkout checkout() {
+        if (checkout == null && repository != null) {
+            checkout = new WorkTreeCheckout(repository);
+        }
+        return checkout;
+    }
+
+    private String readFile(String file) throws IOException {
+        return checkout().read(file)
+                .orElseThrow(() -> new NoSuchFileException(file, null, "Not found in " + checkout()));
+    }
+
+    private boolean commit() {
+        boolean committed;
+        try {
+            committed = checkout().commit();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        if (committed) {
+            reached(Stage.COMMITTED);
+        }
+        return committed;
+    }
+
+    private void reached(Stage stage) {
+        if (stageEvent != null) {
+            stageEvent.stage = stage.name();
+            stageEvent.commit();
+        }
+        stageEvent = new StageEvent(url, branch);
+        stageEvent.begin();
+        ImportContext.reached(stage);
+        if (journal != null) {
+            journal.record(batchEntry, stage, repository);
+        }
+    }
+
+    void runBatch(PncConfig pncConfig, Configuration pncConfiguration) {
+        if (repository != null || overrideVersionOptions != null) {
+            log.error("Neither --repository nor --gav may be used with --batch");
+            return;
+        }
+        costs = new CostModel(costHistory);
+        List<BatchEntry> entries;
+        WorkQueue workQueue = null;
+        try {
+            if (queue != null) {
+                workQueue = WorkQueue.open(queue, worker, Duration.ofSeconds(leaseTimeout));
+                if (batch != null) {
+                    List<BatchEntry> parsed = BatchEntry.parse(batch);
+                    int added = workQueue.enqueue(parsed, costs.estimate(parsed), resume);
+                    log.info("Added {} entries from {} to queue {}", added, batch, queue);
+                }
+                entries = workQueue.pending();
+                log.info("Importing entries from queue {} as {} using {} threads", queue, worker, threads);
+            } else {
+                entries = BatchEntry.parse(batch);
+                log.info("Importing {} entries from {} using {} threads", entries.size(), batch, threads);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        BatchReport report = importBatch(pncConfig, pncConfiguration, entries, workQueue);
+        costs.record(report);
+        report.log();
+    }
+
+    /**
+     * Imports the entries, or with a queue every entry in it (including those added by other workers).
+     *
+     * @return the results, of every worker if a queue is used
+     */
+    private BatchReport importBatch(
+            PncConfig pncConfig,
+            Configuration pncConfiguration,
+            List<BatchEntry> entries,
+            WorkQueue workQueue) {
+        // Translate up front so each import finds its internal URL locally.
+        translator.translateAll(entries.stream().map(BatchEntry::url).toList(), threads);
+        scmRepositoryIndex = new ScmRepositoryIndex(
+                orchService,
+                pncConfig.getUrl(),
+                pncConfiguration.getBearerTokenSupplier());
+        Utils.configureSshSessionFactory();
+
+        Path journalPath = journalFile;
+        if (journalPath == null) {
+            journalPath = queue == null ? Path.of(batch + ".journal") : queue.resolve(worker + ".journal");
+        }
+        BatchReport report;
+        try (WorkQueue ignored = workQueue;
+                Journal journal = Journal.open(journalPath, resume);
+                PushStage pushStage = push ? new PushStage(pushThreads, threads) : null) {
+            this.journal = journal;
+            BatchRunner runner = new BatchRunner(threads, pushStage, journal, workspaces, costs);
+            BatchRunner.ImportTask task = entry -> {
+                App app = forEntry(entry);
+                try {
+                    Checkout committed = app.resumeRepository(pncConfig, pncConfiguration);
+                    if (committed == null) {
+                        workspaces.release(app.repository);
+                    } else if (pushStage == null) {
+                        workspaces.retain(app.repository, "commit not pushed");
+                    }
+                    return committed;
+                } catch (Exception e) {
+                    workspaces.retain(app.repository, "import failed");
+                    throw e;
+                }
+            };
+            if (workQueue == null) {
+                report = runner.run(entries, task);
+            } else {
+                BatchReport own = runner.run(workQueue, task);
+                log.info("Worker {} imported {} entries; the queue is drained", worker, own.results().size());
+                own.logStragglers();
+                // Merges the results of every worker
+                report = workQueue.report();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return report;
+    }
+
+    /**
+     * Regenerates the batch entries affected by each build that completes, as announced on the message broker,
+     * until interrupted.
+     */
+    void runListen(PncConfig pncConfig, Configuration pncConfiguration) {
+        if (batch == null || queue != null || resume || repository != null || overrideVersionOptions != null) {
+            log.error("--listen requires --batch, and may not be used with --queue, --resume, --repository or --gav");
+            return;
+        }
+        Path mirrorRoot = mirror == null ? Utils.createTempDir("mirror-", "mirroring") : mirror;
+        log.info("Using {} for repository mirrors", mirrorRoot);
+        BuildIndex index = new BuildIndex(new DriftScanner(mirrorRoot, threads), batch);
+        costs = new CostModel(costHistory);
+        try (BuildListener listener = new BuildListener(
+                URI.create(listen),
+                System.getenv(BuildListener.LOGIN_ENV),
+                System.getenv(BuildListener.PASSCODE_ENV),
+                index,
+                BuildListener.DEFAULT_QUIET_PERIOD,
+                BuildListener.DEFAULT_HOLD_TIMEOUT)) {
+            index.reload();
+            while (!Thread.currentThread().isInterrupted()) {
+                List<BatchEntry> entries = listener.next();
+                log.info("Regenerating {} branches affected by new builds", entries.size());
+                BatchReport report = importBatch(pncConfig, pncConfiguration, entries, null);
+                costs.record(report);
+                report.log();
+                listener.acknowledge(
+                        report.results()
+                                .stream()
+                                .filter(r -> r.status() != BatchResult.Status.FAILED)
+                                .map(BatchResult::entry)
+                                .toList());
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Imports the batch entry, continuing from the last stage recorded in the journal.
+     *
+     * @return the checkout if a commit was made, or null if nothing changed
+     */
+    Checkout resumeRepository(PncConfig pncConfig, Configuration pncConfiguration) throws GitAPIException {
+        Journal.Progress progress = journal.progress(batchEntry);
+        if (progress != null && progress.reached(Stage.CLONED)
+                && progress.repository() != null && Files.isDirectory(progress.repository())) {
+            repository = progress.repository();
+            // Deleted like a fresh clone once pushed, if this workspace created it
+            workspaces.adopt(repository);
+            if (progress.stage() == Stage.COMMITTED) {
+                log.info("Resuming {} from {} with {}", batchEntry, progress.stage(), repository);
+                return checkout();
+            } else if (progress.stage() == Stage.GENERATED) {
+                log.info("Resuming {} from {} with {}", batchEntry, progress.stage(), repository);
+                return commit() ? checkout() : null;
+            }
+            // The clone is our own so any partially generated pom can be discarded before regenerating.
+            try (Git git = Git.open(repository.toFile())) {
+                git.reset().setMode(ResetCommand.ResetType.HARD).call();
+                git.clean().setCleanDirectories(true).call();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            log.info("Resuming {} from {} with {}", batchEntry, progress.stage(), repository);
+        } else if (progress != null && progress.reached(Stage.SYNCED)) {
+            log.info("Resuming {} from {}", batchEntry, progress.stage());
+            skipSync = true;
+        }
+        return importRepository(pncConfig, pncConfiguration) ? checkout() : null;
+    }
+
+    /**
+     * Creates a copy of this command that imports a single batch entry, sharing the clients and options.
+     */
+    App forEntry(BatchEntry entry) {
+        App app = new App();
+        app.reqourService = reqourService;
+        app.orchService = orchService;
+        app.translator = translator;
+        app.costs = costs;
+        app.scmRepositoryIndex = scmRepositoryIndex;
+        app.journal = journal;
+        app.workspaces = workspaces;
+        app.batchEntry = entry;
+        app.url = entry.url();
+        app.branch = entry.branch();
+        app.skipSync = skipSync;
+        app.overwrite = overwrite;
+        app.customMacros = customMacros;
+        app.excludeArtifacts = excludeArtifacts;
+        app.prune = prune;
+        app.inMemory = inMemory;
+        app.gitlabApi = gitlabApi;
+        return app;
+    }
+
+    UrlTranslator createTranslator() {
+        ReqourConfig reqourConfig = Config.instance().getActiveProfile().getReqour();
+        try {
+            return new UrlTranslator(
+                    reqourService,
+                    reqourConfig == null ? null : reqourConfig.getUrl(),
+                    translationRules == null ? List.of() : TranslationRule.parse(translationRules),
+                    translationCache);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     void updateMacros(PomEditor pomEditor, Element plugins, Macros macros) {
         // findFirst as the template only has one plugin with this artifactId
         var plugin = plugins.children()
@@ -457,48 +1025,90 @@ public class App implements Runnable {
     }
 
     String updateSpecName(String source) throws IOException {
+        return updateSpecName(source, findSpecFile());
+    }
+
+    String updateSpecName(String source, Optional<String> spec) {
         // Replace the "template.spec" marker in the template. Easier to do via
         // string replace.
-        try (Stream<Path> stream = Files.walk(repository, 1)) {
-            var r = stream.filter(m -> m.toFile().getName().endsWith(".spec")).toList();
-            // TODO: Should these first two cases be an error condition?
-            if (r.isEmpty()) {
-                log.error("No spec file found in {}", repository);
-            } else if (r.size() > 1) {
-                log.error("Multiple spec files found: {}", r);
-            } else {
-                log.info("Replacing template.spec marker with: {}", r.getFirst().toFile().getName());
-                return source.replaceAll("template.spec", r.getFirst().toFile().getName());
-            }
+        if (spec.isPresent()) {
+            log.info("Replacing template.spec marker with: {}", spec.get());
+            return source.replaceAll("template.spec", spec.get());
         }
         return source;
     }
 
-    List<SimpleArtifactRef> getDependencies(
+    Optional<String> findSpecFile() throws IOException {
+        var r = checkout().list().stream().filter(m -> m.endsWith(".spec")).toList();
+        // TODO: Should these first two cases be an error condition?
+        if (r.isEmpty()) {
+            log.error("No spec file found in {}", checkout());
+        } else if (r.size() > 1) {
+            log.error("Multiple spec files found: {}", r);
+        } else {
+            return Optional.of(r.getFirst());
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Removes the wrapped build artifacts that the spec file does not reference. The project sources are
+     * always retained as they are injected as Source100.
+     */
+    void pruneDependencies(WrappedArtifacts dependencies, Optional<String> spec, String version) throws IOException {
+        if (spec.isEmpty()) {
+            log.warn("No spec file to analyse; not pruning artifacts");
+            return;
+        }
+        SpecAnalyzer analyzer = SpecAnalyzer.parse(readFile(spec.get()).lines().toList(), version);
+        if (analyzer.unsupported().isPresent()) {
+            log.warn(
+                    "Unable to determine the files used by '{}' in {}; not pruning artifacts",
+                    analyzer.unsupported().get(),
+                    spec.get());
+            return;
+        }
+        Predicate<ArtifactKey> sources = k -> "project-sources".equals(k.classifier());
+        if (!analyzer.consumesAny(dependencies.keys().stream().filter(sources.negate()).toList())) {
+            log.warn("No references to the wrapped build artifacts found in {}; not pruning artifacts", spec.get());
+            return;
+        }
+        var pruned = dependencies.retain(sources.or(analyzer::isConsumed));
+        log.info(
+                "Pruned {} artifacts ({} bytes) not referenced by {}; {} remaining",
+                pruned.artifacts().size(),
+                pruned.bytes(),
+                spec.get(),
+                dependencies.keys().size());
+        log.debug("Pruned artifacts {}", pruned.artifacts());
+    }
+
+    WrappedArtifacts getDependencies(
             PncConfig pncConfig,
             Configuration pncConfiguration,
-            BuildInfo lastMeadBuild) {
+            MavenGav wrapped) {
         // Unfortunately, this is somewhat heavyweight. We need all the artifacts produced by this
         // build. I think this is currently only possible by retrieving the artifactId for the GAV,
         // then the artifact for that Id and finally using the buildId from the previous, retrieve all
         // built artifacts.
+        WrappedArtifacts result = new WrappedArtifacts(excludeArtifacts == null ? List.of() : excludeArtifacts);
         log.debug(
                 "Calling orch with {}",
                 String.format(
                         "%s:%s:%s:%s",
-                        lastMeadBuild.getExtra().getTypeinfo().getMaven().getGroupId(),
-                        lastMeadBuild.getExtra().getTypeinfo().getMaven().getArtifactId(),
+                        wrapped.groupId(),
+                        wrapped.artifactId(),
                         "pom",
-                        lastMeadBuild.getExtra().getTypeinfo().getMaven().getVersion()));
+                        wrapped.version()));
         var allArtifacts = orchService.getArtifactsFiltered(
                 pncConfig.getUrl(),
                 pncConfiguration.getBearerTokenSupplier().get(),
                 String.format(
                         "%s:%s:%s:%s",
-                        lastMeadBuild.getExtra().getTypeinfo().getMaven().getGroupId(),
-                        lastMeadBuild.getExtra().getTypeinfo().getMaven().getArtifactId(),
+                        wrapped.groupId(),
+                        wrapped.artifactId(),
                         "pom",
-                        lastMeadBuild.getExtra().getTypeinfo().getMaven().getVersion()));
+                        wrapped.version()));
 
         var found = allArtifacts.getContent().stream().findFirst();
         if (found.isPresent()) {
@@ -512,17 +1122,16 @@ public class App implements Runnable {
             if (artifact.getBuild() == null) {
                 // Likely an import
                 log.error("Unable to find build information for artifact (Import: {})", artifact.getImportDate());
-                return Collections.emptyList();
+                return result;
             }
             String buildId = artifact.getBuild().getId();
-            lastMeadBuild.getExtra().setExternalBuildId(buildId);
+            wrappedBuildId = buildId;
             log.debug(
                     "For artifact {} found artifactId {} with buildId {}",
-                    lastMeadBuild.getExtra().getTypeinfo().getMaven(),
+                    wrapped,
                     artifactId,
                     buildId);
 
-            List<SimpleArtifactRef> result = new ArrayList<>();
             int pageIndex = 0;
             int pageTotal;
             do {
@@ -533,21 +1142,52 @@ public class App implements Runnable {
                         50,
                         pageIndex);
                 pageTotal = artifacts.getTotalPages();
-                var deps = artifacts.getContent()
-                        .stream()
-                        .map(c -> SimpleArtifactRef.parse(c.getIdentifier()))
-                        .sorted()
-                        .toList();
-                log.info("Found dependencies ({}) (page {} out of {}) {}", deps.size(), pageIndex, pageTotal, deps);
+                // Each page is folded straight into the result so neither the pages nor the parsed
+                // references are retained.
+                int added = 0;
+                for (Artifact a : artifacts.getContent()) {
+                    if (result.add(SimpleArtifactRef.parse(a.getIdentifier()), a.getSize())) {
+                        added++;
+                    }
+                    log.debug("Found dependency {}", a.getIdentifier());
+                }
+                log.debug(
+                        "Found dependencies ({}, {} new) (page {} out of {})",
+                        artifacts.getContent().size(),
+                        added,
+                        pageIndex,
+                        pageTotal);
                 pageIndex++;
-                result.addAll(deps);
             } while (pageIndex < pageTotal);
+            log.info(
+                    "Using {} unique dependencies from {} built artifacts",
+                    result.keys().size(),
+                    result.received());
+            if (costs != null && batchEntry != null) {
+                costs.recordArtifacts(batchEntry, result.received());
+            }
             return result;
         } else {
             // TODO: Should this be an error? This would imply there is no existing build in PNC to be wrapped.
-            log.error("Unable to find an artifact from GAV {}", lastMeadBuild.getExtra().getTypeinfo().getMaven());
+            log.error("Unable to find an artifact from GAV {}", wrapped);
+        }
+        return result;
+    }
+
+    void runScan() {
+        Path mirrorRoot = mirror == null ? Utils.createTempDir("mirror-", "mirroring") : mirror;
+        log.info("Using {} for repository mirrors", mirrorRoot);
+        List<ScanResult> results;
+        try {
+            results = new DriftScanner(mirrorRoot, threads).scan(ScanTarget.parse(scan));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
         }
-        return Collections.emptyList();
+        List<ScanResult> stale = results.stream().filter(ScanResult::isStale).toList();
+        log.info("Scanned {} branches; {} are out of date", results.size(), stale.size());
+        stale.forEach(r -> log.info("{} {} {}", r.url(), r.branch(), r.reasons()));
+        Backends.log();
+        GitStorage.log();
     }
 
     private void setConfigLocation(String configLocation, String source) {
@@ -0,0 +1,213 @@
+package org.jboss.pnc.rpm.importer.backend;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits the number of concurrent calls to a backend using AIMD (additive increase, multiplicative
+ * decrease). While the limit is being used and calls succeed it grows by roughly one per round trip; when
+ * the backend signals overload (HTTP 429/503, timeouts) it is halved, and when latency rises well above the
+ * lowest recently observed latency it is reduced by 10%. The latency signal is only meaningful when calls do
+ * similar amounts of work, so it can be disabled for backends whose calls range from an ls-remote to a clone
+ * of a large repository.
+ * <p>
+ * Only calls that started after the last decrease may cause another decrease, so a burst of failures from
+ * calls that were already in flight counts as a single congestion event.
+ */
+public class AdaptiveLimiter {
+
+    private static final double OVERLOAD_BACKOFF = 0.5;
+
+    private static final double LATENCY_BACKOFF = 0.9;
+
+    /** A call slower than this multiple of the baseline latency is treated as a sign of congestion. */
+    private static final double LATENCY_TOLERANCE = 3;
+
+    /** Latency increases smaller than this are treated as noise. */
+    private static final long LATENCY_SLACK_NANOS = 10_000_000;
+
+    /** Allows the baseline to drift upwards (by 2% per call) if the backend becomes permanently slower. */
+    private static final double BASELINE_DECAY = 1.02;
+
+    private final String name;
+
+    private final double minLimit;
+
+    private final double maxLimit;
+
+    private final boolean latencySignal;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition available = lock.newCondition();
+
+    private double limit;
+
+    private int inFlight;
+
+    private long baselineNanos;
+
+    private long lastDecrease;
+
+    private boolean decreased;
+
+    private long calls;
+
+    private long overloads;
+
+    private int peakInFlight;
+
+    /**
+     * @param name the name, for reporting
+     * @param initialLimit the initial concurrency limit
+     * @param minLimit the lowest the limit may be reduced to
+     * @param maxLimit the highest the limit may be increased to
+     */
+    public AdaptiveLimiter(String name, int initialLimit, int minLimit, int maxLimit) {
+        this(name, initialLimit, minLimit, maxLimit, true);
+    }
+
+    /**
+     * @param name the name, for reporting
+     * @param initialLimit the initial concurrency limit
+     * @param minLimit the lowest the limit may be reduced to
+     * @param maxLimit the highest the limit may be increased to
+     * @param latencySignal whether a rise in latency reduces the limit
+     */
+    public AdaptiveLimiter(String name, int initialLimit, int minLimit, int maxLimit, boolean latencySignal) {
+        this.name = name;
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencySignal = latencySignal;
+    }
+
+    /**
+     * A permit to make a single call. Exactly one of the completion methods must be called.
+     */
+    public class Permit {
+        private final long start = System.nanoTime();
+
+        private Permit() {
+        }
+
+        /**
+         * The call succeeded.
+         */
+        public void success() {
+            release(start, System.nanoTime() - start, false);
+        }
+
+        /**
+         * The backend rejected the call or timed out because it is overloaded.
+         */
+        public void overloaded() {
+            release(start, System.nanoTime() - start, true);
+        }
+
+        /**
+         * The call failed for a reason unrelated to load (e.g. a 404); it does not affect the limit.
+         */
+        public void ignore() {
+            lock.lock();
+            try {
+                inFlight--;
+                available.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Waits until the number of calls in flight is below the limit.
+     */
+    public Permit acquire() throws InterruptedException {
+        lock.lock();
+        try {
+            while (inFlight >= (int) limit) {
+                available.await();
+            }
+            inFlight++;
+            peakInFlight = Math.max(peakInFlight, inFlight);
+            calls++;
+            return new Permit();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(long start, long latency, boolean overloaded) {
+        lock.lock();
+        try {
+            boolean utilised = inFlight >= limit / 2;
+            inFlight--;
+            if (overloaded) {
+                overloads++;
+                decrease(start, OVERLOAD_BACKOFF);
+            } else {
+                baselineNanos = baselineNanos == 0 ? latency
+                        : Math.min(latency, (long) (baselineNanos * BASELINE_DECAY));
+                if (latencySignal && latency > baselineNanos * LATENCY_TOLERANCE + LATENCY_SLACK_NANOS) {
+                    decrease(start, LATENCY_BACKOFF);
+                } else if (utilised) {
+                    // Only grow when the limit is actually being used, otherwise it would grow without bound
+                    // while the importer itself is the bottleneck.
+                    limit = Math.min(maxLimit, limit + 1 / limit);
+                }
+            }
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void decrease(long start, double factor) {
+        if (!decreased || start - lastDecrease > 0) {
+            limit = Math.max(minLimit, limit * factor);
+            lastDecrease = System.nanoTime();
+            decreased = true;
+        }
+    }
+
+    /**
+     * @return the current concurrency limit
+     */
+    public int limit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of calls made
+     */
+    public long calls() {
+        lock.lock();
+        try {
+            return calls;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        lock.lock();
+        try {
+            return String.format(
+                    "%s: limit %d (peak in flight %d, %d calls, %d overloaded, baseline latency %d ms)",
+                    name,
+                    (int) limit,
+                    peakInFlight,
+                    calls,
+                    overloads,
+                    baselineNanos / 1_000_000);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
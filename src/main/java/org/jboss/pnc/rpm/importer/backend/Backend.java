@@ -0,0 +1,48 @@
+package org.jboss.pnc.rpm.importer.backend;
+
+/**
+ * The remote services the importer talks to. Each has its own {@link AdaptiveLimiter}.
+ */
+public enum Backend {
+    /** PNC orch. */
+    ORCH(8, 64, true),
+    /** Reqour. */
+    REQOUR(8, 32, true),
+    /** The Brew CLI, whose latency depends on the command and the size of the build. */
+    BREW(4, 16, false),
+    /**
+     * Git remotes (clone, fetch, push and ls-remote), whose latency depends on the operation and the size of the
+     * repository.
+     */
+    GIT(8, 32, false),
+    /** The GitLab REST API. */
+    GITLAB(8, 32, true);
+
+    private final int initialLimit;
+
+    private final int maxLimit;
+
+    private final boolean latencyTracksLoad;
+
+    Backend(int initialLimit, int maxLimit, boolean latencyTracksLoad) {
+        this.initialLimit = initialLimit;
+        this.maxLimit = maxLimit;
+        this.latencyTracksLoad = latencyTracksLoad;
+    }
+
+    public int initialLimit() {
+        return initialLimit;
+    }
+
+    public int maxLimit() {
+        return maxLimit;
+    }
+
+    /**
+     * @return true if a rise in latency signals that the backend is loaded, false if latency mostly depends on
+     *         the amount of work a call does (so only overload and errors reduce its limit)
+     */
+    public boolean latencyTracksLoad() {
+        return latencyTracksLoad;
+    }
+}
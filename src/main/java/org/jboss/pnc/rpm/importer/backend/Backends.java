@@ -0,0 +1,469 @@
+package org.jboss.pnc.rpm.importer.backend;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.Proxy;
+import java.net.SocketTimeoutException;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.ProcessingException;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.WebApplicationException;
+
+import org.jboss.pnc.rpm.importer.jfr.BackendCallEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Entry point for calls to the remote {@link Backend}s. Every call goes through the backend's
+ * {@link AdaptiveLimiter} so that concurrency tracks what each backend can sustain.
+ * <p>
+ * Idempotent calls of {@link #guard guarded} REST clients (GETs and methods annotated with {@link Idempotent})
+ * additionally go through the backend's {@link CircuitBreaker}, so that they fail fast while the service is
+ * down, are retried with jittered exponential backoff on transient failures and, if {@link #setHedging hedging}
+ * is enabled, are duplicated once they take longer than the backend's recent 95th percentile latency; whichever
+ * copy succeeds first is used. Other calls (e.g. creating a repository) are never retried or duplicated. Git,
+ * Brew and GitLab calls are not broken either: their failures are mostly particular to a repository or build
+ * (e.g. one that does not exist), so they say nothing about the calls for others.
+ * <p>
+ * Identical REST GETs made concurrently through a {@link #guard guarded} client share a single call via the
+ * backend's {@link Coalescer}.
+ */
+public class Backends {
+    private static final Logger log = LoggerFactory.getLogger(Backends.class);
+
+    private static final int ATTEMPTS = 3;
+
+    private static final Duration INITIAL_BACKOFF = Duration.ofMillis(500);
+
+    private static final double HEDGE_PERCENTILE = 95;
+
+    private static final Map<Backend, AdaptiveLimiter> LIMITERS = new EnumMap<>(Backend.class);
+
+    private static final Map<Backend, CircuitBreaker> BREAKERS = new EnumMap<>(Backend.class);
+
+    private static final Map<Backend, LatencyTracker> LATENCIES = new EnumMap<>(Backend.class);
+
+    private static final Map<Backend, AtomicLong> RETRIES = new EnumMap<>(Backend.class);
+
+    private static final Map<Backend, AtomicLong> HEDGES = new EnumMap<>(Backend.class);
+
+    private static final Map<Backend, Coalescer<Invocation, Object>> COALESCERS = new EnumMap<>(Backend.class);
+
+    private static final AtomicInteger HEDGE_THREADS = new AtomicInteger();
+
+    private static final ExecutorService HEDGE_EXECUTOR = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "hedge-" + HEDGE_THREADS.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static volatile boolean hedging;
+
+    static {
+        for (Backend backend : Backend.values()) {
+            LIMITERS.put(
+                    backend,
+                    new AdaptiveLimiter(
+                            backend.name(),
+                            backend.initialLimit(),
+                            1,
+                            backend.maxLimit(),
+                            backend.latencyTracksLoad()));
+            BREAKERS.put(backend, new CircuitBreaker(backend.name()));
+            LATENCIES.put(backend, new LatencyTracker(200));
+            RETRIES.put(backend, new AtomicLong());
+            HEDGES.put(backend, new AtomicLong());
+            COALESCERS.put(backend, new Coalescer<>(backend + " GET"));
+        }
+    }
+
+    /**
+     * A call to a backend.
+     *
+     * @param <T> the result type
+     * @param <E> the checked exception thrown by the call
+     */
+    @FunctionalInterface
+    public interface Call<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    /**
+     * A call labelled with the operation it performs, for {@link BackendCallEvent}s.
+     */
+    private record Operation<T, E extends Exception>(String name, int page, Call<T, E> delegate)
+            implements Call<T, E> {
+        @Override
+        public T call() throws E {
+            return delegate.call();
+        }
+    }
+
+    /**
+     * Identifies a REST client call for coalescing.
+     */
+    private record Invocation(Object client, Method method, List<Object> args) {
+    }
+
+    /**
+     * Enables duplicating slow idempotent calls.
+     */
+    public static void setHedging(boolean enabled) {
+        hedging = enabled;
+    }
+
+    /**
+     * Makes a call to a backend, waiting first if the backend's concurrency limit has been reached.
+     *
+     * @param backend the backend
+     * @param call the call
+     * @return the result of the call
+     */
+    public static <T, E extends Exception> T call(Backend backend, Call<T, E> call) throws E {
+        return call(
+                backend,
+                call instanceof Operation<T, E> operation ? operation : new Operation<>(null, -1, call),
+                null);
+    }
+
+    /**
+     * Makes a call to a backend, waiting first if the backend's concurrency limit has been reached.
+     *
+     * @param backend the backend
+     * @param operation the endpoint, command or git operation, for {@link BackendCallEvent}s
+     * @param call the call
+     * @return the result of the call
+     */
+    public static <T, E extends Exception> T call(Backend backend, String operation, Call<T, E> call) throws E {
+        return call(backend, new Operation<>(operation, -1, call), null);
+    }
+
+    /**
+     * @param breaker the circuit breaker to consult and record the outcome in, or null if the call is not broken
+     * @throws CircuitBreaker.OpenException if the backend has been failing
+     */
+    private static <T, E extends Exception> T call(Backend backend, Operation<T, E> call, CircuitBreaker breaker)
+            throws E {
+        if (breaker != null) {
+            breaker.before();
+        }
+        AdaptiveLimiter.Permit permit;
+        try {
+            permit = LIMITERS.get(backend).acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (breaker != null) {
+                breaker.ignore();
+            }
+            throw new RuntimeException(e);
+        }
+        BackendCallEvent event = new BackendCallEvent();
+        event.begin();
+        long start = System.nanoTime();
+        boolean released = false;
+        try {
+            T result = call.call();
+            if (event.shouldCommit()) {
+                event.backend = backend.name();
+                event.operation = call.name();
+                event.page = call.page();
+                event.outcome = "success";
+                if (result instanceof HttpResponse<?> response) {
+                    event.status = response.statusCode();
+                    event.bytes = response.body() instanceof String body ? body.length() : 0;
+                }
+                event.commit();
+            }
+            released = true;
+            permit.success();
+            if (breaker != null) {
+                breaker.success();
+            }
+            LATENCIES.get(backend).record(System.nanoTime() - start);
+            return result;
+        } catch (Exception e) {
+            if (event.shouldCommit()) {
+                event.backend = backend.name();
+                event.operation = call.name();
+                event.page = call.page();
+                event.outcome = isOverload(e) ? "overloaded" : "failed";
+                event.status = status(e);
+                event.commit();
+            }
+            released = true;
+            if (isOverload(e)) {
+                log.debug("{} is overloaded: {}", backend, e.toString());
+                permit.overloaded();
+            } else {
+                permit.ignore();
+            }
+            if (breaker != null) {
+                if (isTransient(e)) {
+                    breaker.failure();
+                } else {
+                    breaker.ignore();
+                }
+            }
+            throw e;
+        } finally {
+            if (!released) {
+                // An Error, which says nothing about the backend but must not leak the permit or leave a
+                // half open breaker waiting for its trial call forever
+                permit.ignore();
+                if (breaker != null) {
+                    breaker.ignore();
+                }
+            }
+        }
+    }
+
+    /**
+     * Makes an idempotent call to a backend, failing fast while its circuit breaker is open, retrying transient
+     * failures and hedging slow calls.
+     *
+     * @param backend the backend
+     * @param call the call, which must be safe to make more than once
+     * @return the result of the call
+     * @throws RuntimeException if interrupted, with the interrupt flag restored, as the REST client methods
+     *         this is used for cannot throw InterruptedException
+     */
+    static <T> T callIdempotent(Backend backend, Call<T, ? extends Exception> call) throws Exception {
+        Duration backoff = INITIAL_BACKOFF;
+        for (int attempt = 1;; attempt++) {
+            try {
+                return hedged(backend, call);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (Exception e) {
+                if (attempt == ATTEMPTS || !isTransient(e)) {
+                    throw e;
+                }
+                long sleep = ThreadLocalRandom.current().nextLong(backoff.toMillis()) + 1;
+                RETRIES.get(backend).incrementAndGet();
+                log.warn("{} call failed (attempt {}); retrying in {} ms: {}", backend, attempt, sleep, e.toString());
+                try {
+                    Thread.sleep(sleep);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    interrupted.addSuppressed(e);
+                    throw new RuntimeException(interrupted);
+                }
+                backoff = backoff.multipliedBy(2);
+            }
+        }
+    }
+
+    private static <T> T hedged(Backend backend, Call<T, ? extends Exception> call) throws Exception {
+        long delay = hedging ? LATENCIES.get(backend).percentile(HEDGE_PERCENTILE) : -1;
+        if (delay < 0) {
+            return broken(backend, call);
+        }
+        CompletableFuture<T> primary = submit(backend, call);
+        try {
+            return primary.get(delay, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // Fall through to hedge
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+        HEDGES.get(backend).incrementAndGet();
+        log.debug("{} call exceeded {} ms; hedging", backend, TimeUnit.NANOSECONDS.toMillis(delay));
+        CompletableFuture<T> hedge = submit(backend, call);
+        CompletableFuture<T> first = new CompletableFuture<>();
+        AtomicInteger failed = new AtomicInteger();
+        for (CompletableFuture<T> future : List.of(primary, hedge)) {
+            future.whenComplete((result, failure) -> {
+                if (failure == null) {
+                    first.complete(result);
+                } else if (failed.incrementAndGet() == 2) {
+                    first.completeExceptionally(failure);
+                }
+            });
+        }
+        try {
+            return first.get();
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    private static <T> CompletableFuture<T> submit(Backend backend, Call<T, ? extends Exception> call) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return broken(backend, call);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, HEDGE_EXECUTOR);
+    }
+
+    /**
+     * Makes a call through the backend's circuit breaker as well as its limiter.
+     */
+    private static <T, E extends Exception> T broken(Backend backend, Call<T, E> call) throws E {
+        return call(
+                backend,
+                call instanceof Operation<T, E> operation ? operation : new Operation<>(null, -1, call),
+                BREAKERS.get(backend));
+    }
+
+    private static Exception unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause instanceof Exception exception ? exception : e;
+    }
+
+    /**
+     * Wraps a REST client so that each method call is made via {@link #call}, or {@link #callIdempotent} for
+     * GETs and methods annotated with {@link Idempotent}. Concurrent GETs with equal arguments are coalesced.
+     *
+     * @param type the client interface
+     * @param client the client
+     * @param backend the backend the client talks to
+     * @return the wrapped client
+     */
+    public static <T> T guard(Class<T> type, T client, Backend backend) {
+        return type.cast(
+                Proxy.newProxyInstance(
+                        type.getClassLoader(),
+                        new Class<?>[] { type },
+                        (proxy, method, args) -> {
+                            if (method.getDeclaringClass() == Object.class) {
+                                return method.invoke(client, args);
+                            }
+                            Call<Object, Exception> invoke = () -> {
+                                try {
+                                    return method.invoke(client, args);
+                                } catch (InvocationTargetException e) {
+                                    if (e.getCause() instanceof Exception cause) {
+                                        throw cause;
+                                    }
+                                    throw e;
+                                }
+                            };
+                            var call = new Operation<>(method.getName(), page(method, args), invoke);
+                            if (method.isAnnotationPresent(GET.class)) {
+                                List<Object> arguments = args == null ? List.of() : Arrays.asList(args);
+                                var key = new Invocation(client, method, arguments);
+                                return COALESCERS.get(backend).get(key, () -> callIdempotent(backend, call));
+                            }
+                            return isIdempotent(method) ? callIdempotent(backend, call) : call(backend, call);
+                        }));
+    }
+
+    /**
+     * @return the value of the {@code pageIndex} query parameter, or -1 if the method is not paged
+     */
+    private static int page(Method method, Object[] args) {
+        Parameter[] parameters = method.getParameters();
+        for (int i = 0; i < parameters.length; i++) {
+            QueryParam query = parameters[i].getAnnotation(QueryParam.class);
+            if (query != null && "pageIndex".equals(query.value()) && args[i] instanceof Integer page) {
+                return page;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the HTTP status of a failed call, or 0 if there was no response
+     */
+    private static int status(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof WebApplicationException w && w.getResponse() != null) {
+                return w.getResponse().getStatus();
+            }
+        }
+        return 0;
+    }
+
+    static boolean isIdempotent(Method method) {
+        return method.isAnnotationPresent(GET.class) || method.isAnnotationPresent(Idempotent.class);
+    }
+
+    /**
+     * @return the limiter of the backend
+     */
+    public static AdaptiveLimiter limiter(Backend backend) {
+        return LIMITERS.get(backend);
+    }
+
+    /**
+     * Logs the current limit of each backend that has been used along with its retries and hedges.
+     */
+    public static void log() {
+        LIMITERS.forEach((backend, limiter) -> {
+            if (limiter.calls() > 0) {
+                log.info(
+                        "Concurrency {}; {} retries, {} hedged{}",
+                        limiter,
+                        RETRIES.get(backend).get(),
+                        HEDGES.get(backend).get(),
+                        BREAKERS.get(backend).isOpen() ? ", circuit breaker open" : "");
+            }
+        });
+        Coalescer.log();
+    }
+
+    /**
+     * Determines whether a failure indicates that the backend is overloaded: HTTP 429 or 5xx gateway/
+     * availability errors, or a timeout anywhere in the cause chain.
+     */
+    static boolean isOverload(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof WebApplicationException w && w.getResponse() != null) {
+                int status = w.getResponse().getStatus();
+                if (status == 429 || status == 502 || status == 503 || status == 504) {
+                    return true;
+                }
+            } else if (t instanceof SocketTimeoutException || t instanceof HttpTimeoutException
+                    || t instanceof TimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Determines whether a failure may succeed if retried: an overload, any 5xx response, or a connection
+     * level failure. Client errors (4xx) are not transient.
+     */
+    static boolean isTransient(Throwable e) {
+        if (isOverload(e)) {
+            return true;
+        }
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof WebApplicationException w) {
+                return w.getResponse() != null && w.getResponse().getStatus() >= 500;
+            } else if (t instanceof CircuitBreaker.OpenException) {
+                return false;
+            } else if (t instanceof IOException || t instanceof ProcessingException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
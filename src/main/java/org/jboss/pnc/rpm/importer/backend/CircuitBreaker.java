@@ -0,0 +1,84 @@
+package org.jboss.pnc.rpm.importer.backend;
+
+import java.time.Duration;
+
+/**
+ * Stops calls to a backend after it has failed repeatedly, so that a batch fails fast rather than every
+ * entry waiting through its retries. After {@link #OPEN_DURATION} a single trial call is let through; if it
+ * succeeds the breaker closes again.
+ */
+public class CircuitBreaker {
+
+    private static final int FAILURE_THRESHOLD = 5;
+
+    private static final Duration OPEN_DURATION = Duration.ofSeconds(30);
+
+    /**
+     * Thrown instead of making a call while the breaker is open.
+     */
+    public static class OpenException extends RuntimeException {
+        public OpenException(String message) {
+            super(message);
+        }
+    }
+
+    private enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final String name;
+
+    private State state = State.CLOSED;
+
+    private int failures;
+
+    private long openedAt;
+
+    public CircuitBreaker(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @throws OpenException if calls are not currently allowed
+     */
+    public synchronized void before() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < OPEN_DURATION.toNanos()) {
+                throw new OpenException("Circuit breaker for " + name + " is open");
+            }
+            state = State.HALF_OPEN;
+        } else if (state == State.HALF_OPEN) {
+            // Only the single trial call is allowed through until it completes.
+            throw new OpenException("Circuit breaker for " + name + " is half open");
+        }
+    }
+
+    public synchronized void success() {
+        state = State.CLOSED;
+        failures = 0;
+    }
+
+    public synchronized void failure() {
+        failures++;
+        if (state == State.HALF_OPEN || failures >= FAILURE_THRESHOLD) {
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+        }
+    }
+
+    /**
+     * Records a call that failed for a reason that says nothing about the health of the backend.
+     */
+    public synchronized void ignore() {
+        if (state == State.HALF_OPEN) {
+            state = State.CLOSED;
+            failures = 0;
+        }
+    }
+
+    public synchronized boolean isOpen() {
+        return state != State.CLOSED;
+    }
+}
@@ -0,0 +1,124 @@
+package org.jboss.pnc.rpm.importer.backend;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Shares one in-flight call between concurrent callers asking for the same key, e.g. the many batch entries
+ * that look up the same Brew tag at once. Only calls that overlap are shared; nothing is cached once a call
+ * completes, so a later lookup always sees fresh data. A failure is passed to every caller that shared the
+ * call.
+ *
+ * @param <K> the key type, which must implement equals and hashCode
+ * @param <V> the result type
+ */
+public class Coalescer<K, V> {
+    private static final Logger log = LoggerFactory.getLogger(Coalescer.class);
+
+    private static final List<Coalescer<?, ?>> ALL = new CopyOnWriteArrayList<>();
+
+    private final String name;
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong calls = new AtomicLong();
+
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * @param name the name of the lookup, for logging
+     */
+    public Coalescer(String name) {
+        this.name = name;
+        ALL.add(this);
+    }
+
+    /**
+     * Makes the call, unless an identical call is already in flight in which case its result is waited for.
+     *
+     * @param key identifies the call
+     * @param call the call
+     * @return the result of the call
+     */
+    public <E extends Exception> V get(K key, Backends.Call<V, E> call) throws E {
+        calls.incrementAndGet();
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            log.debug("Joining in-flight {} of {}", name, key);
+            return await(existing);
+        }
+        try {
+            V result = call.call();
+            future.complete(result);
+            return result;
+        } catch (Exception | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <E extends Exception> V await(CompletableFuture<V> future) throws E {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            } else if (cause instanceof Error error) {
+                throw error;
+            }
+            // Only the E thrown by the leader's call can reach here
+            throw (E) cause;
+        }
+    }
+
+    /**
+     * @return the number of calls, including those that were coalesced
+     */
+    public long calls() {
+        return calls.get();
+    }
+
+    /**
+     * @return the number of calls that shared another's result
+     */
+    public long coalesced() {
+        return coalesced.get();
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    /**
+     * Logs the calls and coalesced calls of every lookup that has been used.
+     */
+    public static void log() {
+        for (Coalescer<?, ?> coalescer : ALL) {
+            if (coalescer.calls() > 0) {
+                log.info(
+                        "{}: {} lookups, {} coalesced with an identical lookup in flight",
+                        coalescer.name,
+                        coalescer.calls(),
+                        coalescer.coalesced());
+            }
+        }
+    }
+}
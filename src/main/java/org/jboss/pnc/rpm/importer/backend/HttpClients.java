@@ -0,0 +1,133 @@
+package org.jboss.pnc.rpm.importer.backend;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+
+import javax.net.ssl.SSLSession;
+
+import org.eclipse.microprofile.config.ConfigProvider;
+
+/**
+ * The single {@link HttpClient} used for plain HTTP requests (the orch and reqour REST clients are
+ * configured separately through {@code quarkus.rest-client} in {@code application.yaml}, whose
+ * timeouts are also used here).
+ * <p>
+ * Sharing one client means connections are pooled and kept alive per host, HTTP/2 is negotiated where the
+ * server supports it (so concurrent requests are multiplexed over one connection) and TLS sessions are
+ * resumed rather than renegotiated for every request. Responses are requested gzip compressed.
+ */
+public class HttpClients {
+
+    private static final Duration CONNECT_TIMEOUT = timeout("quarkus.rest-client.connect-timeout", 15_000);
+
+    private static final Duration REQUEST_TIMEOUT = timeout("quarkus.rest-client.read-timeout", 30_000);
+
+    private static final HttpClient CLIENT = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .connectTimeout(CONNECT_TIMEOUT)
+            .build();
+
+    /**
+     * @return the shared client
+     */
+    public static HttpClient client() {
+        return CLIENT;
+    }
+
+    /**
+     * Performs a GET, decompressing the response if the server compressed it.
+     *
+     * @param uri the URI
+     * @return the response, with the body decoded as UTF-8
+     */
+    public static HttpResponse<String> get(URI uri) throws IOException, InterruptedException {
+        return send(HttpRequest.newBuilder().uri(uri).GET());
+    }
+
+    /**
+     * Sends a request, applying the request timeout and decompressing the response if the server
+     * compressed it.
+     *
+     * @param request the request, with its URI, method and any headers set
+     * @return the response, with the body decoded as UTF-8
+     * @throws IOException if the request failed, or the body was truncated or could not be decompressed
+     */
+    public static HttpResponse<String> send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        request.timeout(REQUEST_TIMEOUT).header("Accept-Encoding", "gzip");
+        // The body is read in full by the client and decompressed here, on the calling thread, rather than in a
+        // blocking body subscriber that would hold up the client's executor
+        HttpResponse<byte[]> response = CLIENT.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+        boolean gzip = response.headers()
+                .firstValue("Content-Encoding")
+                .filter("gzip"::equalsIgnoreCase)
+                .isPresent();
+        byte[] body = response.body();
+        if (gzip && body.length > 0) {
+            try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+                body = in.readAllBytes();
+            }
+        }
+        return new Decoded(response, new String(body, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * A response with its body decoded.
+     */
+    private record Decoded(HttpResponse<byte[]> response, String body) implements HttpResponse<String> {
+
+        @Override
+        public int statusCode() {
+            return response.statusCode();
+        }
+
+        @Override
+        public HttpRequest request() {
+            return response.request();
+        }
+
+        @Override
+        public Optional<HttpResponse<String>> previousResponse() {
+            return Optional.empty();
+        }
+
+        @Override
+        public HttpHeaders headers() {
+            return response.headers();
+        }
+
+        @Override
+        public Optional<SSLSession> sslSession() {
+            return response.sslSession();
+        }
+
+        @Override
+        public URI uri() {
+            return response.uri();
+        }
+
+        @Override
+        public HttpClient.Version version() {
+            return response.version();
+        }
+    }
+
+    private static Duration timeout(String property, long defaultMillis) {
+        long millis = defaultMillis;
+        try {
+            millis = ConfigProvider.getConfig().getOptionalValue(property, Long.class).orElse(defaultMillis);
+        } catch (IllegalStateException e) {
+            // No config available (e.g. plain unit tests); use the default.
+        }
+        return Duration.ofMillis(millis);
+    }
+}
@@ -0,0 +1,15 @@
+package org.jboss.pnc.rpm.importer.backend;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a REST client method that is not a GET but is nevertheless safe to retry and hedge (e.g. a POST
+ * that only computes a result).
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Idempotent {
+}
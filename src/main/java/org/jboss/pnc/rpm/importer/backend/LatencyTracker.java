@@ -0,0 +1,44 @@
+package org.jboss.pnc.rpm.importer.backend;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the latencies of the most recent successful calls to a backend so a percentile can be computed to
+ * decide when to hedge.
+ */
+public class LatencyTracker {
+
+    private static final int MIN_SAMPLES = 20;
+
+    private final long[] samples;
+
+    private int count;
+
+    private int next;
+
+    /**
+     * @param size the number of recent samples kept
+     */
+    public LatencyTracker(int size) {
+        this.samples = new long[size];
+    }
+
+    public synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        count = Math.min(count + 1, samples.length);
+    }
+
+    /**
+     * @param percentile the percentile, between 0 and 100
+     * @return the latency in nanoseconds, or -1 if there are too few samples for it to be meaningful
+     */
+    public synchronized long percentile(double percentile) {
+        if (count < MIN_SAMPLES) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        return sorted[Math.min(count - 1, (int) Math.ceil(percentile / 100 * count) - 1)];
+    }
+}
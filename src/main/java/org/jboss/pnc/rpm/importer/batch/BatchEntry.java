@@ -0,0 +1,46 @@
+package org.jboss.pnc.rpm.importer.batch;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A single repository branch to import as part of a batch.
+ *
+ * @param url the external URL of the repository
+ * @param branch the branch
+ */
+public record BatchEntry(String url, String branch) {
+
+    /**
+     * Parses a batch file. Each non-empty line that does not start with {@code #} has the format
+     *
+     * <pre>
+     * {@code <url> <branch> [branch...]}
+     * </pre>
+     *
+     * @param file the file to read
+     * @return an entry for each branch, in file order
+     */
+    public static List<BatchEntry> parse(Path file) throws IOException {
+        try (var lines = Files.lines(file)) {
+            return lines.map(String::trim)
+                    .filter(l -> !l.isEmpty() && !l.startsWith("#"))
+                    .map(l -> l.split("\\s+"))
+                    .peek(f -> {
+                        if (f.length < 2) {
+                            throw new IllegalArgumentException("No branch specified for " + f[0] + " in " + file);
+                        }
+                    })
+                    .flatMap(f -> Arrays.stream(f, 1, f.length).map(b -> new BatchEntry(f[0], b)))
+                    .toList();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return url + " " + branch;
+    }
+}
@@ -0,0 +1,102 @@
+package org.jboss.pnc.rpm.importer.batch;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import org.jboss.pnc.rpm.importer.backend.Backends;
+import org.jboss.pnc.rpm.importer.utils.GitStorage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collects the results of a batch run. Results may be added concurrently.
+ */
+public class BatchReport {
+    private static final Logger log = LoggerFactory.getLogger(BatchReport.class);
+
+    private final List<BatchResult> results = new ArrayList<>();
+
+    private final Map<BatchEntry, Instant> started = new HashMap<>();
+
+    private final Map<BatchEntry, Instant> finished = new HashMap<>();
+
+    private final Map<BatchEntry, Duration> estimates = new HashMap<>();
+
+    /**
+     * Records that the import of an entry has started, for reporting the stragglers.
+     *
+     * @param entry the entry
+     * @param estimate how long the import was expected to take, or null if unknown
+     */
+    public synchronized void started(BatchEntry entry, Duration estimate) {
+        started.put(entry, Instant.now());
+        if (estimate != null) {
+            estimates.put(entry, estimate);
+        }
+    }
+
+    public synchronized void add(BatchResult result) {
+        results.add(result);
+        finished.put(result.entry(), Instant.now());
+    }
+
+    public synchronized List<BatchResult> results() {
+        return List.copyOf(results);
+    }
+
+    /**
+     * Logs a summary of the run followed by any failures and the concurrency limits each backend settled on.
+     */
+    public synchronized void log() {
+        Map<BatchResult.Status, Long> counts = results.stream()
+                .collect(Collectors.groupingBy(BatchResult::status, TreeMap::new, Collectors.counting()));
+        log.info("Batch of {} entries completed: {}", results.size(), counts);
+        results.stream()
+                .sorted(Comparator.comparing(BatchResult::duration).reversed())
+                .forEach(r -> log.info("{} {} ({} ms)", r.status(), r.entry(), r.duration().toMillis()));
+        results.stream()
+                .filter(r -> r.status() == BatchResult.Status.FAILED)
+                .forEach(r -> log.error("Failed {}: {}", r.entry(), r.message()));
+        logStragglers();
+        Backends.log();
+        GitStorage.log();
+    }
+
+    /**
+     * Logs the entries still running once the last entry had started, i.e. while some threads were idle.
+     */
+    public synchronized void logStragglers() {
+        Instant lastStart = started.values().stream().max(Comparator.naturalOrder()).orElse(null);
+        if (lastStart == null) {
+            return;
+        }
+        List<Map.Entry<BatchEntry, Instant>> stragglers = finished.entrySet()
+                .stream()
+                .filter(e -> e.getValue().isAfter(lastStart))
+                .sorted(Map.Entry.<BatchEntry, Instant> comparingByValue().reversed())
+                .toList();
+        if (stragglers.isEmpty()) {
+            return;
+        }
+        log.info(
+                "{} entries were still running after the last entry started, for a further {} ms:",
+                stragglers.size(),
+                Duration.between(lastStart, stragglers.get(0).getValue()).toMillis());
+        for (Map.Entry<BatchEntry, Instant> straggler : stragglers) {
+            Duration estimate = estimates.get(straggler.getKey());
+            log.info(
+                    "  {} finished after {} ms (estimated {})",
+                    straggler.getKey(),
+                    Duration.between(started.getOrDefault(straggler.getKey(), lastStart), straggler.getValue())
+                            .toMillis(),
+                    estimate == null ? "unknown" : estimate.toMillis() + " ms");
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package org.jboss.pnc.rpm.importer.batch;
+
+import java.time.Duration;
+
+/**
+ * The outcome of importing a single batch entry.
+ *
+ * @param entry the entry
+ * @param status the final status
+ * @param duration the wall clock time of the import (excluding any time queued for, or spent, pushing)
+ * @param message an error message if the entry failed
+ */
+public record BatchResult(BatchEntry entry, Status status, Duration duration, String message) {
+
+    public enum Status {
+        /** The pom was unchanged so nothing was committed. */
+        UNCHANGED,
+        /** The pom was committed but not pushed. */
+        COMMITTED,
+        /** The pom was committed and pushed. */
+        PUSHED,
+        /** The entry was completed by a previous, resumed, run. */
+        SKIPPED,
+        /** The import or push failed. */
+        FAILED
+    }
+}
@@ -0,0 +1,251 @@
+package org.jboss.pnc.rpm.importer.batch;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.jboss.pnc.rpm.importer.checkout.Checkout;
+import org.jboss.pnc.rpm.importer.logging.ImportContext;
+import org.jboss.pnc.rpm.importer.workspace.WorkspaceManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the import of every batch entry on a fixed size pool. Once an entry has been committed the push
+ * (if enabled) is handed over to the {@link PushStage} so the import thread can move onto the next entry.
+ * <p>
+ * If a {@link Journal} is supplied, entries it records as completed are skipped and the final outcome of
+ * each entry is recorded in it.
+ * <p>
+ * If a {@link CostModel} is supplied the entries expected to take longest are started first, so that the
+ * pool is kept busy until the end rather than finishing with a single long import.
+ * <p>
+ * The entries may instead be taken from a {@link WorkQueue} shared with workers on other hosts.
+ */
+public class BatchRunner {
+    private static final Logger log = LoggerFactory.getLogger(BatchRunner.class);
+
+    /**
+     * Imports a single entry.
+     */
+    @FunctionalInterface
+    public interface ImportTask {
+        /**
+         * @param entry the entry to import
+         * @return the checkout if a commit was made, or null if nothing changed
+         */
+        Checkout run(BatchEntry entry) throws Exception;
+    }
+
+    private final int threads;
+
+    private final PushStage pushStage;
+
+    private final Journal journal;
+
+    private final WorkspaceManager workspaces;
+
+    private final CostModel costs;
+
+    /**
+     * @param threads the number of concurrent imports
+     * @param pushStage the push stage, or null if changes should not be pushed
+     */
+    public BatchRunner(int threads, PushStage pushStage) {
+        this(threads, pushStage, null);
+    }
+
+    /**
+     * @param threads the number of concurrent imports
+     * @param pushStage the push stage, or null if changes should not be pushed
+     * @param journal the journal, or null if progress should not be recorded
+     */
+    public BatchRunner(int threads, PushStage pushStage, Journal journal) {
+        this(threads, pushStage, journal, null);
+    }
+
+    /**
+     * @param threads the number of concurrent imports
+     * @param pushStage the push stage, or null if changes should not be pushed
+     * @param journal the journal, or null if progress should not be recorded
+     * @param workspaces the owner of the clones, which are deleted once pushed; may be null
+     */
+    public BatchRunner(int threads, PushStage pushStage, Journal journal, WorkspaceManager workspaces) {
+        this(threads, pushStage, journal, workspaces, null);
+    }
+
+    /**
+     * @param threads the number of concurrent imports
+     * @param pushStage the push stage, or null if changes should not be pushed
+     * @param journal the journal, or null if progress should not be recorded
+     * @param workspaces the owner of the clones, which are deleted once pushed; may be null
+     * @param costs the estimates of the import times used to order the entries, or null to keep the given order
+     */
+    public BatchRunner(
+            int threads,
+            PushStage pushStage,
+            Journal journal,
+            WorkspaceManager workspaces,
+            CostModel costs) {
+        this.threads = threads;
+        this.pushStage = pushStage;
+        this.journal = journal;
+        this.workspaces = workspaces;
+        this.costs = costs;
+    }
+
+    public BatchReport run(List<BatchEntry> entries, ImportTask task) {
+        BatchReport report = new BatchReport();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        Map<BatchEntry, Duration> estimates = costs == null ? Map.of() : costs.estimate(entries);
+        if (costs != null) {
+            // The pool takes work in submission order, so this is longest processing time first scheduling.
+            entries = CostModel.longestFirst(entries, estimates);
+            long total = estimates.values().stream().mapToLong(Duration::toMillis).sum();
+            log.info(
+                    "Estimated {} s of imports ({} s per thread); starting the longest first",
+                    total / 1000,
+                    total / 1000 / threads);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (BatchEntry entry : entries) {
+                BatchResult skipped = skipped(entry);
+                if (skipped != null) {
+                    report.add(skipped);
+                    continue;
+                }
+                Duration estimate = estimates.get(entry);
+                futures.add(
+                        CompletableFuture.supplyAsync(() -> importEntry(entry, task, report, estimate), executor)
+                                .thenCompose(this::complete)
+                                .thenAccept(report::add));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        } finally {
+            executor.shutdown();
+        }
+        return report;
+    }
+
+    /**
+     * Imports the entries of a shared queue until it is drained, alongside any other workers. Each thread
+     * leases an entry, imports it and records the result in the queue before leasing the next.
+     *
+     * @return the results of the entries imported by this worker
+     */
+    public BatchReport run(WorkQueue queue, ImportTask task) {
+        BatchReport report = new BatchReport();
+        List<CompletableFuture<Void>> futures = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<CompletableFuture<Void>> workers = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                workers.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        BatchEntry entry;
+                        while ((entry = queue.claim()) != null) {
+                            BatchResult skipped = skipped(entry);
+                            CompletableFuture<BatchResult> result = skipped == null
+                                    ? complete(importEntry(entry, task, report, null))
+                                    : CompletableFuture.completedFuture(skipped);
+                            futures.add(result.thenAccept(r -> {
+                                report.add(r);
+                                queue.complete(r);
+                            }));
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RuntimeException(e);
+                    }
+                }, executor));
+            }
+            CompletableFuture.allOf(workers.toArray(new CompletableFuture[0])).join();
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        } finally {
+            executor.shutdown();
+        }
+        return report;
+    }
+
+    /**
+     * @return the result of an entry the journal records as completed by a previous run, or null
+     */
+    private BatchResult skipped(BatchEntry entry) {
+        Journal.Progress progress = journal == null ? null : journal.progress(entry);
+        if (progress != null && progress.completed(pushStage != null)) {
+            log.debug("Skipping {} as it was completed ({}) by a previous run", entry, progress.stage());
+            return new BatchResult(entry, BatchResult.Status.SKIPPED, Duration.ZERO, null);
+        }
+        return null;
+    }
+
+    private Imported importEntry(BatchEntry entry, ImportTask task, BatchReport report, Duration estimate) {
+        report.started(entry, estimate);
+        long start = System.nanoTime();
+        try (ImportContext ignored = ImportContext.open(entry.url(), entry.branch())) {
+            try {
+                Checkout checkout = task.run(entry);
+                return new Imported(entry, checkout, Duration.ofNanos(System.nanoTime() - start), null);
+            } catch (Exception e) {
+                log.error("Import of {} failed", entry, e);
+                return new Imported(entry, null, Duration.ofNanos(System.nanoTime() - start), e);
+            }
+        }
+    }
+
+    private CompletableFuture<BatchResult> complete(Imported imported) {
+        if (imported.failure != null) {
+            return CompletableFuture.completedFuture(
+                    new BatchResult(
+                            imported.entry,
+                            BatchResult.Status.FAILED,
+                            imported.duration,
+                            imported.failure.getMessage()));
+        } else if (imported.checkout == null) {
+            record(imported.entry, Stage.UNCHANGED, null);
+            return CompletableFuture.completedFuture(
+                    new BatchResult(imported.entry, BatchResult.Status.UNCHANGED, imported.duration, null));
+        } else if (pushStage == null) {
+            return CompletableFuture.completedFuture(
+                    new BatchResult(imported.entry, BatchResult.Status.COMMITTED, imported.duration, null));
+        }
+        // This blocks the import thread if the push queue is full.
+        return pushStage.submit(imported.entry, imported.checkout).handle((v, e) -> {
+            if (e != null) {
+                log.error("Push of {} failed", imported.entry, e);
+                if (workspaces != null) {
+                    workspaces.retain(imported.directory(), "push failed");
+                }
+                return new BatchResult(imported.entry, BatchResult.Status.FAILED, imported.duration, e.getMessage());
+            }
+            record(imported.entry, Stage.PUSHED, imported.directory());
+            if (workspaces != null) {
+                workspaces.release(imported.directory());
+            }
+            return new BatchResult(imported.entry, BatchResult.Status.PUSHED, imported.duration, null);
+        });
+    }
+
+    private void record(BatchEntry entry, Stage stage, Path repository) {
+        if (journal != null) {
+            journal.record(entry, stage, repository);
+        }
+    }
+
+    private record Imported(BatchEntry entry, Checkout checkout, Duration duration, Exception failure) {
+        Path directory() {
+            return checkout.directory().orElse(null);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package org.jboss.pnc.rpm.importer.batch;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Estimates how long each batch entry will take to import so that the longest can be started first, which keeps
+ * a large repository from running alone at the end of a batch. The estimates come from a persistent history of
+ * previous imports:
+ * <ol>
+ * <li>the entry's own previous import time</li>
+ * <li>the number of artifacts its wrapped build produced (as counted while paging through them) multiplied by the
+ * typical time per artifact, if it has never completed</li>
+ * <li>the average time of the other branches of the repository</li>
+ * <li>the median time of every entry</li>
+ * </ol>
+ * The history file has a {@code <url> <branch>=<millis> <artifacts>} property per entry, with {@code -1} for
+ * unknown values. Times are smoothed across runs so a single slow import does not dominate.
+ */
+public class CostModel {
+    private static final Logger log = LoggerFactory.getLogger(CostModel.class);
+
+    /**
+     * The weight of the latest import time against the history.
+     */
+    private static final double SMOOTHING = 0.5;
+
+    private static final long UNKNOWN = -1;
+
+    private record Cost(long millis, long artifacts) {
+    }
+
+    private final Path file;
+
+    private final Map<BatchEntry, Cost> costs = new ConcurrentHashMap<>();
+
+    /**
+     * @param file the file to keep the history in, may be null to start from nothing and not persist it
+     */
+    public CostModel(Path file) {
+        this.file = file;
+        load();
+    }
+
+    /**
+     * Estimates the import time of each entry. Entries nothing is known about get the median of the known ones,
+     * or zero if there is no history at all.
+     */
+    public Map<BatchEntry, Duration> estimate(List<BatchEntry> entries) {
+        List<Long> known = new ArrayList<>();
+        Map<String, List<Long>> byUrl = new HashMap<>();
+        double perArtifact = 0;
+        long artifacts = 0;
+        for (Map.Entry<BatchEntry, Cost> e : costs.entrySet()) {
+            Cost cost = e.getValue();
+            if (cost.millis() >= 0) {
+                known.add(cost.millis());
+                byUrl.computeIfAbsent(e.getKey().url(), k -> new ArrayList<>()).add(cost.millis());
+                if (cost.artifacts() > 0) {
+                    perArtifact += cost.millis();
+                    artifacts += cost.artifacts();
+                }
+            }
+        }
+        perArtifact = artifacts == 0 ? 0 : perArtifact / artifacts;
+        known.sort(Comparator.naturalOrder());
+        long median = known.isEmpty() ? 0 : known.get(known.size() / 2);
+
+        Map<BatchEntry, Duration> result = new HashMap<>();
+        for (BatchEntry entry : entries) {
+            Cost cost = costs.get(entry);
+            long millis;
+            if (cost != null && cost.millis() >= 0) {
+                millis = cost.millis();
+            } else if (cost != null && cost.artifacts() > 0 && perArtifact > 0) {
+                millis = Math.round(cost.artifacts() * perArtifact);
+            } else if (byUrl.containsKey(entry.url())) {
+                millis = Math.round(byUrl.get(entry.url()).stream().mapToLong(Long::longValue).average().orElse(0));
+            } else {
+                millis = median;
+            }
+            result.put(entry, Duration.ofMillis(millis));
+        }
+        return result;
+    }
+
+    /**
+     * Orders the entries longest first (keeping the given order between entries of equal estimate).
+     */
+    public static List<BatchEntry> longestFirst(List<BatchEntry> entries, Map<BatchEntry, Duration> estimates) {
+        return entries.stream()
+                .sorted(Comparator.comparing((BatchEntry e) -> estimates.getOrDefault(e, Duration.ZERO)).reversed())
+                .toList();
+    }
+
+    /**
+     * Records the number of artifacts built by the build an entry wraps.
+     */
+    public void recordArtifacts(BatchEntry entry, long artifacts) {
+        costs.merge(entry, new Cost(UNKNOWN, artifacts), (old, cost) -> new Cost(old.millis(), artifacts));
+    }
+
+    /**
+     * Records the import times of the entries that completed and writes the history.
+     */
+    public void record(BatchReport report) {
+        for (BatchResult result : report.results()) {
+            if (result.status() == BatchResult.Status.FAILED || result.status() == BatchResult.Status.SKIPPED) {
+                continue;
+            }
+            long millis = result.duration().toMillis();
+            costs.merge(
+                    result.entry(),
+                    new Cost(millis, UNKNOWN),
+                    (old, cost) -> new Cost(
+                            old.millis() < 0 ? millis : Math.round(SMOOTHING * millis + (1 - SMOOTHING) * old.millis()),
+                            old.artifacts()));
+        }
+        save();
+    }
+
+    private void load() {
+        if (file == null || !Files.exists(file)) {
+            return;
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file)) {
+            properties.load(reader);
+        } catch (IOException e) {
+            log.warn("Unable to read import history {}; ignoring it", file, e);
+            return;
+        }
+        properties.forEach((k, v) -> {
+            String[] key = k.toString().split(" ", 2);
+            String[] value = v.toString().split(" ");
+            try {
+                costs.put(
+                        new BatchEntry(key[0], key[1]),
+                        new Cost(Long.parseLong(value[0]), Long.parseLong(value[1])));
+            } catch (RuntimeException e) {
+                log.warn("Ignoring invalid import history entry {}={}", k, v);
+            }
+        });
+        log.debug("Loaded the import history of {} entries from {}", costs.size(), file);
+    }
+
+    private synchronized void save() {
+        if (file == null) {
+            return;
+        }
+        Properties properties = new Properties();
+        costs.forEach((entry, cost) -> properties.put(entry.toString(), cost.millis() + " " + cost.artifacts()));
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            // Write to a temporary file and move so a concurrent reader never sees a partial history.
+            Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), "costs", ".tmp");
+            try (Writer writer = Files.newBufferedWriter(temp)) {
+                properties.store(writer, "rpm-importer import times (millis) and wrapped build artifact counts");
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // The history is only used for scheduling so failing to write it is not fatal.
+            log.warn("Unable to write import history {}", file, e);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package org.jboss.pnc.rpm.importer.batch;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An append-only log of the {@link Stage}s reached by each batch entry. Each line has the format
+ *
+ * <pre>
+ * {@code <stage>\t<url>\t<branch>\t[repository]}
+ * </pre>
+ * <p>
+ * Rather than forcing every record to disk (which would serialise the import threads on the fsync) the
+ * file is synced at most every {@link #SYNC_INTERVAL_MS} ms and on close. A crash may therefore lose the
+ * last few records, which only means those stages are repeated on resume.
+ */
+public class Journal implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(Journal.class);
+
+    private static final long SYNC_INTERVAL_MS = 250;
+
+    /**
+     * The last stage recorded for an entry.
+     *
+     * @param stage the stage
+     * @param repository the clone of the repository, if it has been cloned
+     */
+    public record Progress(Stage stage, Path repository) {
+
+        /**
+         * @return true if the entry has reached at least the given stage
+         */
+        public boolean reached(Stage other) {
+            return stage.compareTo(other) >= 0;
+        }
+
+        /**
+         * @param push whether the batch pushes changes
+         * @return true if there is nothing left to do for the entry
+         */
+        public boolean completed(boolean push) {
+            return stage == Stage.PUSHED || stage == Stage.UNCHANGED || (!push && stage == Stage.COMMITTED);
+        }
+    }
+
+    private final Path file;
+
+    private final FileChannel channel;
+
+    private final Map<BatchEntry, Progress> progress = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "journal-sync");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private boolean dirty;
+
+    private Journal(Path file, FileChannel channel) {
+        this.file = file;
+        this.channel = channel;
+        syncer.scheduleWithFixedDelay(this::sync, SYNC_INTERVAL_MS, SYNC_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Opens the journal.
+     *
+     * @param file the journal file
+     * @param resume if true the existing records are read so the run may continue from them; otherwise any
+     *        existing journal is discarded
+     */
+    public static Journal open(Path file, boolean resume) throws IOException {
+        Map<BatchEntry, Progress> existing = new ConcurrentHashMap<>();
+        if (resume && Files.exists(file)) {
+            String content = Files.readString(file);
+            // Drop a torn final record from a crash so that new records start on their own line.
+            if (!content.isEmpty() && !content.endsWith("\n")) {
+                content = content.substring(0, content.lastIndexOf('\n') + 1);
+                Files.writeString(file, content);
+            }
+            for (String line : content.lines().toList()) {
+                String[] fields = line.split("\t", -1);
+                if (fields.length != 4) {
+                    log.warn("Ignoring invalid journal record '{}'", line);
+                    continue;
+                }
+                try {
+                    existing.put(
+                            new BatchEntry(fields[1], fields[2]),
+                            new Progress(Stage.valueOf(fields[0]), fields[3].isEmpty() ? null : Path.of(fields[3])));
+                } catch (IllegalArgumentException e) {
+                    log.warn("Ignoring invalid journal record '{}'", line);
+                }
+            }
+            log.info("Resuming from {} journaled entries in {}", existing.size(), file);
+        } else {
+            Files.deleteIfExists(file);
+        }
+        Journal journal = new Journal(
+                file,
+                FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND));
+        journal.progress.putAll(existing);
+        return journal;
+    }
+
+    /**
+     * @param entry the entry
+     * @return the last recorded progress of the entry, or null if nothing has been recorded
+     */
+    public Progress progress(BatchEntry entry) {
+        return progress.get(entry);
+    }
+
+    /**
+     * Records that an entry has reached a stage.
+     *
+     * @param entry the entry
+     * @param stage the stage
+     * @param repository the clone of the repository, or null if not yet cloned
+     */
+    public void record(BatchEntry entry, Stage stage, Path repository) {
+        String line = stage + "\t" + entry.url() + "\t" + entry.branch() + "\t"
+                + (repository == null ? "" : repository.toAbsolutePath()) + "\n";
+        synchronized (this) {
+            try {
+                channel.write(ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8)));
+            } catch (IOException e) {
+                throw new RuntimeException("Unable to write to journal " + file, e);
+            }
+            dirty = true;
+        }
+        progress.put(entry, new Progress(stage, repository));
+    }
+
+    private void sync() {
+        synchronized (this) {
+            if (!dirty) {
+                return;
+            }
+            dirty = false;
+        }
+        try {
+            // force may run concurrently with writes; anything written afterwards marks the journal dirty again.
+            channel.force(false);
+        } catch (IOException e) {
+            log.error("Unable to sync journal {}", file, e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        syncer.shutdown();
+        try {
+            syncer.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.force(false);
+        channel.close();
+    }
+}
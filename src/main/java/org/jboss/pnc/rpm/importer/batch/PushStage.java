@@ -0,0 +1,103 @@
+package org.jboss.pnc.rpm.importer.batch;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jgit.api.errors.TransportException;
+import org.jboss.pnc.rpm.importer.checkout.Checkout;
+import org.jboss.pnc.rpm.importer.logging.ImportContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pushes committed repositories on a dedicated worker pool so that a slow push does not hold up POM
+ * generation for other entries. The queue in front of the pool is bounded; once it is full
+ * {@link #submit} blocks, which applies backpressure to the generating threads rather than letting
+ * committed but unpushed repositories pile up.
+ * <p>
+ * Pushes that fail with a transport error are retried with exponential backoff and jitter.
+ */
+public class PushStage implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(PushStage.class);
+
+    private static final int ATTEMPTS = 4;
+
+    private static final Duration INITIAL_BACKOFF = Duration.ofSeconds(2);
+
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * @param threads the number of concurrent pushes
+     * @param capacity the number of pushes that may be queued before {@link #submit} blocks
+     */
+    public PushStage(int threads, int capacity) {
+        this.executor = new ThreadPoolExecutor(
+                threads,
+                threads,
+                0,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacity),
+                (r, e) -> {
+                    try {
+                        e.getQueue().put(r);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        throw new RejectedExecutionException(ex);
+                    }
+                });
+    }
+
+    /**
+     * Queues a push, blocking if the queue is full.
+     *
+     * @param entry the batch entry, for logging
+     * @param checkout the checkout to push
+     * @return a future that completes once the push has succeeded or finally failed
+     */
+    public CompletableFuture<Void> submit(BatchEntry entry, Checkout checkout) {
+        return CompletableFuture.runAsync(() -> push(entry, checkout), executor);
+    }
+
+    private void push(BatchEntry entry, Checkout checkout) {
+        Duration backoff = INITIAL_BACKOFF;
+        for (int attempt = 1;; attempt++) {
+            try (ImportContext ignored = ImportContext.open(entry.url(), entry.branch())) {
+                ImportContext.reached(Stage.COMMITTED);
+                checkout.push();
+                return;
+            } catch (TransportException e) {
+                if (attempt == ATTEMPTS) {
+                    throw new RuntimeException("Push of " + entry + " failed after " + attempt + " attempts", e);
+                }
+                long sleep = backoff.toMillis() + ThreadLocalRandom.current().nextLong(backoff.toMillis());
+                log.warn("Push of {} failed (attempt {}); retrying in {} ms: {}", entry, attempt, sleep, e.getMessage());
+                try {
+                    Thread.sleep(sleep);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(ex);
+                }
+                backoff = backoff.multipliedBy(2);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(1, TimeUnit.HOURS)) {
+                log.error("Timed out waiting for pushes to complete");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package org.jboss.pnc.rpm.importer.batch;
+
+/**
+ * The stages an entry passes through during a batch import, in order. These are recorded in the
+ * {@link Journal} so that a resumed run can continue from the last completed stage.
+ */
+public enum Stage {
+    /** The external URL was translated to the internal one. */
+    TRANSLATED,
+    /** The internal repository exists (whether or not it had to be created). */
+    SYNCED,
+    /** The internal repository was cloned. */
+    CLONED,
+    /** The Brew and PNC information for the wrapped build was retrieved. */
+    RESOLVED,
+    /** The pom was written. */
+    GENERATED,
+    /** The pom was committed. */
+    COMMITTED,
+    /** The pom was unchanged so there was nothing to commit. */
+    UNCHANGED,
+    /** The commit was pushed. */
+    PUSHED
+}
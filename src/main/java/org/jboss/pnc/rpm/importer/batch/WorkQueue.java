@@ -0,0 +1,398 @@
+package org.jboss.pnc.rpm.importer.batch;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.jboss.pnc.rpm.importer.logging.ImportContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A queue of batch entries in a directory shared by several workers (e.g. on NFS), so that a batch may be
+ * imported by many hosts without any other service. The directory has three subdirectories:
+ * <ul>
+ * <li>{@code pending} - an {@code <priority>-<id>.entry} file per entry waiting to be imported, where the
+ * priority sorts the entries expected to take longest first</li>
+ * <li>{@code leases} - the entries being imported; a worker leases an entry by atomically renaming its file
+ * from {@code pending}, so only one worker can succeed</li>
+ * <li>{@code done} - an {@code <id>.result} file per completed entry, from which the {@link #report} of the
+ * whole batch is built</li>
+ * </ul>
+ * Each line has tab separated fields; entries {@code <url> <branch> [worker]} and results
+ * {@code <status> <millis> <worker> <url> <branch> [message]}.
+ * <p>
+ * A worker touches the leases it holds every quarter of the lease timeout. A lease that has not been touched
+ * within the timeout (because its worker died) is returned to {@code pending} by whichever worker notices
+ * first. An entry is therefore imported at least once; if a worker stalls for longer than the timeout its
+ * entry may be imported twice, which is harmless as the second import finds the pom unchanged or fails to
+ * push. The hosts' clocks are assumed to agree to well within the timeout.
+ */
+public class WorkQueue implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(WorkQueue.class);
+
+    public static final Duration DEFAULT_LEASE_TIMEOUT = Duration.ofMinutes(1);
+
+    private static final String ENTRY = ".entry";
+
+    private static final String RESULT = ".result";
+
+    private static final long MAX_PRIORITY = 999_999_999_999L;
+
+    private final Path pending;
+
+    private final Path leases;
+
+    private final Path done;
+
+    private final String worker;
+
+    private final Duration leaseTimeout;
+
+    /**
+     * How often leases are renewed and, while other workers hold every remaining entry, the queue is polled.
+     */
+    private final long interval;
+
+    /**
+     * The file names of the leases held by this worker by entry id.
+     */
+    private final Map<String, String> held = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "queue-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private WorkQueue(Path directory, String worker, Duration leaseTimeout) {
+        this.pending = directory.resolve("pending");
+        this.leases = directory.resolve("leases");
+        this.done = directory.resolve("done");
+        this.worker = worker;
+        if (leaseTimeout.toMillis() <= 0) {
+            throw new IllegalArgumentException("The lease timeout must be positive, not " + leaseTimeout);
+        }
+        this.leaseTimeout = leaseTimeout;
+        this.interval = Math.max(1, leaseTimeout.toMillis() / 4);
+        heartbeat.scheduleWithFixedDelay(this::heartbeat, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Opens (creating if needed) the queue.
+     *
+     * @param directory the shared directory
+     * @param worker the name of this worker, which must be unique amongst the workers
+     * @param leaseTimeout how long a lease may go untouched before its entry is given to another worker
+     * @throws IllegalArgumentException if the lease timeout is not positive
+     */
+    public static WorkQueue open(Path directory, String worker, Duration leaseTimeout) throws IOException {
+        WorkQueue queue = new WorkQueue(directory, worker, leaseTimeout);
+        Files.createDirectories(queue.pending);
+        Files.createDirectories(queue.leases);
+        Files.createDirectories(queue.done);
+        return queue;
+    }
+
+    /**
+     * @return a name for this worker made of the host name and process id
+     */
+    public static String defaultWorker() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (IOException e) {
+            host = "localhost";
+        }
+        return host + "-" + ManagementFactory.getRuntimeMXBean().getPid();
+    }
+
+    /**
+     * Adds entries to the queue in no particular order.
+     *
+     * @see #enqueue(List, Map, boolean)
+     */
+    public int enqueue(List<BatchEntry> entries, boolean resume) throws IOException {
+        return enqueue(entries, Map.of(), resume);
+    }
+
+    /**
+     * Adds entries to the queue. Entries already pending or leased are left alone.
+     *
+     * @param entries the entries to add
+     * @param estimates the expected import time of the entries; those expected to take longest are leased first
+     * @param resume if true entries that have already completed are not added again; otherwise their results
+     *        are discarded and they are imported again
+     * @return the number of entries added
+     */
+    public int enqueue(List<BatchEntry> entries, Map<BatchEntry, Duration> estimates, boolean resume)
+            throws IOException {
+        Set<String> queued = new HashSet<>();
+        for (Path file : list(pending, ENTRY)) {
+            queued.add(id(file));
+        }
+        for (Path file : list(leases, ENTRY)) {
+            queued.add(id(file));
+        }
+        int added = 0;
+        for (BatchEntry entry : entries) {
+            String id = id(entry);
+            Path result = done.resolve(id + RESULT);
+            if (resume && Files.exists(result)) {
+                continue;
+            }
+            Files.deleteIfExists(result);
+            if (!queued.add(id)) {
+                continue;
+            }
+            long millis = Math.min(estimates.getOrDefault(entry, Duration.ZERO).toMillis(), MAX_PRIORITY);
+            write(
+                    pending.resolve(String.format("%012d-%s%s", MAX_PRIORITY - millis, id, ENTRY)),
+                    entry.url() + "\t" + entry.branch() + "\n");
+            added++;
+        }
+        return added;
+    }
+
+    /**
+     * @return the entries waiting to be imported
+     */
+    public List<BatchEntry> pending() throws IOException {
+        List<BatchEntry> result = new ArrayList<>();
+        for (Path file : list(pending, ENTRY)) {
+            BatchEntry entry = readEntry(file);
+            if (entry != null) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Leases the next entry, waiting while other workers hold leases in case their entries are returned.
+     *
+     * @return the entry, or null once there are no entries pending or leased
+     */
+    public BatchEntry claim() throws IOException, InterruptedException {
+        while (true) {
+            reclaimExpired();
+            List<Path> waiting = list(pending, ENTRY);
+            for (Path file : waiting) {
+                BatchEntry entry = tryLease(file);
+                if (entry != null) {
+                    return entry;
+                }
+            }
+            if (waiting.isEmpty() && list(leases, ENTRY).isEmpty()) {
+                return null;
+            }
+            if (waiting.isEmpty()) {
+                Thread.sleep(interval);
+            }
+        }
+    }
+
+    /**
+     * Records the result of a leased entry and releases the lease.
+     */
+    public void complete(BatchResult result) {
+        String id = id(result.entry());
+        String message = result.message() == null ? "" : result.message().replaceAll("[\t\r\n]+", " ");
+        try {
+            write(
+                    done.resolve(id + RESULT),
+                    String.join(
+                            "\t",
+                            result.status().name(),
+                            String.valueOf(result.duration().toMillis()),
+                            worker,
+                            result.entry().url(),
+                            result.entry().branch(),
+                            message) + "\n");
+            String name = held.remove(id);
+            if (name == null) {
+                // The lease expired and may have been taken by another worker, in which case it is theirs.
+                return;
+            }
+            Path lease = leases.resolve(name);
+            List<String> fields = readFields(lease);
+            if (fields != null && fields.size() > 2 && fields.get(2).equals(worker)) {
+                Files.deleteIfExists(lease);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to record the result of " + result.entry(), e);
+        }
+    }
+
+    /**
+     * @return the results recorded by every worker
+     */
+    public BatchReport report() throws IOException {
+        BatchReport report = new BatchReport();
+        for (Path file : list(done, RESULT)) {
+            List<String> fields = readFields(file);
+            if (fields == null || fields.size() != 6) {
+                log.warn("Ignoring invalid result {}", file);
+                continue;
+            }
+            try {
+                report.add(
+                        new BatchResult(
+                                new BatchEntry(fields.get(3), fields.get(4)),
+                                BatchResult.Status.valueOf(fields.get(0)),
+                                Duration.ofMillis(Long.parseLong(fields.get(1))),
+                                fields.get(5).isEmpty() ? null : fields.get(5)));
+            } catch (IllegalArgumentException e) {
+                log.warn("Ignoring invalid result {}", file);
+            }
+        }
+        return report;
+    }
+
+    public String worker() {
+        return worker;
+    }
+
+    private BatchEntry tryLease(Path file) throws IOException {
+        String name = file.getFileName().toString();
+        Path lease = leases.resolve(name);
+        try {
+            // Touch before the move (which keeps the time) so the lease is never seen as expired.
+            Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+            Files.move(file, lease, StandardCopyOption.ATOMIC_MOVE);
+        } catch (NoSuchFileException | FileAlreadyExistsException e) {
+            // Leased by another worker
+            return null;
+        }
+        List<String> fields = readFields(lease);
+        if (fields == null || fields.size() < 2) {
+            log.warn("Discarding invalid queue entry {}", lease);
+            Files.deleteIfExists(lease);
+            return null;
+        }
+        held.put(id(file), name);
+        write(lease, fields.get(0) + "\t" + fields.get(1) + "\t" + worker + "\n");
+        BatchEntry entry = new BatchEntry(fields.get(0), fields.get(1));
+        log.debug("Leased {} as {}", entry, worker);
+        return entry;
+    }
+
+    private void reclaimExpired() throws IOException {
+        Instant expiry = Instant.now().minus(leaseTimeout);
+        for (Path lease : list(leases, ENTRY)) {
+            try {
+                if (Files.getLastModifiedTime(lease).toInstant().isBefore(expiry)) {
+                    List<String> fields = readFields(lease);
+                    Files.move(lease, pending.resolve(lease.getFileName()), StandardCopyOption.ATOMIC_MOVE);
+                    log.warn(
+                            "Lease of {} by {} expired; returned it to the queue",
+                            fields == null ? lease : String.join(" ", fields.subList(0, Math.min(2, fields.size()))),
+                            fields == null || fields.size() < 3 ? "unknown worker" : fields.get(2));
+                }
+            } catch (NoSuchFileException | FileAlreadyExistsException e) {
+                // Completed or reclaimed by another worker
+            }
+        }
+    }
+
+    private void heartbeat() {
+        FileTime now = FileTime.from(Instant.now());
+        for (Map.Entry<String, String> lease : held.entrySet()) {
+            String id = lease.getKey();
+            try {
+                Files.setLastModifiedTime(leases.resolve(lease.getValue()), now);
+            } catch (NoSuchFileException e) {
+                held.remove(id);
+                log.warn("Lost the lease of {}; it may be imported by another worker", id);
+            } catch (IOException e) {
+                log.error("Unable to renew the lease of {}", id, e);
+            }
+        }
+    }
+
+    /**
+     * Writes the file by renaming a temporary file over it, so that readers never see it partially written.
+     */
+    private void write(Path file, String content) throws IOException {
+        Path temporary = file.resolveSibling("." + file.getFileName() + "." + worker + ".tmp");
+        Files.writeString(temporary, content);
+        try {
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static List<Path> list(Path directory, String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(f -> f.getFileName().toString().endsWith(suffix)).sorted().toList();
+        }
+    }
+
+    private static BatchEntry readEntry(Path file) throws IOException {
+        List<String> fields = readFields(file);
+        return fields == null || fields.size() < 2 ? null : new BatchEntry(fields.get(0), fields.get(1));
+    }
+
+    /**
+     * @return the fields of the first line of the file, or null if it no longer exists
+     */
+    private static List<String> readFields(Path file) throws IOException {
+        try {
+            String content = Files.readString(file, StandardCharsets.UTF_8);
+            return List.of(content.lines().findFirst().orElse("").split("\t", -1));
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the id of the entry in a pending or leased file
+     */
+    private static String id(Path file) {
+        String name = file.getFileName().toString();
+        return name.substring(name.indexOf('-') + 1, name.length() - ENTRY.length());
+    }
+
+    /**
+     * @return a readable file name for the entry that is unique even where the readable part is not
+     */
+    static String id(BatchEntry entry) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest((entry.url() + "\t" + entry.branch()).getBytes(StandardCharsets.UTF_8));
+            return ImportContext.id(entry.url(), entry.branch()) + "-"
+                    + HexFormat.of().formatHex(digest, 0, 6);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        heartbeat.shutdownNow();
+    }
+}
@@ -0,0 +1,54 @@
+package org.jboss.pnc.rpm.importer.checkout;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import org.eclipse.jgit.api.errors.TransportException;
+
+/**
+ * A branch of a repository that a pom is generated for. Only the top level of the tree is of interest:
+ * the ETT files, the spec file and the pom itself.
+ */
+public interface Checkout {
+
+    String POM = "pom.xml";
+
+    String COMMIT_MESSAGE = "RPM-Importer - POM Generation";
+
+    /**
+     * @return the working tree, if the checkout is on disk
+     */
+    Optional<Path> directory();
+
+    /**
+     * @return the names of the files at the top level of the tree
+     */
+    List<String> list() throws IOException;
+
+    /**
+     * @param file the name of a file at the top level of the tree
+     * @return its content, or empty if there is no such file
+     */
+    Optional<String> read(String file) throws IOException;
+
+    /**
+     * Sets the content of the pom, to be included in the next {@link #commit()}.
+     */
+    void writePom(String pom) throws IOException;
+
+    /**
+     * Commits the pom. Empty commits are avoided as they would trigger PNC rebuilds.
+     *
+     * @return true if a commit was made, false if the pom was unchanged
+     */
+    boolean commit() throws IOException;
+
+    /**
+     * Pushes the commit to the branch.
+     *
+     * @throws TransportException if the push could not be completed due to a transport (e.g. network) error
+     */
+    void push() throws TransportException;
+}
@@ -0,0 +1,306 @@
+package org.jboss.pnc.rpm.importer.checkout;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import jakarta.ws.rs.WebApplicationException;
+
+import org.eclipse.jgit.api.errors.TransportException;
+import org.jboss.pnc.rpm.importer.backend.Backend;
+import org.jboss.pnc.rpm.importer.backend.Backends;
+import org.jboss.pnc.rpm.importer.backend.HttpClients;
+import org.jboss.pnc.rpm.importer.clients.ScmRepositoryIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * A checkout that is never cloned: the tree listing and files are read through the GitLab repository
+ * tree and files API, and the pom is committed through the commits API.
+ * <p>
+ * As the commit is made on the server it is only created by {@link #push()}; {@link #commit()} just
+ * determines whether the pom has changed. Every file is read at the commit the branch pointed to when it was
+ * listed, and the push is rejected if the branch has moved since, as a git push would be.
+ */
+public class GitLabCheckout implements Checkout {
+    private static final Logger log = LoggerFactory.getLogger(GitLabCheckout.class);
+
+    /**
+     * The environment variable holding the GitLab token.
+     */
+    public static final String TOKEN_ENV = "GITLAB_TOKEN";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final int PAGE_SIZE = 100;
+
+    private final String project;
+
+    private final String token;
+
+    private final String branch;
+
+    /**
+     * The commit the branch pointed to when it was listed.
+     */
+    private final String head;
+
+    private final List<String> files;
+
+    private final Map<String, Optional<String>> contents = new HashMap<>();
+
+    /**
+     * The last commit that changed the pom, as read at {@link #head}.
+     */
+    private String pomCommit;
+
+    private String pom;
+
+    private boolean pending;
+
+    private GitLabCheckout(String project, String token, String branch, String head, List<String> files) {
+        this.project = project;
+        this.token = token;
+        this.branch = branch;
+        this.head = head;
+        this.files = files;
+    }
+
+    /**
+     * Lists the top level of the branch.
+     *
+     * @param api the GitLab API URL, e.g. {@code https://gitlab.example.com/api/v4}
+     * @param token a token with the api scope, or null for anonymous access (read only)
+     * @param url the URL of the repository on the GitLab instance (HTTP or SSH)
+     * @param branch the branch
+     */
+    public static GitLabCheckout open(String api, String token, String url, String branch) throws IOException {
+        String normalized = ScmRepositoryIndex.normalize(url);
+        String path = normalized.substring(normalized.indexOf('/') + 1);
+        String project = api.replaceFirst("/+$", "") + "/projects/" + encode(path);
+
+        GitLabCheckout checkout = new GitLabCheckout(
+                project,
+                token,
+                branch,
+                head(project, token, branch),
+                new ArrayList<>());
+        String page = "1";
+        while (page != null && !page.isEmpty()) {
+            HttpResponse<String> response = checkout.send(
+                    HttpRequest.newBuilder(
+                            URI.create(
+                                    project + "/repository/tree?ref=" + checkout.head + "&per_page=" + PAGE_SIZE
+                                            + "&page=" + page))
+                            .GET(),
+                    "tree",
+                    "list " + path + " branch " + branch,
+                    false);
+            for (JsonNode entry : MAPPER.readTree(response.body())) {
+                if ("blob".equals(entry.path("type").asText())) {
+                    checkout.files.add(entry.path("name").asText());
+                }
+            }
+            page = response.headers().firstValue("X-Next-Page").orElse(null);
+        }
+        checkout.files.sort(null);
+        log.info(
+                "Listed {} files in {} branch {} ({}) through the GitLab API",
+                checkout.files.size(),
+                path,
+                branch,
+                checkout.head);
+        return checkout;
+    }
+
+    /**
+     * @return the commit the branch points to
+     */
+    private static String head(String project, String token, String branch) throws IOException {
+        HttpResponse<String> response = send(
+                HttpRequest.newBuilder(URI.create(project + "/repository/branches/" + encode(branch))).GET(),
+                token,
+                "branches",
+                "read branch " + branch,
+                false);
+        String id = MAPPER.readTree(response.body()).path("commit").path("id").asText();
+        if (id.isEmpty()) {
+            throw new IOException("No commit for branch " + branch + " in " + response.body());
+        }
+        return id;
+    }
+
+    @Override
+    public Optional<Path> directory() {
+        return Optional.empty();
+    }
+
+    @Override
+    public List<String> list() {
+        return files;
+    }
+
+    @Override
+    public Optional<String> read(String file) throws IOException {
+        if (!files.contains(file)) {
+            return Optional.empty();
+        }
+        Optional<String> content = contents.get(file);
+        if (content == null) {
+            HttpResponse<String> response = send(
+                    HttpRequest.newBuilder(
+                            URI.create(project + "/repository/files/" + encode(file) + "/raw?ref=" + head))
+                            .GET(),
+                    "files",
+                    "read " + file,
+                    true);
+            content = response.statusCode() == 404 ? Optional.empty() : Optional.of(response.body());
+            contents.put(file, content);
+            if (file.equals(POM)) {
+                pomCommit = response.headers().firstValue("X-Gitlab-Last-Commit-Id").orElse(null);
+            }
+        }
+        return content;
+    }
+
+    @Override
+    public void writePom(String pom) {
+        this.pom = pom;
+    }
+
+    @Override
+    public boolean commit() throws IOException {
+        if (pom == null || read(POM).filter(pom::equals).isPresent()) {
+            // avoid empty commit to avoid PNC rebuilds
+            log.info("Nothing to commit");
+            return false;
+        }
+        pending = true;
+        log.info("pom.xml has changed and will be committed through the GitLab API on push");
+        return true;
+    }
+
+    /**
+     * Commits the pom, unless the branch has moved since it was listed.
+     *
+     * @throws TransportException if GitLab could not be reached, or responded with a 5xx or 429 status
+     * @throws RuntimeException if the branch has moved, or the commit was rejected
+     */
+    @Override
+    public void push() throws TransportException {
+        if (!pending) {
+            return;
+        }
+        Map<String, Object> action = new LinkedHashMap<>();
+        action.put("action", files.contains(POM) ? "update" : "create");
+        action.put("file_path", POM);
+        action.put("content", pom);
+        if (files.contains(POM) && pomCommit != null) {
+            // GitLab rejects the update if the pom has been changed since
+            action.put("last_commit_id", pomCommit);
+        }
+        Map<String, Object> commit = Map.of(
+                "branch",
+                branch,
+                "commit_message",
+                COMMIT_MESSAGE,
+                "actions",
+                List.of(action));
+        try {
+            // The commits API has no check of the branch head, so changes to any other file (e.g. the ETT files the
+            // pom was generated from) are detected here
+            String current = head(project, token, branch);
+            if (!current.equals(head)) {
+                throw new RuntimeException(
+                        "Push of " + branch + " rejected: the branch has moved from " + head + " to " + current
+                                + " since it was read");
+            }
+            HttpResponse<String> response = send(
+                    HttpRequest.newBuilder(URI.create(project + "/repository/commits"))
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString(MAPPER.writeValueAsString(commit))),
+                    "commits",
+                    "commit pom.xml to " + branch,
+                    false);
+            String id = MAPPER.readTree(response.body()).path("id").asText();
+            log.info("Committed pom.xml ({}) to {} through the GitLab API", id, branch);
+        } catch (IOException e) {
+            throw new TransportException("Unable to commit pom.xml to " + branch + ": " + e.getMessage(), e);
+        } catch (WebApplicationException e) {
+            int status = e.getResponse().getStatus();
+            if (status >= 500 || status == 429) {
+                // Retried like a failed git push
+                throw new TransportException("Unable to commit pom.xml to " + branch + ": " + e.getMessage(), e);
+            }
+            throw e;
+        }
+        pending = false;
+        if (!files.contains(POM)) {
+            files.add(POM);
+            files.sort(null);
+        }
+        contents.put(POM, Optional.of(pom));
+    }
+
+    /**
+     * Sends the request, failing on any status other than success (or not found, if allowed) so that the
+     * limiter for the backend sees the failure.
+     */
+    private HttpResponse<String> send(
+            HttpRequest.Builder request,
+            String operation,
+            String action,
+            boolean allowMissing) throws IOException {
+        return send(request, token, operation, action, allowMissing);
+    }
+
+    private static HttpResponse<String> send(
+            HttpRequest.Builder request,
+            String token,
+            String operation,
+            String action,
+            boolean allowMissing) throws IOException {
+        if (token != null) {
+            request.header("PRIVATE-TOKEN", token);
+        }
+        return Backends.call(Backend.GITLAB, operation, () -> {
+            HttpResponse<String> response;
+            try {
+                response = HttpClients.send(request);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting to " + action);
+            }
+            if (response.statusCode() / 100 != 2 && !(allowMissing && response.statusCode() == 404)) {
+                throw new WebApplicationException(
+                        "Unable to " + action + " through the GitLab API: " + response.statusCode() + " "
+                                + response.body(),
+                        response.statusCode());
+            }
+            return response;
+        });
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return project + "#" + branch;
+    }
+}
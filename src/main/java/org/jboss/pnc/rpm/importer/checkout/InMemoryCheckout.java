@@ -0,0 +1,266 @@
+package org.jboss.pnc.rpm.importer.checkout;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.api.errors.TransportException;
+import org.eclipse.jgit.errors.ConfigInvalidException;
+import org.eclipse.jgit.internal.storage.dfs.DfsRepositoryDescription;
+import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
+import org.eclipse.jgit.internal.storage.pack.PackExt;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.TreeFormatter;
+import org.eclipse.jgit.lib.UserConfig;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.transport.RefSpec;
+import org.eclipse.jgit.transport.RemoteRefUpdate;
+import org.eclipse.jgit.transport.TagOpt;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.util.FS;
+import org.eclipse.jgit.util.SystemReader;
+import org.jboss.pnc.rpm.importer.backend.Backend;
+import org.jboss.pnc.rpm.importer.backend.Backends;
+import org.jboss.pnc.rpm.importer.jfr.GitEvent;
+import org.jboss.pnc.rpm.importer.jfr.GitProgress;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A checkout held entirely in memory using JGit's DFS {@link InMemoryRepository}. Only the branch is fetched
+ * (no other branches or tags); files are read straight from the tree of its head, and the commit with the new
+ * pom is built with an {@link ObjectInserter} and pushed without a working tree or anything touching the
+ * filesystem.
+ * <p>
+ * The history of the branch is fetched as well as the head since the DFS storage does not track shallow
+ * commits, so neither updating the branch nor pushing could walk past a shallow head.
+ */
+public class InMemoryCheckout implements Checkout {
+    private static final Logger log = LoggerFactory.getLogger(InMemoryCheckout.class);
+
+    private final InMemoryRepository repository;
+
+    private final String url;
+
+    private final String branch;
+
+    private RevCommit head;
+
+    /** The top level tree entries of the head commit. */
+    private final Map<String, Entry> entries = new TreeMap<>();
+
+    private String pom;
+
+    private record Entry(FileMode mode, ObjectId id) {
+    }
+
+    private InMemoryCheckout(InMemoryRepository repository, String url, String branch) {
+        this.repository = repository;
+        this.url = url;
+        this.branch = branch;
+    }
+
+    /**
+     * Fetches a branch into memory.
+     *
+     * @param url the repository
+     * @param branch the branch
+     */
+    public static InMemoryCheckout fetch(String url, String branch) throws IOException {
+        // The FS is only used to resolve file:// remotes; the repository itself never touches the disk.
+        InMemoryRepository repository = new InMemoryRepository.Builder()
+                .setRepositoryDescription(new DfsRepositoryDescription(url))
+                .setFS(FS.DETECTED)
+                .build();
+        InMemoryCheckout checkout = new InMemoryCheckout(repository, url, branch);
+        String refName = Constants.R_HEADS + branch;
+        GitProgress progress = new GitProgress(NullProgressMonitor.INSTANCE);
+        GitEvent event = new GitEvent("fetch", url);
+        event.begin();
+        try (Git git = new Git(checkout.repository)) {
+            var fetch = git.fetch()
+                    .setRemote(url)
+                    .setRefSpecs(new RefSpec("+" + refName + ":" + refName))
+                    .setTagOpt(TagOpt.NO_TAGS)
+                    .setProgressMonitor(progress);
+            Backends.call(Backend.GIT, "fetch", fetch::call);
+        } catch (GitAPIException e) {
+            throw new RuntimeException(e);
+        }
+        if (event.shouldCommit()) {
+            event.objects = progress.objects();
+            event.bytes = Arrays.stream(checkout.repository.getObjectDatabase().getPacks())
+                    .mapToLong(p -> p.getPackDescription().getFileSize(PackExt.PACK))
+                    .sum();
+            event.commit();
+        }
+        Ref ref = checkout.repository.exactRef(refName);
+        if (ref == null) {
+            throw new RuntimeException("Branch " + branch + " not found in " + url);
+        }
+        checkout.load(ref.getObjectId());
+        log.info("Fetched {} branch {} ({}) into memory", url, branch, ref.getObjectId().getName());
+        return checkout;
+    }
+
+    private void load(ObjectId commit) throws IOException {
+        entries.clear();
+        try (RevWalk revWalk = new RevWalk(repository); TreeWalk treeWalk = new TreeWalk(repository)) {
+            head = revWalk.parseCommit(commit);
+            treeWalk.addTree(head.getTree());
+            treeWalk.setRecursive(false);
+            while (treeWalk.next()) {
+                entries.put(treeWalk.getNameString(), new Entry(treeWalk.getFileMode(0), treeWalk.getObjectId(0)));
+            }
+        }
+    }
+
+    @Override
+    public Optional<Path> directory() {
+        return Optional.empty();
+    }
+
+    @Override
+    public List<String> list() {
+        List<String> files = new ArrayList<>();
+        entries.forEach((name, entry) -> {
+            if (entry.mode().getObjectType() == Constants.OBJ_BLOB) {
+                files.add(name);
+            }
+        });
+        return files;
+    }
+
+    @Override
+    public Optional<String> read(String file) throws IOException {
+        Entry entry = entries.get(file);
+        if (entry == null || entry.mode().getObjectType() != Constants.OBJ_BLOB) {
+            return Optional.empty();
+        }
+        return Optional.of(new String(repository.open(entry.id()).getBytes(), StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void writePom(String pom) {
+        this.pom = pom;
+    }
+
+    @Override
+    public boolean commit() throws IOException {
+        if (pom == null) {
+            log.info("Nothing to commit");
+            return false;
+        }
+        try (ObjectInserter inserter = repository.newObjectInserter()) {
+            ObjectId blob = inserter.insert(Constants.OBJ_BLOB, pom.getBytes(StandardCharsets.UTF_8));
+            Entry existing = entries.get(POM);
+            if (existing != null && existing.id().equals(blob)) {
+                // avoid empty commit to avoid PNC rebuilds
+                log.info("Nothing to commit");
+                return false;
+            }
+            Map<String, Entry> updated = new TreeMap<>(entries);
+            updated.put(POM, new Entry(FileMode.REGULAR_FILE, blob));
+            TreeFormatter tree = new TreeFormatter();
+            // Git orders tree entries by name, with trees sorted as if they had a trailing '/'.
+            updated.entrySet()
+                    .stream()
+                    .sorted(
+                            (a, b) -> sortKey(a.getKey(), a.getValue()).compareTo(sortKey(b.getKey(), b.getValue())))
+                    .forEach(e -> tree.append(e.getKey(), e.getValue().mode(), e.getValue().id()));
+
+            PersonIdent ident = ident();
+            CommitBuilder commit = new CommitBuilder();
+            commit.setTreeId(inserter.insert(tree));
+            commit.setParentId(head);
+            commit.setAuthor(ident);
+            commit.setCommitter(ident);
+            commit.setMessage(COMMIT_MESSAGE);
+            ObjectId commitId = inserter.insert(commit);
+            inserter.flush();
+
+            RefUpdate update = repository.updateRef(Constants.R_HEADS + branch);
+            update.setExpectedOldObjectId(head);
+            update.setNewObjectId(commitId);
+            RefUpdate.Result result = update.update();
+            if (result != RefUpdate.Result.FAST_FORWARD && result != RefUpdate.Result.NEW) {
+                throw new IOException("Unable to update " + branch + ": " + result);
+            }
+            load(commitId);
+            log.info("Added and committed pom.xml ({})", commitId.getName());
+            return true;
+        }
+    }
+
+    /**
+     * The committer (and author) a commit in a clone would have. The configuration of the in-memory repository
+     * is empty rather than based on the user's, so the identity is taken from the user's (and system)
+     * configuration as {@link org.eclipse.jgit.api.CommitCommand} does for a repository on disk.
+     */
+    private static PersonIdent ident() throws IOException {
+        try {
+            UserConfig config = SystemReader.getInstance().getUserConfig().get(UserConfig.KEY);
+            return new PersonIdent(config.getCommitterName(), config.getCommitterEmail());
+        } catch (ConfigInvalidException e) {
+            throw new IOException("Invalid git configuration", e);
+        }
+    }
+
+    private static String sortKey(String name, Entry entry) {
+        return entry.mode() == FileMode.TREE ? name + "/" : name;
+    }
+
+    @Override
+    public void push() throws TransportException {
+        String refName = Constants.R_HEADS + branch;
+        GitProgress progress = new GitProgress(NullProgressMonitor.INSTANCE);
+        GitEvent event = new GitEvent("push", url);
+        event.begin();
+        try (Git git = new Git(repository)) {
+            var pushCommand = git.push()
+                    .setRemote(url)
+                    .setRefSpecs(new RefSpec(refName + ":" + refName))
+                    .setProgressMonitor(progress);
+            var results = Backends.call(Backend.GIT, "push", pushCommand::call);
+            event.objects = progress.objects();
+            event.commit();
+            for (var result : results) {
+                for (RemoteRefUpdate update : result.getRemoteUpdates()) {
+                    if (update.getStatus() != RemoteRefUpdate.Status.OK
+                            && update.getStatus() != RemoteRefUpdate.Status.UP_TO_DATE) {
+                        throw new RuntimeException(
+                                "Push of " + update.getRemoteName() + " failed with " + update.getStatus()
+                                        + (update.getMessage() == null ? "" : " (" + update.getMessage() + ")"));
+                    }
+                }
+            }
+            log.info("Pushed {} to {}", branch, url);
+        } catch (TransportException e) {
+            throw e;
+        } catch (GitAPIException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return url + "#" + branch + " (in memory)";
+    }
+}
@@ -0,0 +1,61 @@
+package org.jboss.pnc.rpm.importer.checkout;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.eclipse.jgit.api.errors.TransportException;
+import org.jboss.pnc.rpm.importer.utils.Utils;
+
+/**
+ * A checkout in a (cloned) working tree on disk.
+ */
+public class WorkTreeCheckout implements Checkout {
+
+    private final Path directory;
+
+    public WorkTreeCheckout(Path directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public Optional<Path> directory() {
+        return Optional.of(directory);
+    }
+
+    @Override
+    public List<String> list() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(Files::isRegularFile).map(f -> f.getFileName().toString()).sorted().toList();
+        }
+    }
+
+    @Override
+    public Optional<String> read(String file) throws IOException {
+        Path path = directory.resolve(file);
+        return Files.isRegularFile(path) ? Optional.of(Files.readString(path)) : Optional.empty();
+    }
+
+    @Override
+    public void writePom(String pom) throws IOException {
+        Files.writeString(directory.resolve(POM), pom);
+    }
+
+    @Override
+    public boolean commit() {
+        return Utils.commitRepository(directory);
+    }
+
+    @Override
+    public void push() throws TransportException {
+        Utils.pushRepository(directory);
+    }
+
+    @Override
+    public String toString() {
+        return directory.toString();
+    }
+}
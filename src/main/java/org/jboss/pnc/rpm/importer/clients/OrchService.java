@@ -52,6 +52,15 @@ public interface OrchService {
             @HeaderParam("Authorization") String accessToken,
             @QueryParam(MATCH_QUERY_PARAM) String matchUrl);
 
+    @Path("/scm-repositories")
+    @Produces(MediaType.APPLICATION_JSON)
+    @GET
+    Page<SCMRepository> getAll(
+            @Url String url,
+            @HeaderParam("Authorization") String accessToken,
+            @QueryParam("pageSize") int pageSize,
+            @QueryParam("pageIndex") int pageIndex);
+
     @Path("/artifacts/filter")
     @Produces(MediaType.APPLICATION_JSON)
     @GET
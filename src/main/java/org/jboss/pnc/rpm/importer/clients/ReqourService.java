@@ -10,6 +10,7 @@ import jakarta.ws.rs.core.MediaType;
 import org.eclipse.microprofile.rest.client.inject.RegisterRestClient;
 import org.jboss.pnc.api.reqour.dto.TranslateRequest;
 import org.jboss.pnc.api.reqour.dto.TranslateResponse;
+import org.jboss.pnc.rpm.importer.backend.Idempotent;
 
 import io.quarkus.rest.client.reactive.Url;
 
@@ -21,6 +22,7 @@ public interface ReqourService {
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
     @POST
+    @Idempotent
     TranslateResponse external_to_internal(
             @Url String url,
             TranslateRequest externalToInternalRequestDto);
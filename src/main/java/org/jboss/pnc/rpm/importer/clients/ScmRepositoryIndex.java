@@ -0,0 +1,135 @@
+package org.jboss.pnc.rpm.importer.clients;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.jboss.pnc.dto.SCMRepository;
+import org.jboss.pnc.dto.response.Page;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An in-memory index of the PNC SCM repositories keyed by their normalized internal and external URLs. The
+ * whole collection is paged through once, on first use, so that checking whether many repositories are
+ * already synced does not need a filtered query per repository.
+ * <p>
+ * Repositories created after the index is loaded (e.g. by another user) are not seen; after creating one
+ * {@link #refresh(String)} should be called to add it.
+ */
+public class ScmRepositoryIndex {
+    private static final Logger log = LoggerFactory.getLogger(ScmRepositoryIndex.class);
+
+    private static final int PAGE_SIZE = 200;
+
+    private final OrchService orchService;
+
+    private final String pncUrl;
+
+    private final Supplier<String> accessToken;
+
+    private final Map<String, SCMRepository> repositories = new ConcurrentHashMap<>();
+
+    private volatile boolean loaded;
+
+    /**
+     * @param orchService the PNC client
+     * @param pncUrl the PNC URL
+     * @param accessToken supplies the token to pass to PNC
+     */
+    public ScmRepositoryIndex(OrchService orchService, String pncUrl, Supplier<String> accessToken) {
+        this.orchService = orchService;
+        this.pncUrl = pncUrl;
+        this.accessToken = accessToken;
+    }
+
+    /**
+     * @param url an internal or external URL
+     * @return the SCM repository with that URL, if known to PNC
+     */
+    public Optional<SCMRepository> find(String url) {
+        load();
+        return Optional.ofNullable(repositories.get(normalize(url)));
+    }
+
+    /**
+     * Queries PNC for the repository with the given URL and adds it to the index.
+     *
+     * @param url an internal or external URL
+     * @return the SCM repository with that URL, if known to PNC
+     */
+    public Optional<SCMRepository> refresh(String url) {
+        Optional<SCMRepository> repository = orchService.getAll(pncUrl, accessToken.get(), url)
+                .getContent()
+                .stream()
+                .findFirst();
+        repository.ifPresent(this::add);
+        return repository;
+    }
+
+    /**
+     * @return the number of URLs indexed
+     */
+    public int size() {
+        return repositories.size();
+    }
+
+    private synchronized void load() {
+        if (loaded) {
+            return;
+        }
+        int pageIndex = 0;
+        int pageTotal;
+        do {
+            Page<SCMRepository> page = orchService.getAll(pncUrl, accessToken.get(), PAGE_SIZE, pageIndex);
+            pageTotal = page.getTotalPages();
+            page.getContent().forEach(this::add);
+            log.debug("Indexed SCM repositories (page {} out of {})", pageIndex, pageTotal);
+            pageIndex++;
+        } while (pageIndex < pageTotal);
+        log.info("Indexed {} SCM repository URLs from PNC", repositories.size());
+        loaded = true;
+    }
+
+    private void add(SCMRepository repository) {
+        if (repository.getInternalUrl() != null) {
+            repositories.put(normalize(repository.getInternalUrl()), repository);
+        }
+        if (repository.getExternalUrl() != null) {
+            repositories.put(normalize(repository.getExternalUrl()), repository);
+        }
+    }
+
+    /**
+     * Reduces a git URL to {@code host/path} so that e.g. {@code git@host:path.git} and
+     * {@code https://host/path} are considered equal.
+     */
+    public static String normalize(String url) {
+        String result = url.trim();
+        int scheme = result.indexOf("://");
+        if (scheme != -1) {
+            result = result.substring(scheme + 3);
+        } else {
+            // scp-like syntax i.e. user@host:path
+            result = result.replaceFirst(":", "/");
+        }
+        int user = result.indexOf('@');
+        int slash = result.indexOf('/');
+        if (user != -1 && (slash == -1 || user < slash)) {
+            result = result.substring(user + 1);
+        }
+        while (result.endsWith("/")) {
+            result = result.substring(0, result.length() - 1);
+        }
+        if (result.endsWith(".git")) {
+            result = result.substring(0, result.length() - 4);
+        }
+        slash = result.indexOf('/');
+        String host = slash == -1 ? result : result.substring(0, slash);
+        // Drop any port; PNC does not distinguish repositories by it.
+        host = host.replaceFirst(":\\d+$", "");
+        return host.toLowerCase(Locale.ROOT) + (slash == -1 ? "" : result.substring(slash));
+    }
+}
@@ -0,0 +1,42 @@
+package org.jboss.pnc.rpm.importer.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A single call to a backend, excluding any time spent waiting for its concurrency limit. Retries and
+ * hedges are recorded as separate events.
+ */
+@Name("org.jboss.pnc.rpm.importer.BackendCall")
+@Label("Backend Call")
+@Category("RPM Importer")
+@Description("A call to PNC, reqour, Brew, GitLab or a git remote")
+public class BackendCallEvent extends Event {
+
+    @Label("Backend")
+    public String backend;
+
+    @Label("Operation")
+    @Description("The endpoint, command or git operation")
+    public String operation;
+
+    @Label("Page")
+    @Description("The page index requested, or -1 if not paged")
+    public int page = -1;
+
+    @Label("Status")
+    @Description("The HTTP status, or 0 if not known (e.g. a successful REST client call)")
+    public int status;
+
+    @Label("Response Size")
+    @DataAmount
+    public long bytes;
+
+    @Label("Outcome")
+    @Description("success, overloaded or failed")
+    public String outcome;
+}
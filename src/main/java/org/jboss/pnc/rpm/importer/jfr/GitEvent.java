@@ -0,0 +1,38 @@
+package org.jboss.pnc.rpm.importer.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A JGit clone, fetch or push.
+ */
+@Name("org.jboss.pnc.rpm.importer.Git")
+@Label("Git Transfer")
+@Category("RPM Importer")
+@Description("A clone, fetch or push of a repository")
+public class GitEvent extends Event {
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("URL")
+    public String url;
+
+    @Label("Objects")
+    @Description("The number of objects received or written")
+    public int objects;
+
+    @Label("Pack Size")
+    @Description("The size of the packs received, or 0 if not known")
+    @DataAmount
+    public long bytes;
+
+    public GitEvent(String operation, String url) {
+        this.operation = operation;
+        this.url = url;
+    }
+}
@@ -0,0 +1,58 @@
+package org.jboss.pnc.rpm.importer.jfr;
+
+import org.eclipse.jgit.lib.ProgressMonitor;
+
+/**
+ * Passes progress through to another monitor while counting the objects received or written, for
+ * {@link GitEvent}s.
+ */
+public class GitProgress implements ProgressMonitor {
+
+    private final ProgressMonitor delegate;
+
+    private volatile int objects;
+
+    public GitProgress(ProgressMonitor delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * @return the number of objects received (fetch) or written (push)
+     */
+    public int objects() {
+        return objects;
+    }
+
+    @Override
+    public void start(int totalTasks) {
+        delegate.start(totalTasks);
+    }
+
+    @Override
+    public void beginTask(String title, int totalWork) {
+        if (totalWork > 0 && (title.startsWith("Receiving objects") || title.startsWith("Writing objects"))) {
+            objects = totalWork;
+        }
+        delegate.beginTask(title, totalWork);
+    }
+
+    @Override
+    public void update(int completed) {
+        delegate.update(completed);
+    }
+
+    @Override
+    public void endTask() {
+        delegate.endTask();
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return delegate.isCancelled();
+    }
+
+    @Override
+    public void showDuration(boolean enabled) {
+        delegate.showDuration(enabled);
+    }
+}
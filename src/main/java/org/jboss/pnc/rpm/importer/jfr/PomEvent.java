@@ -0,0 +1,34 @@
+package org.jboss.pnc.rpm.importer.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Rendering of a pom from the template.
+ */
+@Name("org.jboss.pnc.rpm.importer.Pom")
+@Label("POM Rendering")
+@Category("RPM Importer")
+public class PomEvent extends Event {
+
+    @Label("URL")
+    public String url;
+
+    @Label("Branch")
+    public String branch;
+
+    @Label("Artifacts")
+    public int artifacts;
+
+    @Label("Size")
+    @DataAmount
+    public long bytes;
+
+    public PomEvent(String url, String branch) {
+        this.url = url;
+        this.branch = branch;
+    }
+}
@@ -0,0 +1,31 @@
+package org.jboss.pnc.rpm.importer.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The time taken to reach a stage of an import (from the previous stage, or the start of the import).
+ */
+@Name("org.jboss.pnc.rpm.importer.Stage")
+@Label("Import Stage")
+@Category("RPM Importer")
+@Description("A stage of importing a repository branch")
+public class StageEvent extends Event {
+
+    @Label("URL")
+    public String url;
+
+    @Label("Branch")
+    public String branch;
+
+    @Label("Stage")
+    public String stage;
+
+    public StageEvent(String url, String branch) {
+        this.url = url;
+        this.branch = branch;
+    }
+}
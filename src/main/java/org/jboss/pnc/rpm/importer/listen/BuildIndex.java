@@ -0,0 +1,153 @@
+package org.jboss.pnc.rpm.importer.listen;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.jboss.pnc.rpm.importer.batch.BatchEntry;
+import org.jboss.pnc.rpm.importer.model.brew.BrewBuild;
+import org.jboss.pnc.rpm.importer.scan.DriftScanner;
+import org.jboss.pnc.rpm.importer.scan.ScanTarget;
+import org.jboss.pnc.rpm.importer.utils.EttMetadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Maps Brew packages to the batch entries whose {@code last-mead-build} (or {@code mead-pkg-name}) names them,
+ * so that a completed build can be turned into the branches to regenerate.
+ * <p>
+ * The branches are those listed in a batch file, and their ETT files are read from bare mirrors (see
+ * {@link DriftScanner#readEtt}). The index is kept up to date by {@link #reload()}, which rereads everything
+ * if the batch file has changed, and {@link #refresh(Collection)}, which rereads the repositories that were
+ * just regenerated; in both cases only branches that have moved are fetched.
+ * <p>
+ * A Maven build in Brew is named {@code <groupId>-<artifactId>}, so a build is matched both by the name of its
+ * NVR and by its GAV.
+ */
+public class BuildIndex {
+    private static final Logger log = LoggerFactory.getLogger(BuildIndex.class);
+
+    private final DriftScanner scanner;
+
+    private final Path batch;
+
+    private FileTime loaded;
+
+    /**
+     * The branches of each repository listed in the batch file.
+     */
+    private Map<String, List<String>> branches = Map.of();
+
+    private final Map<String, Map<String, EttMetadata>> ett = new HashMap<>();
+
+    private final Map<String, Set<BatchEntry>> byPackage = new HashMap<>();
+
+    /**
+     * @param scanner reads the ETT files of the repositories
+     * @param batch the batch file listing the branches to regenerate
+     */
+    public BuildIndex(DriftScanner scanner, Path batch) {
+        this.scanner = scanner;
+        this.batch = batch;
+    }
+
+    /**
+     * Loads the index if the batch file has changed since it was last loaded.
+     *
+     * @return true if the index was loaded
+     */
+    public synchronized boolean reload() throws IOException {
+        FileTime modified = Files.getLastModifiedTime(batch);
+        if (modified.equals(loaded)) {
+            return false;
+        }
+        loaded = modified;
+        Map<String, List<String>> listed = new LinkedHashMap<>();
+        for (BatchEntry entry : BatchEntry.parse(batch)) {
+            listed.computeIfAbsent(entry.url(), u -> new ArrayList<>()).add(entry.branch());
+        }
+        branches = listed;
+        ett.keySet().retainAll(listed.keySet());
+        read(listed.keySet());
+        log.info("Indexed {} packages across {} branches listed in {}", byPackage.size(), size(), batch);
+        return true;
+    }
+
+    /**
+     * Rereads the ETT files of some repositories, e.g. after regenerating them.
+     *
+     * @param urls the repositories
+     */
+    public synchronized void refresh(Collection<String> urls) {
+        read(urls.stream().filter(branches::containsKey).collect(Collectors.toCollection(LinkedHashSet::new)));
+    }
+
+    /**
+     * @param build a build that has completed
+     * @return the entries whose ETT files name the package of the build
+     */
+    public synchronized List<BatchEntry> affected(BrewBuild build) {
+        Set<BatchEntry> affected = new LinkedHashSet<>();
+        affected.addAll(byPackage.getOrDefault(packageName(build.nvr()), Set.of()));
+        if (build.maven() != null) {
+            affected.addAll(
+                    byPackage.getOrDefault(build.maven().groupId() + "-" + build.maven().artifactId(), Set.of()));
+        }
+        return List.copyOf(affected);
+    }
+
+    /**
+     * @param entry a branch
+     * @return its {@code last-mead-build} as last read, or null if it has no ETT files
+     */
+    public synchronized String lastMeadBuild(BatchEntry entry) {
+        EttMetadata metadata = ett.getOrDefault(entry.url(), Map.of()).get(entry.branch());
+        return metadata == null ? null : metadata.lastMeadBuild();
+    }
+
+    /**
+     * @return the number of branches that have ETT files
+     */
+    public synchronized int size() {
+        return ett.values().stream().mapToInt(Map::size).sum();
+    }
+
+    private void read(Collection<String> urls) {
+        if (urls.isEmpty()) {
+            return;
+        }
+        List<ScanTarget> targets = urls.stream().map(u -> new ScanTarget(u, branches.get(u))).toList();
+        // Repositories that could not be read keep their previous entries
+        ett.putAll(scanner.readEtt(targets));
+        index();
+    }
+
+    private void index() {
+        byPackage.clear();
+        ett.forEach((url, metadata) -> metadata.forEach((branch, files) -> {
+            BatchEntry entry = new BatchEntry(url, branch);
+            byPackage.computeIfAbsent(packageName(files.lastMeadBuild()), p -> new LinkedHashSet<>()).add(entry);
+            byPackage.computeIfAbsent(files.meadPkgName(), p -> new LinkedHashSet<>()).add(entry);
+        }));
+    }
+
+    /**
+     * @param nvr a name-version-release
+     * @return the name, i.e. the NVR without the last two {@code -} separated fields
+     */
+    static String packageName(String nvr) {
+        int release = nvr.lastIndexOf('-');
+        int version = release > 0 ? nvr.lastIndexOf('-', release - 1) : -1;
+        return version > 0 ? nvr.substring(0, version) : nvr;
+    }
+}
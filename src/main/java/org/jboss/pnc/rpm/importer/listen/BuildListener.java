@@ -0,0 +1,323 @@
+package org.jboss.pnc.rpm.importer.listen;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.jboss.pnc.rpm.importer.batch.BatchEntry;
+import org.jboss.pnc.rpm.importer.model.brew.BrewBuild;
+import org.jboss.pnc.rpm.importer.utils.BrewParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Listens for Brew builds completing and returns the batch entries they affect (see {@link BuildIndex}).
+ * <p>
+ * The messages are taken from a STOMP destination given as the path of the broker URI, e.g.
+ * {@code stomp+ssl://umb.example.com/queue/Consumer.rpm-importer.VirtualTopic.eng.brew.build.complete}. A
+ * consumer queue of a virtual topic keeps the messages sent while the listener is not running. Messages that
+ * affect no entry are acknowledged straight away; the others only once all of their entries have been regenerated
+ * successfully from ETT files whose {@code last-mead-build} names the build (see {@link #acknowledge(Collection)}),
+ * so that builds are not lost should the listener stop part way through, an import fail, or the ETT files be
+ * updated after the build completed.
+ * <p>
+ * Builds often complete in bursts (e.g. a whole product respin), so once a build affecting an entry arrives,
+ * further builds are gathered until none has arrived for the quiet period and then all of their entries are
+ * returned together, each once.
+ */
+public class BuildListener implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(BuildListener.class);
+
+    /**
+     * The environment variable holding the user to connect to the broker as, if it requires one.
+     */
+    public static final String LOGIN_ENV = "STOMP_LOGIN";
+
+    /**
+     * The environment variable holding the password of {@link #LOGIN_ENV}.
+     */
+    public static final String PASSCODE_ENV = "STOMP_PASSCODE";
+
+    public static final Duration DEFAULT_QUIET_PERIOD = Duration.ofSeconds(5);
+
+    private static final Duration POLL_INTERVAL = Duration.ofMinutes(1);
+
+    private static final Duration MAX_RECONNECT_DELAY = Duration.ofMinutes(1);
+
+    public static final Duration DEFAULT_HOLD_TIMEOUT = Duration.ofMinutes(30);
+
+    /**
+     * How long to wait before reconnecting once an import has failed, so that the broker does not redeliver its
+     * builds straight away.
+     */
+    private static final Duration RETRY_DELAY = Duration.ofMinutes(1);
+
+    /**
+     * A message announcing a build that affects entries.
+     *
+     * @param frame the message
+     * @param build the build
+     * @param entries the entries it affects
+     * @param heldUntil when to stop waiting for the ETT files of the entries to name the build, or null if it is
+     *        not held
+     */
+    private record Pending(StompClient.Frame frame, BrewBuild build, List<BatchEntry> entries, Instant heldUntil) {
+    }
+
+    private final URI broker;
+
+    private final String login;
+
+    private final String passcode;
+
+    private final BuildIndex index;
+
+    private final Duration quietPeriod;
+
+    private final Duration holdTimeout;
+
+    private StompClient client;
+
+    /**
+     * The builds whose entries {@link #next()} returned, to acknowledge once they have been regenerated.
+     */
+    private final List<Pending> returned = new ArrayList<>();
+
+    /**
+     * The builds whose entries were regenerated before their ETT files named the build.
+     */
+    private final List<Pending> held = new ArrayList<>();
+
+    private Instant reconnectAfter;
+
+    /**
+     * @param broker the broker and destination
+     * @param login the user, or null to connect without credentials
+     * @param passcode the password
+     * @param index maps builds to entries
+     * @param quietPeriod how long to wait for further builds once one affecting an entry has arrived
+     * @param holdTimeout how long to wait for the ETT files of the entries affected by a build to name it
+     */
+    public BuildListener(
+            URI broker,
+            String login,
+            String passcode,
+            BuildIndex index,
+            Duration quietPeriod,
+            Duration holdTimeout) {
+        if (broker.getPath() == null || broker.getPath().length() <= 1) {
+            throw new IllegalArgumentException("No destination in " + broker);
+        }
+        this.broker = broker;
+        this.login = login;
+        this.passcode = passcode;
+        this.index = index;
+        this.quietPeriod = quietPeriod;
+        this.holdTimeout = holdTimeout;
+    }
+
+    /**
+     * Waits for builds that affect entries, reconnecting to the broker as needed. Entries whose build is held
+     * (see {@link #acknowledge(Collection)}) are returned again once their ETT files name the build.
+     *
+     * @return the entries affected, in the order the builds arrived
+     */
+    public List<BatchEntry> next() throws InterruptedException {
+        if (reconnectAfter != null) {
+            Thread.sleep(Math.max(0, Duration.between(Instant.now(), reconnectAfter).toMillis()));
+            reconnectAfter = null;
+        }
+        Set<BatchEntry> affected = new LinkedHashSet<>();
+        Duration reconnectDelay = Duration.ofSeconds(1);
+        Duration recheckInterval = min(POLL_INTERVAL, holdTimeout.dividedBy(4));
+        Instant recheckAt = Instant.now().plus(recheckInterval);
+        Instant quietUntil = null;
+        while (true) {
+            if (!held.isEmpty() && !Instant.now().isBefore(recheckAt)) {
+                if (release(affected) && quietUntil == null) {
+                    quietUntil = Instant.now();
+                }
+                recheckAt = Instant.now().plus(recheckInterval);
+            }
+            Duration wait = quietUntil != null ? Duration.between(Instant.now(), quietUntil)
+                    : held.isEmpty() ? POLL_INTERVAL : Duration.between(Instant.now(), recheckAt);
+            if (quietUntil != null && (wait.isNegative() || wait.isZero())) {
+                return List.copyOf(affected);
+            }
+            StompClient.Frame frame;
+            try {
+                frame = client().receive(wait);
+                reconnectDelay = Duration.ofSeconds(1);
+                if (frame != null && frame.command().equals("MESSAGE")) {
+                    Pending pending = affected(frame);
+                    if (pending == null) {
+                        client.ack(frame);
+                    } else {
+                        returned.add(pending);
+                        affected.addAll(pending.entries());
+                        quietUntil = Instant.now().plus(quietPeriod);
+                    }
+                }
+            } catch (IOException e) {
+                log.warn("Lost connection to {}; reconnecting in {}s", broker, reconnectDelay.toSeconds(), e);
+                disconnect();
+                Thread.sleep(reconnectDelay.toMillis());
+                reconnectDelay = min(reconnectDelay.multipliedBy(2), MAX_RECONNECT_DELAY);
+            }
+        }
+    }
+
+    /**
+     * Rereads the ETT files of the entries returned by {@link #next()} once they have been regenerated, and
+     * acknowledges the messages of the builds whose entries all succeeded and now name the build in their
+     * {@code last-mead-build}.
+     * <p>
+     * A build whose entries succeeded but whose ETT files do not name it yet (e.g. they are updated after the build
+     * completed, or a concurrent build of another version of the package was regenerated) is held: its entries are
+     * returned by {@link #next()} again once they name it, or its message is acknowledged with a warning once the
+     * hold timeout has passed. If any entry failed the connection is dropped, so that the broker redelivers the
+     * messages not yet acknowledged, and the next reconnection is delayed.
+     *
+     * @param succeeded the entries that were regenerated successfully
+     */
+    public void acknowledge(Collection<BatchEntry> succeeded) {
+        List<Pending> regenerated = List.copyOf(returned);
+        returned.clear();
+        // Pick up the regenerated branches, and any whose ETT files were updated along with the build
+        index.refresh(regenerated.stream().flatMap(p -> p.entries().stream()).map(BatchEntry::url).distinct().toList());
+        if (client == null) {
+            // Reconnected since, so the broker redelivers them
+            return;
+        }
+        boolean failed = false;
+        for (Pending pending : regenerated) {
+            if (!succeeded.containsAll(pending.entries())) {
+                failed = true;
+            } else if (current(pending)) {
+                ack(pending);
+            } else {
+                Instant heldUntil = pending.heldUntil() != null ? pending.heldUntil() : Instant.now().plus(holdTimeout);
+                log.info("Holding {} until the ETT files of {} name it", pending.build().nvr(), pending.entries());
+                held.add(new Pending(pending.frame(), pending.build(), pending.entries(), heldUntil));
+            }
+        }
+        if (failed) {
+            log.warn(
+                    "Some branches failed to regenerate; reconnecting in {}s so the broker redelivers their builds",
+                    RETRY_DELAY.toSeconds());
+            disconnect();
+            reconnectAfter = Instant.now().plus(RETRY_DELAY);
+        }
+    }
+
+    @Override
+    public void close() {
+        disconnect();
+    }
+
+    /**
+     * @return the build of the message and the entries it affects, or null if it affects none
+     */
+    private Pending affected(StompClient.Frame frame) {
+        BrewBuild build;
+        try {
+            build = BrewParser.parseBuildMessage(new ByteArrayInputStream(frame.body()));
+        } catch (IOException e) {
+            log.warn("Ignoring invalid message {}", frame.header("message-id"), e);
+            return null;
+        }
+        if (build == null) {
+            return null;
+        }
+        try {
+            index.reload();
+        } catch (IOException e) {
+            log.warn("Unable to reload the index; using the branches already indexed", e);
+        }
+        List<BatchEntry> entries = index.affected(build);
+        if (entries.isEmpty()) {
+            log.debug("Build {} affects no branches", build.nvr());
+            return null;
+        }
+        log.info("Build {} affects {}", build.nvr(), entries);
+        return new Pending(frame, build, entries, null);
+    }
+
+    /**
+     * Rereads the ETT files of the held builds' entries, returning the entries of those that now name their build
+     * and acknowledging those held for longer than the hold timeout.
+     *
+     * @param affected the entries to add those of the released builds to
+     * @return true if any build was released
+     */
+    private boolean release(Set<BatchEntry> affected) {
+        index.refresh(held.stream().flatMap(p -> p.entries().stream()).map(BatchEntry::url).distinct().toList());
+        boolean released = false;
+        for (Iterator<Pending> i = held.iterator(); i.hasNext();) {
+            Pending pending = i.next();
+            if (current(pending)) {
+                log.info("The ETT files of {} now name {}", pending.entries(), pending.build().nvr());
+                i.remove();
+                returned.add(pending);
+                affected.addAll(pending.entries());
+                released = true;
+            } else if (Instant.now().isAfter(pending.heldUntil())) {
+                log.warn(
+                        "The ETT files of {} still do not name {} after {}s; acknowledging it",
+                        pending.entries(),
+                        pending.build().nvr(),
+                        holdTimeout.toSeconds());
+                i.remove();
+                ack(pending);
+            }
+        }
+        return released;
+    }
+
+    /**
+     * @return true if the {@code last-mead-build} of every entry affected by the build names it
+     */
+    private boolean current(Pending pending) {
+        return pending.entries().stream().allMatch(e -> pending.build().nvr().equals(index.lastMeadBuild(e)));
+    }
+
+    private void ack(Pending pending) {
+        try {
+            client.ack(pending.frame());
+        } catch (IOException | RuntimeException e) {
+            // The broker will redeliver it, which only costs a regeneration with nothing to commit
+            log.warn("Unable to acknowledge the message of {}", pending.build().nvr(), e);
+        }
+    }
+
+    private StompClient client() throws IOException {
+        if (client == null) {
+            client = StompClient.connect(broker, login, passcode);
+            client.subscribe("rpm-importer", broker.getPath());
+            log.info("Listening for builds on {}", broker.getPath());
+        }
+        return client;
+    }
+
+    private void disconnect() {
+        if (client != null) {
+            client.close();
+            client = null;
+        }
+        // Messages can only be acknowledged on the connection they were received on; the broker redelivers them
+        returned.clear();
+        held.clear();
+    }
+
+    private static Duration min(Duration a, Duration b) {
+        return a.compareTo(b) < 0 ? a : b;
+    }
+}
@@ -0,0 +1,260 @@
+package org.jboss.pnc.rpm.importer.listen;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.net.ssl.SSLSocketFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A minimal STOMP 1.2 client, enough to subscribe to a destination of a message broker (e.g. ActiveMQ or the
+ * Unified Message Bus) and acknowledge the messages received. Heart-beating is not used.
+ * <p>
+ * The broker is given as {@code stomp://host[:port]} or, over TLS, {@code stomp+ssl://host[:port]}. A TLS
+ * client certificate is taken from the standard {@code javax.net.ssl.keyStore} system properties.
+ */
+public class StompClient implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(StompClient.class);
+
+    public static final int DEFAULT_PORT = 61613;
+
+    public static final int DEFAULT_SSL_PORT = 61612;
+
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(30);
+
+    /**
+     * A frame received from the broker.
+     *
+     * @param command the command, e.g. {@code MESSAGE}
+     * @param headers the headers; where a header is repeated the first value is kept
+     * @param body the body
+     */
+    public record Frame(String command, Map<String, String> headers, byte[] body) {
+
+        public String header(String name) {
+            return headers.get(name);
+        }
+    }
+
+    private final Socket socket;
+
+    private final InputStream in;
+
+    private final OutputStream out;
+
+    private StompClient(Socket socket) throws IOException {
+        this.socket = socket;
+        this.in = new BufferedInputStream(socket.getInputStream());
+        this.out = socket.getOutputStream();
+    }
+
+    /**
+     * Connects to the broker.
+     *
+     * @param broker the broker
+     * @param login the user, or null to connect without credentials
+     * @param passcode the password
+     * @throws IOException if the broker could not be reached or refused the connection
+     */
+    public static StompClient connect(URI broker, String login, String passcode) throws IOException {
+        boolean ssl = switch (broker.getScheme()) {
+            case "stomp" -> false;
+            case "stomp+ssl" -> true;
+            default -> throw new IllegalArgumentException(
+                    "Unsupported broker " + broker + "; expected stomp or stomp+ssl");
+        };
+        int port = broker.getPort() != -1 ? broker.getPort() : ssl ? DEFAULT_SSL_PORT : DEFAULT_PORT;
+        Socket socket = ssl ? SSLSocketFactory.getDefault().createSocket() : new Socket();
+        StompClient client;
+        try {
+            socket.connect(new InetSocketAddress(broker.getHost(), port), (int) CONNECT_TIMEOUT.toMillis());
+            client = new StompClient(socket);
+            Map<String, String> headers = new LinkedHashMap<>();
+            headers.put("accept-version", "1.2");
+            headers.put("host", broker.getHost());
+            headers.put("heart-beat", "0,0");
+            if (login != null) {
+                headers.put("login", login);
+                headers.put("passcode", passcode);
+            }
+            client.send("CONNECT", headers);
+            Frame connected = client.receive(CONNECT_TIMEOUT);
+            if (connected == null || !connected.command().equals("CONNECTED")) {
+                throw new IOException("Unexpected response from " + broker + ": " + connected);
+            }
+            log.info("Connected to {} ({})", broker, connected.header("server"));
+        } catch (IOException | RuntimeException e) {
+            socket.close();
+            throw e;
+        }
+        return client;
+    }
+
+    /**
+     * Subscribes to a destination. Each message must be acknowledged with {@link #ack(Frame)}; until it is, the
+     * broker redelivers it to another subscriber should this one disconnect.
+     *
+     * @param id the id of the subscription
+     * @param destination the destination, e.g.
+     *        {@code /queue/Consumer.rpm-importer.VirtualTopic.eng.brew.build.complete}
+     */
+    public void subscribe(String id, String destination) throws IOException {
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("id", id);
+        headers.put("destination", destination);
+        headers.put("ack", "client-individual");
+        send("SUBSCRIBE", headers);
+    }
+
+    /**
+     * Acknowledges a message.
+     */
+    public void ack(Frame message) throws IOException {
+        if (message.header("ack") != null) {
+            send("ACK", Map.of("id", message.header("ack")));
+        } else {
+            // A STOMP 1.1 broker
+            send(
+                    "ACK",
+                    Map.of("message-id", message.header("message-id"), "subscription", message.header("subscription")));
+        }
+    }
+
+    /**
+     * Waits for the next frame.
+     *
+     * @param timeout how long to wait for the frame to start
+     * @return the frame, or null if none arrived in time
+     * @throws IOException if the connection failed or the broker sent an {@code ERROR}
+     */
+    public Frame receive(Duration timeout) throws IOException {
+        int b;
+        socket.setSoTimeout((int) Math.max(1, timeout.toMillis()));
+        try {
+            // Skip the end of lines the broker may send between frames
+            do {
+                b = in.read();
+            } while (b == '\n' || b == '\r');
+        } catch (SocketTimeoutException e) {
+            return null;
+        }
+        // Once a frame has started the rest of it follows
+        socket.setSoTimeout(0);
+        if (b == -1) {
+            throw new EOFException("Connection closed by the broker");
+        }
+        String command = (char) b + readLine();
+        Map<String, String> headers = new LinkedHashMap<>();
+        for (String line = readLine(); !line.isEmpty(); line = readLine()) {
+            int colon = line.indexOf(':');
+            if (colon > 0) {
+                headers.putIfAbsent(unescape(line.substring(0, colon)), unescape(line.substring(colon + 1)));
+            }
+        }
+        byte[] body;
+        String contentLength = headers.get("content-length");
+        if (contentLength != null) {
+            body = in.readNBytes(Integer.parseInt(contentLength.trim()));
+            if (in.read() != 0) {
+                throw new IOException("Malformed " + command + " frame: missing terminator");
+            }
+        } else {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            for (int c = in.read(); c != 0; c = in.read()) {
+                if (c == -1) {
+                    throw new EOFException("Connection closed by the broker");
+                }
+                buffer.write(c);
+            }
+            body = buffer.toByteArray();
+        }
+        Frame frame = new Frame(command, headers, body);
+        if (command.equals("ERROR")) {
+            throw new IOException(
+                    "Broker error: " + frame.header("message") + " "
+                            + new String(body, StandardCharsets.UTF_8).strip());
+        }
+        return frame;
+    }
+
+    @Override
+    public void close() {
+        try {
+            send("DISCONNECT", Map.of());
+        } catch (IOException e) {
+            log.debug("Unable to disconnect cleanly", e);
+        }
+        try {
+            socket.close();
+        } catch (IOException e) {
+            log.debug("Unable to close connection", e);
+        }
+    }
+
+    private synchronized void send(String command, Map<String, String> headers) throws IOException {
+        StringBuilder frame = new StringBuilder(command).append('\n');
+        // CONNECT headers are not escaped
+        boolean escape = !command.equals("CONNECT");
+        headers.forEach(
+                (name, value) -> frame.append(escape ? escape(name) : name)
+                        .append(':')
+                        .append(escape ? escape(value) : value)
+                        .append('\n'));
+        frame.append('\n').append('\0');
+        out.write(frame.toString().getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private String readLine() throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        for (int c = in.read(); c != '\n'; c = in.read()) {
+            if (c == -1) {
+                throw new EOFException("Connection closed by the broker");
+            }
+            line.write(c);
+        }
+        String result = line.toString(StandardCharsets.UTF_8);
+        return result.endsWith("\r") ? result.substring(0, result.length() - 1) : result;
+    }
+
+    static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\r", "\\r").replace("\n", "\\n").replace(":", "\\c");
+    }
+
+    static String unescape(String value) {
+        if (value.indexOf('\\') == -1) {
+            return value;
+        }
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                result.append(
+                        switch (next) {
+                            case 'r' -> '\r';
+                            case 'n' -> '\n';
+                            case 'c' -> ':';
+                            default -> next;
+                        });
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,72 @@
+package org.jboss.pnc.rpm.importer.logging;
+
+import java.util.Locale;
+
+import org.jboss.pnc.rpm.importer.batch.Stage;
+import org.slf4j.MDC;
+
+/**
+ * Tags the log records of an import with the import, URL, branch and stage in the MDC so that the output of
+ * concurrent imports can be told apart, and so that {@link ImportLogHandler} can write each to its own file.
+ * <p>
+ * The context belongs to the thread it is opened on; work handed over to another thread (e.g. a push) opens
+ * its own.
+ */
+public class ImportContext implements AutoCloseable {
+
+    /**
+     * MDC key identifying the import; the repository name and branch.
+     */
+    public static final String IMPORT = "import";
+
+    public static final String URL = "url";
+
+    public static final String BRANCH = "branch";
+
+    public static final String STAGE = "stage";
+
+    private ImportContext() {
+    }
+
+    /**
+     * Opens the context for an import on this thread.
+     *
+     * @param url the external URL of the repository
+     * @param branch the branch
+     * @return the context, which removes the MDC values when closed
+     */
+    public static ImportContext open(String url, String branch) {
+        MDC.put(IMPORT, id(url, branch));
+        MDC.put(URL, url);
+        MDC.put(BRANCH, branch);
+        MDC.remove(STAGE);
+        return new ImportContext();
+    }
+
+    /**
+     * Records the stage the import on this thread has reached.
+     */
+    public static void reached(Stage stage) {
+        if (MDC.get(IMPORT) != null) {
+            MDC.put(STAGE, stage.name().toLowerCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * @return an identifier for the import that is also safe to use as a file name, e.g.
+     *         {@code eap-jb-eap-8.0-rhel-9}
+     */
+    public static String id(String url, String branch) {
+        String name = url == null ? "" : url.replaceFirst("/+$", "").replaceFirst("\\.git$", "");
+        name = name.substring(Math.max(name.lastIndexOf('/'), name.lastIndexOf(':')) + 1);
+        return (name + "-" + branch).replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+    @Override
+    public void close() {
+        MDC.remove(IMPORT);
+        MDC.remove(URL);
+        MDC.remove(BRANCH);
+        MDC.remove(STAGE);
+    }
+}
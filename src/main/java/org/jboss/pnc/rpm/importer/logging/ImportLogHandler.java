@@ -0,0 +1,147 @@
+package org.jboss.pnc.rpm.importer.logging;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.ErrorManager;
+import java.util.logging.Logger;
+
+import org.jboss.logmanager.ExtHandler;
+import org.jboss.logmanager.ExtLogRecord;
+import org.jboss.logmanager.formatters.PatternFormatter;
+import org.jboss.logmanager.handlers.AsyncHandler;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Writes the log records of each import (as tagged by {@link ImportContext}) as JSON lines to a file of its
+ * own, {@code <directory>/<import>.log}. Records outside an import are ignored.
+ * <p>
+ * It is installed behind a bounded {@link AsyncHandler} so the formatting and file I/O happen on the handler's
+ * thread rather than the importing threads; if the queue fills up the importing threads block rather than
+ * records being dropped. Only a limited number of files are kept open at once.
+ */
+public class ImportLogHandler extends ExtHandler {
+
+    /**
+     * The logger the handler is installed on; the importer's own records.
+     */
+    static final String CATEGORY = "org.jboss.pnc.rpm";
+
+    private static final int QUEUE_LENGTH = 4096;
+
+    private static final int OPEN_FILES = 64;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final PatternFormatter MESSAGE = new PatternFormatter("%s");
+
+    private final Path directory;
+
+    private final Map<String, Writer> writers = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Writer> eldest) {
+            if (size() > OPEN_FILES) {
+                close(eldest.getValue());
+                return true;
+            }
+            return false;
+        }
+    };
+
+    ImportLogHandler(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Starts writing a log file per import.
+     *
+     * @param directory the directory to write the files to, which is created if needed
+     * @return the installed handler, to pass to {@link #uninstall}
+     */
+    public static AsyncHandler install(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        AsyncHandler async = new AsyncHandler(QUEUE_LENGTH);
+        async.setOverflowAction(AsyncHandler.OverflowAction.BLOCK);
+        async.addHandler(new ImportLogHandler(directory));
+        async.setCloseChildren(true);
+        Logger.getLogger(CATEGORY).addHandler(async);
+        return async;
+    }
+
+    /**
+     * Removes the handler, writing out any queued records and closing the files.
+     */
+    public static void uninstall(AsyncHandler handler) {
+        Logger.getLogger(CATEGORY).removeHandler(handler);
+        handler.close();
+    }
+
+    @Override
+    protected void doPublish(ExtLogRecord record) {
+        String id = record.getMdc(ImportContext.IMPORT);
+        if (id == null || !isLoggable(record)) {
+            return;
+        }
+        ObjectNode json = MAPPER.createObjectNode();
+        json.put("timestamp", record.getInstant().toString());
+        json.put("level", record.getLevel().getName());
+        json.put("logger", record.getLoggerName());
+        json.put("thread", record.getThreadName());
+        json.put("url", record.getMdc(ImportContext.URL));
+        json.put("branch", record.getMdc(ImportContext.BRANCH));
+        json.put("stage", record.getMdc(ImportContext.STAGE));
+        json.put("message", MESSAGE.format(record));
+        if (record.getThrown() != null) {
+            StringWriter trace = new StringWriter();
+            record.getThrown().printStackTrace(new PrintWriter(trace));
+            json.put("exception", trace.toString());
+        }
+        try {
+            Writer writer = writers.computeIfAbsent(id, this::open);
+            writer.write(MAPPER.writeValueAsString(json));
+            writer.write('\n');
+            writer.flush();
+        } catch (IOException | UncheckedIOException e) {
+            reportError("Unable to write the log of " + id, e, ErrorManager.WRITE_FAILURE);
+        }
+    }
+
+    private Writer open(String id) {
+        try {
+            return new BufferedWriter(
+                    Files.newBufferedWriter(
+                            directory.resolve(id + ".log"),
+                            StandardCharsets.UTF_8,
+                            StandardOpenOption.CREATE,
+                            StandardOpenOption.APPEND));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void close(Writer writer) {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            reportError("Unable to close an import log", e, ErrorManager.CLOSE_FAILURE);
+        }
+    }
+
+    @Override
+    public void close() {
+        writers.values().forEach(this::close);
+        writers.clear();
+        super.close();
+    }
+}
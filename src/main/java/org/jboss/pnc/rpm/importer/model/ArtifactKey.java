@@ -0,0 +1,34 @@
+package org.jboss.pnc.rpm.importer.model;
+
+import static java.util.Comparator.naturalOrder;
+import static java.util.Comparator.nullsFirst;
+
+import java.util.Comparator;
+
+/**
+ * Compact, version-less key of a wrapped build artifact. The version is not needed as every artifact
+ * comes from the same build and is referenced via {@code ${wrappedBuild}} in the POM.
+ *
+ * @param groupId the groupId
+ * @param artifactId the artifactId
+ * @param classifier the classifier, or null
+ * @param type the type (e.g. jar)
+ */
+public record ArtifactKey(String groupId, String artifactId, String classifier, String type)
+        implements Comparable<ArtifactKey> {
+
+    private static final Comparator<ArtifactKey> ORDER = Comparator.comparing(ArtifactKey::groupId)
+            .thenComparing(ArtifactKey::artifactId)
+            .thenComparing(ArtifactKey::classifier, nullsFirst(naturalOrder()))
+            .thenComparing(ArtifactKey::type, nullsFirst(naturalOrder()));
+
+    @Override
+    public int compareTo(ArtifactKey o) {
+        return ORDER.compare(this, o);
+    }
+
+    @Override
+    public String toString() {
+        return groupId + ":" + artifactId + ":" + (classifier == null ? "" : classifier) + ":" + type;
+    }
+}
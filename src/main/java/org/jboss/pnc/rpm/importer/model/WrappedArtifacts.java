@@ -0,0 +1,142 @@
+package org.jboss.pnc.rpm.importer.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.StringUtils;
+import org.commonjava.atlas.maven.ident.ref.ArtifactRef;
+import org.commonjava.atlas.maven.ident.ref.SimpleArtifactRef;
+
+/**
+ * Accumulates the artifacts of a wrapped build as pages are retrieved from PNC. Only a compact
+ * {@link ArtifactKey} is retained per unique artifact, so memory is proportional to the number of
+ * distinct artifacts that will be written to the POM rather than to the number of artifacts (and pages)
+ * returned. Artifacts matching an exclusion pattern are dropped as they arrive.
+ */
+public class WrappedArtifacts {
+
+    // Maps each artifact to its size in bytes (0 if unknown).
+    private final NavigableMap<ArtifactKey, Long> keys = new TreeMap<>();
+
+    // Most artifacts share a handful of groupIds so only retain one copy of each.
+    private final Map<String, String> groupIds = new HashMap<>();
+
+    private final List<Pattern> excludes;
+
+    private SimpleArtifactRef projectSources;
+
+    private int received;
+
+    public WrappedArtifacts() {
+        this(List.of());
+    }
+
+    /**
+     * @param excludes glob patterns (where {@code *} matches anything) matched against
+     *        {@code groupId:artifactId:classifier:type}
+     */
+    public WrappedArtifacts(Collection<String> excludes) {
+        this.excludes = excludes.stream()
+                .map(e -> Pattern.compile(Pattern.quote(e).replace("*", "\\E.*\\Q")))
+                .toList();
+    }
+
+    /**
+     * Adds an artifact of unknown size, unless it is excluded or already present.
+     *
+     * @param ref the artifact
+     * @return true if the artifact was added
+     */
+    public boolean add(ArtifactRef ref) {
+        return add(ref, null);
+    }
+
+    /**
+     * Adds an artifact, unless it is excluded or already present.
+     *
+     * @param ref the artifact
+     * @param size the size in bytes, or null if unknown
+     * @return true if the artifact was added
+     */
+    public boolean add(ArtifactRef ref, Long size) {
+        received++;
+        ArtifactKey key = new ArtifactKey(
+                groupIds.computeIfAbsent(ref.getGroupId(), g -> g),
+                ref.getArtifactId(),
+                StringUtils.isEmpty(ref.getClassifier()) ? null : ref.getClassifier(),
+                ref.getType());
+        String match = key.toString();
+        if (excludes.stream().anyMatch(p -> p.matcher(match).matches())) {
+            return false;
+        }
+        if (projectSources == null && "project-sources".equals(key.classifier())) {
+            projectSources = new SimpleArtifactRef(
+                    ref.getGroupId(),
+                    ref.getArtifactId(),
+                    ref.getVersionString(),
+                    ref.getType(),
+                    ref.getClassifier());
+        }
+        return keys.putIfAbsent(key, size == null ? 0L : size) == null;
+    }
+
+    /**
+     * @return the unique artifacts, sorted
+     */
+    public NavigableSet<ArtifactKey> keys() {
+        return keys.navigableKeySet();
+    }
+
+    /**
+     * Removes every artifact that does not match the predicate.
+     *
+     * @param keep the predicate artifacts must match to be retained
+     * @return the removed artifacts
+     */
+    public Pruned retain(Predicate<ArtifactKey> keep) {
+        List<ArtifactKey> removed = new ArrayList<>();
+        long bytes = 0;
+        var iterator = keys.entrySet().iterator();
+        while (iterator.hasNext()) {
+            var entry = iterator.next();
+            if (!keep.test(entry.getKey())) {
+                removed.add(entry.getKey());
+                bytes += entry.getValue();
+                iterator.remove();
+            }
+        }
+        return new Pruned(removed, bytes);
+    }
+
+    /**
+     * @return the first artifact with the project-sources classifier, if any
+     */
+    public Optional<SimpleArtifactRef> projectSources() {
+        return Optional.ofNullable(projectSources);
+    }
+
+    /**
+     * @return the total number of artifacts passed to {@link #add}, including duplicates and exclusions
+     */
+    public int received() {
+        return received;
+    }
+
+    /**
+     * The artifacts removed by {@link #retain}.
+     *
+     * @param artifacts the removed artifacts
+     * @param bytes the total size of the removed artifacts, where known
+     */
+    public record Pruned(List<ArtifactKey> artifacts, long bytes) {
+    }
+}
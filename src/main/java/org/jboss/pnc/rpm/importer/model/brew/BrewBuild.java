@@ -0,0 +1,13 @@
+package org.jboss.pnc.rpm.importer.model.brew;
+
+/**
+ * Slim projection of a Brew build containing only the fields the importer uses. See {@link BuildInfo} for
+ * the full model.
+ *
+ * @param nvr the NVR of the build
+ * @param externalBuildId the PNC build id, if built in PNC
+ * @param maven the Maven GAV, taken from {@code extra.typeinfo.maven} or, for legacy builds,
+ *        {@code extra.maven}. Null if this is not a Maven build.
+ */
+public record BrewBuild(String nvr, String externalBuildId, MavenGav maven) {
+}
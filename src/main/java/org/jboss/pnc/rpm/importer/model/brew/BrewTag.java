@@ -0,0 +1,40 @@
+package org.jboss.pnc.rpm.importer.model.brew;
+
+import static org.apache.commons.lang3.StringUtils.isNotEmpty;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.jboss.pnc.rpm.importer.utils.Utils;
+
+/**
+ * Slim projection of a Brew tag containing only the RPM macros from the tag extras. See {@link TagInfo}
+ * for the full model.
+ *
+ * @param name the tag name
+ * @param rhpkgSclPrefix the {@code rhpkg_scl_prefix} extra
+ * @param rpmMacroScl the {@code rpm.macro.scl} extra
+ * @param rpmMacroDist the {@code rpm.macro.dist} extra
+ */
+public record BrewTag(String name, String rhpkgSclPrefix, String rpmMacroScl, String rpmMacroDist) {
+
+    /**
+     * Extracts the RPM macros from the tag. The {@code rpm.macro.scl} value takes precedence over the
+     * older {@code rhpkg_scl_prefix}.
+     *
+     * @return a map of macro name to value, which may be empty
+     */
+    public Map<String, String> macros() {
+        Map<String, String> macros = new LinkedHashMap<>();
+        if (isNotEmpty(rhpkgSclPrefix)) {
+            macros.put("scl", rhpkgSclPrefix);
+        }
+        if (isNotEmpty(rpmMacroScl)) {
+            macros.put("scl", rpmMacroScl);
+        }
+        if (isNotEmpty(rpmMacroDist)) {
+            macros.put("dist", Utils.normalizeDistMacro(rpmMacroDist));
+        }
+        return macros;
+    }
+}
@@ -0,0 +1,20 @@
+package org.jboss.pnc.rpm.importer.model.brew;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Slim projection of the Maven block ({@code extra.typeinfo.maven} or the legacy {@code extra.maven})
+ * of a Brew build.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record MavenGav(
+        @JsonProperty("group_id") String groupId,
+        @JsonProperty("artifact_id") String artifactId,
+        @JsonProperty("version") String version) {
+
+    @Override
+    public String toString() {
+        return groupId + ":" + artifactId + ":" + version;
+    }
+}
@@ -0,0 +1,47 @@
+package org.jboss.pnc.rpm.importer.reqour;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A local external to internal URL rewrite. The pattern must match the whole external URL; the internal URL
+ * is formed from the replacement, which may refer to groups (e.g. {@code $1}).
+ *
+ * @param pattern the regular expression matching the external URL
+ * @param replacement the internal URL
+ */
+public record TranslationRule(Pattern pattern, String replacement) {
+
+    /**
+     * Reads the rules from a file containing one {@code <regex> <replacement>} per line. Blank lines and
+     * those starting with '#' are ignored.
+     */
+    public static List<TranslationRule> parse(Path file) throws IOException {
+        return Files.readAllLines(file)
+                .stream()
+                .map(String::trim)
+                .filter(l -> !l.isEmpty() && !l.startsWith("#"))
+                .map(l -> {
+                    String[] parts = l.split("\\s+");
+                    if (parts.length != 2) {
+                        throw new IllegalArgumentException("Invalid translation rule '" + l + "' in " + file);
+                    }
+                    return new TranslationRule(Pattern.compile(parts[0]), parts[1]);
+                })
+                .toList();
+    }
+
+    /**
+     * @param externalUrl the external URL
+     * @return the internal URL if this rule matches
+     */
+    public Optional<String> apply(String externalUrl) {
+        Matcher matcher = pattern.matcher(externalUrl);
+        return matcher.matches() ? Optional.of(matcher.replaceFirst(replacement)) : Optional.empty();
+    }
+}
@@ -0,0 +1,222 @@
+package org.jboss.pnc.rpm.importer.reqour;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.jboss.pnc.api.reqour.dto.TranslateRequest;
+import org.jboss.pnc.rpm.importer.backend.Coalescer;
+import org.jboss.pnc.rpm.importer.clients.ReqourService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Translates external (e.g. dist-git) URLs to their internal equivalent. The mapping for a given URL never
+ * changes, so before calling reqour the configured {@link TranslationRule}s and then a persistent cache of
+ * previous reqour answers are consulted. Concurrent misses for the same URL share one reqour call.
+ * <p>
+ * The cache file may be shared by several reqour instances (e.g. the profiles of the Bacon configuration),
+ * so its entries are keyed by reqour URL as well as external URL and only those of this reqour are used.
+ */
+public class UrlTranslator {
+    private static final Logger log = LoggerFactory.getLogger(UrlTranslator.class);
+
+    private final ReqourService reqourService;
+
+    private final String reqourUrl;
+
+    private final List<TranslationRule> rules;
+
+    private final Path cacheFile;
+
+    private final Map<String, String> cache = new ConcurrentHashMap<>();
+
+    /**
+     * The entries of the cache file for other reqour instances, kept so that saving does not drop them.
+     */
+    private final Properties otherEntries = new Properties();
+
+    private final Coalescer<String, String> translations = new Coalescer<>("reqour translation");
+
+    /**
+     * @param reqourService the reqour client
+     * @param reqourUrl the reqour URL, may be null if reqour is not configured
+     * @param rules the local rewrite rules
+     * @param cacheFile the file to persist reqour answers in, may be null to only cache in memory
+     */
+    public UrlTranslator(ReqourService reqourService, String reqourUrl, List<TranslationRule> rules, Path cacheFile) {
+        this.reqourService = reqourService;
+        this.reqourUrl = reqourUrl;
+        this.rules = rules;
+        this.cacheFile = cacheFile;
+        load();
+    }
+
+    /**
+     * @param externalUrl the external URL
+     * @return the internal URL
+     */
+    public String translate(String externalUrl) {
+        Optional<String> local = translateLocally(externalUrl);
+        if (local.isPresent()) {
+            return local.get();
+        }
+        String internalUrl = callReqour(externalUrl);
+        cache.put(externalUrl, internalUrl);
+        save();
+        return internalUrl;
+    }
+
+    /**
+     * Translates many URLs at once. Duplicates are only translated once, and those that cannot be answered
+     * locally are sent to reqour concurrently with the cache written once at the end. A URL that reqour fails to
+     * translate is logged and left out, so that only the imports of that URL fail (or retry via
+     * {@link #translate(String)}).
+     *
+     * @param externalUrls the external URLs
+     * @param threads the maximum number of concurrent reqour calls
+     * @return the internal URLs keyed by external URL
+     */
+    public Map<String, String> translateAll(Collection<String> externalUrls, int threads) {
+        Map<String, String> result = new LinkedHashMap<>();
+        Set<String> misses = new LinkedHashSet<>();
+        for (String url : externalUrls) {
+            translateLocally(url).ifPresentOrElse(internal -> result.put(url, internal), () -> misses.add(url));
+        }
+        log.info(
+                "Translated {} URLs locally; {} require reqour",
+                result.size(),
+                misses.size());
+        if (misses.isEmpty()) {
+            return result;
+        }
+        try (ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, misses.size()))) {
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (String url : misses) {
+                futures.add(
+                        CompletableFuture.supplyAsync(() -> callReqour(url), executor)
+                                .thenAccept(internal -> cache.put(url, internal))
+                                .exceptionally(e -> {
+                                    log.warn("Unable to translate {}", url, e.getCause());
+                                    return null;
+                                }));
+            }
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        } finally {
+            save();
+        }
+        misses.stream().filter(cache::containsKey).forEach(url -> result.put(url, cache.get(url)));
+        return result;
+    }
+
+    private Optional<String> translateLocally(String externalUrl) {
+        for (TranslationRule rule : rules) {
+            Optional<String> internalUrl = rule.apply(externalUrl);
+            if (internalUrl.isPresent()) {
+                log.debug("Translated {} to {} using rule {}", externalUrl, internalUrl.get(), rule.pattern());
+                return internalUrl;
+            }
+        }
+        String cached = cache.get(externalUrl);
+        if (cached != null) {
+            log.debug("Translated {} to {} from cache", externalUrl, cached);
+        }
+        return Optional.ofNullable(cached);
+    }
+
+    private String callReqour(String externalUrl) {
+        return translations.get(externalUrl, () -> {
+            // Another caller may have completed the same translation while this one checked the cache
+            String cached = cache.get(externalUrl);
+            return cached != null ? cached : translateRemotely(externalUrl);
+        });
+    }
+
+    private String translateRemotely(String externalUrl) {
+        if (reqourUrl == null) {
+            log.error("""
+                    Configure reqour within the Bacon config file i.e.:
+                      reqour:
+                         url: "https://reqour.pnc.<as other URLS...>"
+                    """);
+            throw new RuntimeException("No reqour configuration found.");
+        }
+        try {
+            return reqourService.external_to_internal(
+                    reqourUrl,
+                    TranslateRequest.builder().externalUrl(externalUrl).build())
+                    .getInternalUrl();
+        } catch (RuntimeException e) {
+            log.error(
+                    "Unable to connect to reqour. Have you configured requor in the Bacon configuration file correctly?");
+            throw e;
+        }
+    }
+
+    private void load() {
+        if (cacheFile == null || reqourUrl == null || !Files.exists(cacheFile)) {
+            return;
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(cacheFile)) {
+            properties.load(reader);
+        } catch (IOException e) {
+            log.warn("Unable to read translation cache {}; ignoring it", cacheFile, e);
+            return;
+        }
+        String prefix = cacheKey("");
+        properties.forEach((k, v) -> {
+            if (k.toString().startsWith(prefix)) {
+                cache.put(k.toString().substring(prefix.length()), v.toString());
+            } else {
+                otherEntries.put(k, v);
+            }
+        });
+        log.debug("Loaded {} translations from {}", cache.size(), cacheFile);
+    }
+
+    private synchronized void save() {
+        if (cacheFile == null || reqourUrl == null) {
+            return;
+        }
+        Properties properties = new Properties();
+        properties.putAll(otherEntries);
+        cache.forEach((externalUrl, internalUrl) -> properties.put(cacheKey(externalUrl), internalUrl));
+        try {
+            Files.createDirectories(cacheFile.toAbsolutePath().getParent());
+            // Write to a temporary file and move so a concurrent reader never sees a partial cache.
+            Path temp = Files.createTempFile(cacheFile.toAbsolutePath().getParent(), "translations", ".tmp");
+            try (Writer writer = Files.newBufferedWriter(temp)) {
+                properties.store(writer, "reqour external to internal URL translations");
+            }
+            Files.move(temp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // The cache is only an optimisation so failing to write it is not fatal.
+            log.warn("Unable to write translation cache {}", cacheFile, e);
+        }
+    }
+
+    /**
+     * @return the key of the cache file entry for the external URL, i.e. the reqour URL and the external URL
+     *         separated by a space (which neither contains)
+     */
+    private String cacheKey(String externalUrl) {
+        return reqourUrl + " " + externalUrl;
+    }
+}
@@ -0,0 +1,415 @@
+package org.jboss.pnc.rpm.importer.scan;
+
+import static eu.maveniverse.domtrip.maven.MavenPomElements.Elements.ARTIFACT_ID;
+import static eu.maveniverse.domtrip.maven.MavenPomElements.Elements.BUILD;
+import static eu.maveniverse.domtrip.maven.MavenPomElements.Elements.DEPENDENCIES;
+import static eu.maveniverse.domtrip.maven.MavenPomElements.Elements.DEPENDENCY_MANAGEMENT;
+import static eu.maveniverse.domtrip.maven.MavenPomElements.Elements.GROUP_ID;
+import static eu.maveniverse.domtrip.maven.MavenPomElements.Elements.PLUGINS;
+import static eu.maveniverse.domtrip.maven.MavenPomElements.Elements.PROPERTIES;
+import static eu.maveniverse.domtrip.maven.MavenPomElements.Elements.VERSION;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.transport.RefSpec;
+import org.eclipse.jgit.transport.TagOpt;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.jboss.pnc.rpm.importer.backend.Backend;
+import org.jboss.pnc.rpm.importer.backend.Backends;
+import org.jboss.pnc.rpm.importer.jfr.GitEvent;
+import org.jboss.pnc.rpm.importer.jfr.GitProgress;
+import org.jboss.pnc.rpm.importer.model.brew.BrewBuild;
+import org.jboss.pnc.rpm.importer.model.brew.BrewTag;
+import org.jboss.pnc.rpm.importer.model.brew.MavenGav;
+import org.jboss.pnc.rpm.importer.utils.Brew;
+import org.jboss.pnc.rpm.importer.utils.ETT;
+import org.jboss.pnc.rpm.importer.utils.EttMetadata;
+import org.jboss.pnc.rpm.importer.utils.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import eu.maveniverse.domtrip.Document;
+import eu.maveniverse.domtrip.Element;
+import eu.maveniverse.domtrip.maven.PomEditor;
+
+/**
+ * Scans repositories containing generated POMs and reports the branches whose POM no longer matches
+ * Brew (the {@code last-mead-build} and the build tag macros) or the latest rpm-builder-maven-plugin.
+ * <p>
+ * Only the ETT files and the {@code pom.xml} are needed, so rather than cloning each repository a bare
+ * mirror is maintained under the mirror root. A single ref advertisement per repository lists every
+ * branch head and only branches whose head has moved since the last scan are fetched (with a depth of
+ * one). The repositories are then read straight from the object database without any checkout.
+ */
+public class DriftScanner {
+    private static final Logger log = LoggerFactory.getLogger(DriftScanner.class);
+
+    private static final Pattern PNC_BUILD_PATTERN = Pattern.compile("from PNC build (\\S+)");
+
+    private static final Set<String> SCANNED_FILES = Set.of(
+            ETT.LAST_MEAD_BUILD,
+            ETT.MEAD_PKG_NAME,
+            ETT.VERSION_RELEASE_SERIAL,
+            "pom.xml");
+
+    private final Path mirrorRoot;
+
+    private final int threads;
+
+    private final Map<String, Path> mirrors = new ConcurrentHashMap<>();
+
+    /**
+     * The Brew lookups, keyed by NVR and by branch. Unknown NVRs are cached as empty so they are only queried once.
+     */
+    private final Map<String, Optional<BrewBuild>> builds = new ConcurrentHashMap<>();
+
+    private final Map<String, Optional<Map<String, String>>> tagMacros = new ConcurrentHashMap<>();
+
+    private String latestPluginVersion;
+
+    public DriftScanner(Path mirrorRoot, int threads) {
+        this.mirrorRoot = mirrorRoot;
+        this.threads = threads;
+    }
+
+    /**
+     * Scans all the targets.
+     *
+     * @param targets the repositories (and optionally branches) to scan
+     * @return a result for every scanned branch, sorted by repository and branch
+     */
+    public List<ScanResult> scan(List<ScanTarget> targets) {
+        try {
+            latestPluginVersion = Utils.getLatestRpmBuilderMavenPluginVersion();
+        } catch (IOException e) {
+            log.warn("Unable to determine latest rpm-builder-maven-plugin version; skipping plugin check", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+
+        List<ScanResult> results = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            // First mirror every repository, then compare every branch. Keeping the phases separate
+            // means no task ever waits on another task in the same pool.
+            List<Future<Map<String, ObjectId>>> mirrored = new ArrayList<>();
+            for (ScanTarget target : targets) {
+                mirrored.add(executor.submit(() -> mirror(target)));
+            }
+            List<Future<ScanResult>> compared = new ArrayList<>();
+            for (int i = 0; i < targets.size(); i++) {
+                ScanTarget target = targets.get(i);
+                Map<String, ObjectId> heads;
+                try {
+                    heads = mirrored.get(i).get();
+                } catch (ExecutionException e) {
+                    log.error("Unable to mirror {}", target.url(), e.getCause());
+                    results.add(new ScanResult(target.url(), "*", List.of("error: " + e.getCause().getMessage())));
+                    continue;
+                }
+                heads.forEach(
+                        (branch, head) -> compared.add(executor.submit(() -> compare(target.url(), branch, head))));
+            }
+            for (Future<ScanResult> result : compared) {
+                try {
+                    ScanResult scanResult = result.get();
+                    if (scanResult != null) {
+                        results.add(scanResult);
+                    }
+                } catch (ExecutionException e) {
+                    throw new RuntimeException(e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } finally {
+            executor.shutdownNow();
+        }
+        results.sort(Comparator.comparing(ScanResult::url).thenComparing(ScanResult::branch));
+        return results;
+    }
+
+    /**
+     * Reads the ETT files of the targets, updating their mirrors first so that only branches that have moved
+     * since the last read are fetched.
+     *
+     * @param targets the repositories (and optionally branches) to read
+     * @return the metadata of each branch that has ETT files, keyed by repository then branch. Repositories
+     *         that could not be read are left out.
+     */
+    public Map<String, Map<String, EttMetadata>> readEtt(List<ScanTarget> targets) {
+        Map<String, Map<String, EttMetadata>> result = new LinkedHashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Map<String, EttMetadata>>> read = new ArrayList<>();
+            for (ScanTarget target : targets) {
+                read.add(executor.submit(() -> {
+                    Map<String, ObjectId> heads = mirror(target);
+                    try (Git git = Git.open(mirrors.get(target.url()).toFile())) {
+                        return EttMetadata.load(git.getRepository(), heads.keySet());
+                    }
+                }));
+            }
+            for (int i = 0; i < targets.size(); i++) {
+                try {
+                    result.put(targets.get(i).url(), read.get(i).get());
+                } catch (ExecutionException e) {
+                    log.error("Unable to read the ETT files of {}", targets.get(i).url(), e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } finally {
+            executor.shutdownNow();
+        }
+        return result;
+    }
+
+    /**
+     * Updates the local bare mirror of the target with the branches to be scanned.
+     *
+     * @param target the repository to mirror
+     * @return a map of branch name to head commit for the branches to scan
+     */
+    Map<String, ObjectId> mirror(ScanTarget target) throws GitAPIException {
+        var lsRemote = Git.lsRemoteRepository()
+                .setRemote(target.url())
+                .setHeads(true);
+        Map<String, Ref> advertised = Backends.call(Backend.GIT, "ls-remote", lsRemote::callAsMap);
+        Map<String, ObjectId> heads = new LinkedHashMap<>();
+        advertised.forEach((name, ref) -> {
+            String branch = Repository.shortenRefName(name);
+            if (target.branches().isEmpty() || target.branches().contains(branch)) {
+                heads.put(branch, ref.getObjectId());
+            }
+        });
+        target.branches()
+                .stream()
+                .filter(b -> !heads.containsKey(b))
+                .forEach(b -> log.warn("Branch {} not found in {}", b, target.url()));
+
+        Path directory = mirrorRoot.resolve(target.url().replaceAll("[^A-Za-z0-9._-]", "_"));
+        try (Git git = Git.init().setBare(true).setDirectory(directory.toFile()).call()) {
+            List<RefSpec> refSpecs = new ArrayList<>();
+            for (var head : heads.entrySet()) {
+                String refName = Constants.R_HEADS + head.getKey();
+                Ref local = git.getRepository().exactRef(refName);
+                if (local == null || !head.getValue().equals(local.getObjectId())) {
+                    refSpecs.add(new RefSpec("+" + refName + ":" + refName));
+                }
+            }
+            log.info(
+                    "Repository {} has {} branches to scan ({} changed since last scan)",
+                    target.url(),
+                    heads.size(),
+                    refSpecs.size());
+            if (!refSpecs.isEmpty()) {
+                GitProgress progress = new GitProgress(NullProgressMonitor.INSTANCE);
+                GitEvent event = new GitEvent("fetch", target.url());
+                event.begin();
+                var fetch = git.fetch()
+                        .setRemote(target.url())
+                        .setRefSpecs(refSpecs)
+                        .setTagOpt(TagOpt.NO_TAGS)
+                        .setDepth(1)
+                        .setProgressMonitor(progress);
+                Backends.call(Backend.GIT, "fetch", fetch::call);
+                event.objects = progress.objects();
+                event.commit();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        mirrors.put(target.url(), directory);
+        return heads;
+    }
+
+    /**
+     * Compares the generated POM on a branch against Brew.
+     *
+     * @return the result, or null if the branch has no {@code last-mead-build}, whether or not it was explicitly
+     *         requested
+     */
+    ScanResult compare(String url, String branch, ObjectId head) {
+        Map<String, String> files;
+        try {
+            files = readFiles(mirrors.get(url), head);
+        } catch (IOException e) {
+            log.error("Unable to read {} branch {}", url, branch, e);
+            return new ScanResult(url, branch, List.of("error: " + e.getMessage()));
+        }
+        if (files.get(ETT.LAST_MEAD_BUILD) == null) {
+            log.debug("Skipping {} branch {} as it has no {}", url, branch, ETT.LAST_MEAD_BUILD);
+            return null;
+        }
+        List<String> reasons = new ArrayList<>();
+        String pom = files.get("pom.xml");
+        if (pom == null) {
+            reasons.add("pom.xml missing");
+            return new ScanResult(url, branch, reasons);
+        }
+        EttMetadata metadata;
+        try {
+            metadata = EttMetadata.parse(
+                    files.get(ETT.LAST_MEAD_BUILD),
+                    files.get(ETT.MEAD_PKG_NAME),
+                    files.get(ETT.VERSION_RELEASE_SERIAL));
+        } catch (RuntimeException e) {
+            log.error("Invalid ETT files in {} branch {}", url, branch, e);
+            reasons.add("invalid ETT files: " + e.getMessage());
+            return new ScanResult(url, branch, reasons);
+        }
+        try {
+            compare(branch, metadata, pom, reasons);
+        } catch (RuntimeException e) {
+            log.error("Unable to compare {} branch {}", url, branch, e);
+            reasons.add("error: " + e.getMessage());
+        }
+        if (!reasons.isEmpty()) {
+            log.info("Repository {} branch {} is out of date: {}", url, branch, reasons);
+        }
+        return new ScanResult(url, branch, reasons);
+    }
+
+    private void compare(String branch, EttMetadata metadata, String pom, List<String> reasons) {
+        Element root = new PomEditor(Document.of(pom)).root();
+
+        String wrappedBuild = root.child(PROPERTIES)
+                .flatMap(p -> p.child("wrappedBuild"))
+                .map(Element::textContent)
+                .orElse(null);
+        String namedVersion = metadata.namedVersion();
+        if (!namedVersion.equals(wrappedBuild)) {
+            reasons.add(ETT.VERSION_RELEASE_SERIAL + " " + namedVersion + " != wrappedBuild " + wrappedBuild);
+        }
+
+        String lastMeadBuild = metadata.lastMeadBuild();
+        BrewBuild build = cached(builds, lastMeadBuild, Brew::getBuild).orElse(null);
+        if (build == null || build.maven() == null) {
+            reasons.add(ETT.LAST_MEAD_BUILD + " " + lastMeadBuild + " is not a PNC build");
+        } else {
+            MavenGav maven = build.maven();
+            Optional<Element> dependency = root.child(DEPENDENCY_MANAGEMENT)
+                    .flatMap(d -> d.child(DEPENDENCIES))
+                    .flatMap(d -> d.child("dependency"));
+            String groupId = dependency.flatMap(d -> d.child(GROUP_ID)).map(Element::textContent).orElse(null);
+            String artifactId = dependency.flatMap(d -> d.child(ARTIFACT_ID)).map(Element::textContent).orElse(null);
+            if (!maven.groupId().equals(groupId) || !maven.artifactId().equals(artifactId)
+                    || !maven.version().equals(wrappedBuild)) {
+                reasons.add(
+                        ETT.LAST_MEAD_BUILD + " " + maven + " != wrapped build " + groupId + ":" + artifactId + ":"
+                                + wrappedBuild);
+            }
+            Matcher matcher = PNC_BUILD_PATTERN.matcher(pom);
+            String pncBuild = matcher.find() ? matcher.group(1) : null;
+            String externalBuildId = build.externalBuildId();
+            if (externalBuildId != null && !externalBuildId.equals(pncBuild)) {
+                reasons.add("PNC build " + externalBuildId + " != generated from " + pncBuild);
+            }
+        }
+
+        Optional<Element> plugin = root.child(BUILD)
+                .flatMap(b -> b.child(PLUGINS))
+                .stream()
+                .flatMap(Element::children)
+                .filter(
+                        p -> p.child(ARTIFACT_ID)
+                                .map(Element::textContent)
+                                .filter("rpm-builder-maven-plugin"::equals)
+                                .isPresent())
+                .findFirst();
+        String pluginVersion = plugin.flatMap(p -> p.child(VERSION)).map(Element::textContent).orElse(null);
+        if (latestPluginVersion != null && !latestPluginVersion.equals(pluginVersion)) {
+            reasons.add("rpm-builder-maven-plugin " + pluginVersion + " != latest " + latestPluginVersion);
+        }
+
+        Map<String, String> macros = plugin.flatMap(p -> p.child("configuration"))
+                .flatMap(c -> c.child("macros"))
+                .map(
+                        m -> m.children()
+                                .collect(
+                                        Collectors.toMap(
+                                                Element::name,
+                                                Element::textContent,
+                                                (a, b) -> b,
+                                                HashMap::new)))
+                .orElse(Map.of());
+        Map<String, String> expected = cached(tagMacros, branch, this::getTagMacros).orElseThrow();
+        if (!expected.equals(macros)) {
+            reasons.add("tag macros " + expected + " != " + macros);
+        }
+    }
+
+    /**
+     * Looks up a value, loading it on a miss. The load runs outside the map rather than in
+     * {@link Map#computeIfAbsent}, as it may run a Brew process and a {@link ConcurrentHashMap} would hold the
+     * lock of the bin (and so block unrelated keys) for the whole time. Concurrent misses for the same key are
+     * coalesced by {@link Brew}.
+     */
+    private static <V> Optional<V> cached(Map<String, Optional<V>> cache, String key, Function<String, V> loader) {
+        Optional<V> value = cache.get(key);
+        if (value == null) {
+            value = Optional.ofNullable(loader.apply(key));
+            Optional<V> previous = cache.putIfAbsent(key, value);
+            if (previous != null) {
+                value = previous;
+            }
+        }
+        return value;
+    }
+
+    private Map<String, String> getTagMacros(String branch) {
+        BrewTag tag = Brew.getTag(branch + "-build");
+        return tag == null ? Map.of() : tag.macros();
+    }
+
+    /**
+     * Reads the ETT files and pom.xml from the top level tree of a commit in a single pass.
+     */
+    private static Map<String, String> readFiles(Path mirror, ObjectId head) throws IOException {
+        Map<String, String> files = new HashMap<>();
+        try (Git git = Git.open(mirror.toFile());
+                RevWalk revWalk = new RevWalk(git.getRepository());
+                TreeWalk treeWalk = new TreeWalk(git.getRepository())) {
+            treeWalk.addTree(revWalk.parseCommit(head).getTree());
+            treeWalk.setRecursive(false);
+            while (treeWalk.next()) {
+                if (SCANNED_FILES.contains(treeWalk.getNameString())) {
+                    byte[] content = git.getRepository().open(treeWalk.getObjectId(0)).getBytes();
+                    files.put(treeWalk.getNameString(), new String(content, StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return files;
+    }
+}
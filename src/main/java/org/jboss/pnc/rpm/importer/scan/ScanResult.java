@@ -0,0 +1,17 @@
+package org.jboss.pnc.rpm.importer.scan;
+
+import java.util.List;
+
+/**
+ * The outcome of scanning a single repository branch.
+ *
+ * @param url the repository URL
+ * @param branch the branch
+ * @param reasons why the generated POM is out of date; empty if it is current
+ */
+public record ScanResult(String url, String branch, List<String> reasons) {
+
+    public boolean isStale() {
+        return !reasons.isEmpty();
+    }
+}
@@ -0,0 +1,36 @@
+package org.jboss.pnc.rpm.importer.scan;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A repository to scan, optionally restricted to a set of branches.
+ *
+ * @param url the (internal) URL of the repository containing the generated POMs
+ * @param branches the branches to scan; if empty every branch containing ETT files is scanned
+ */
+public record ScanTarget(String url, List<String> branches) {
+
+    /**
+     * Parses a scan file. Each non-empty line that does not start with {@code #} has the format
+     *
+     * <pre>
+     * {@code <url> [branch...]}
+     * </pre>
+     *
+     * @param file the file to read
+     * @return the list of targets in file order
+     */
+    public static List<ScanTarget> parse(Path file) throws IOException {
+        try (var lines = Files.lines(file)) {
+            return lines.map(String::trim)
+                    .filter(l -> !l.isEmpty() && !l.startsWith("#"))
+                    .map(l -> l.split("\\s+"))
+                    .map(f -> new ScanTarget(f[0], Arrays.asList(f).subList(1, f.length)))
+                    .toList();
+        }
+    }
+}
@@ -1,25 +1,77 @@
 package org.jboss.pnc.rpm.importer.utils;
 
+import org.jboss.pnc.rpm.importer.backend.Backend;
+import org.jboss.pnc.rpm.importer.backend.Backends;
+import org.jboss.pnc.rpm.importer.backend.Coalescer;
+import org.jboss.pnc.rpm.importer.model.brew.BrewBuild;
+import org.jboss.pnc.rpm.importer.model.brew.BrewTag;
+
 import io.smallrye.common.process.ProcessBuilder;
 
 public class Brew {
+    /**
+     * The system property that overrides the Brew CLI, e.g. with a stub when load testing.
+     */
+    public static final String BREW_PROPERTY = "rpm-importer.brew";
+
     private static final String BREW = "/usr/bin/brew";
 
-    public static String getBuildInfo(String nvr) {
-        return ProcessBuilder.execToString(
-                BREW,
-                "call",
-                "--json-output",
-                "getBuild",
-                nvr);
+    /**
+     * Many packages share a tag (and several branches may wrap the same build), so concurrent imports
+     * frequently ask for the same thing at once.
+     */
+    private static final Coalescer<String, BrewBuild> BUILDS = new Coalescer<>("Brew getBuild");
+
+    private static final Coalescer<String, BrewTag> TAGS = new Coalescer<>("Brew getTag");
+
+    /**
+     * Retrieves a build from Brew. The JSON output is parsed as it is streamed from the process rather than
+     * being read into a String first.
+     *
+     * @param nvr the NVR of the build
+     * @return the build or null if Brew does not know the NVR
+     */
+    public static BrewBuild getBuild(String nvr) {
+        return BUILDS.get(
+                nvr,
+                () -> Backends.call(
+                        Backend.BREW,
+                        "getBuild",
+                        () -> ProcessBuilder.newBuilder(brew())
+                                .arguments(
+                                        "call",
+                                        "--json-output",
+                                        "getBuild",
+                                        nvr)
+                                .output()
+                                .processBytesWith(BrewParser::parseBuild)
+                                .run()));
+    }
+
+    /**
+     * Retrieves a tag from Brew.
+     *
+     * @param tag the tag name
+     * @return the tag or null if Brew does not know the tag
+     */
+    public static BrewTag getTag(String tag) {
+        return TAGS.get(
+                tag,
+                () -> Backends.call(
+                        Backend.BREW,
+                        "getTag",
+                        () -> ProcessBuilder.newBuilder(brew())
+                                .arguments(
+                                        "call",
+                                        "--json-output",
+                                        "getTag",
+                                        tag)
+                                .output()
+                                .processBytesWith(BrewParser::parseTag)
+                                .run()));
     }
 
-    public static String getTagInfo(String tag) {
-        return ProcessBuilder.execToString(
-                BREW,
-                "call",
-                "--json-output",
-                "getTag",
-                tag);
+    private static String brew() {
+        return System.getProperty(BREW_PROPERTY, BREW);
     }
 }
@@ -0,0 +1,176 @@
+package org.jboss.pnc.rpm.importer.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.jboss.pnc.rpm.importer.model.brew.BrewBuild;
+import org.jboss.pnc.rpm.importer.model.brew.BrewTag;
+import org.jboss.pnc.rpm.importer.model.brew.MavenGav;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+/**
+ * Streaming parser for the {@code brew call --json-output} output. Rather than binding the whole document
+ * into {@link org.jboss.pnc.rpm.importer.model.brew.BuildInfo} (with its many boxed and {@code Object}
+ * fields) only the fields that are needed are pulled out of the token stream; everything else is skipped
+ * without being materialised.
+ */
+public class BrewParser {
+    private static final Logger log = LoggerFactory.getLogger(BrewParser.class);
+
+    // ObjectReader is immutable and thread safe so a single preconfigured instance is shared.
+    private static final ObjectReader MAVEN_READER = new ObjectMapper().readerFor(MavenGav.class);
+
+    private static final int BUILD_STATE_COMPLETE = 1;
+
+    /**
+     * Parses the output of {@code brew call --json-output getBuild <nvr>}.
+     *
+     * @param json the JSON stream
+     * @return the build, or null if Brew returned null (i.e. unknown NVR)
+     */
+    public static BrewBuild parseBuild(InputStream json) throws IOException {
+        try (JsonParser parser = MAVEN_READER.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            return readBuild(parser);
+        }
+    }
+
+    /**
+     * Parses a Brew build message, as published on the message bus when the state of a build changes (e.g.
+     * {@code VirtualTopic.eng.brew.build.complete}). The build is held in {@code info} and the new state, if
+     * present, in {@code new}.
+     *
+     * @param json the JSON stream
+     * @return the build, or null if the message is not about a build that completed
+     */
+    public static BrewBuild parseBuildMessage(InputStream json) throws IOException {
+        try (JsonParser parser = MAVEN_READER.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            BrewBuild build = null;
+            boolean complete = true;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken token = parser.nextToken();
+                if ("info".equals(field) && token == JsonToken.START_OBJECT) {
+                    build = readBuild(parser);
+                } else if ("new".equals(field)) {
+                    // Either the state id or its name
+                    String state = parser.getValueAsString();
+                    complete = String.valueOf(BUILD_STATE_COMPLETE).equals(state) || "COMPLETE".equals(state);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return complete && build != null && build.nvr() != null ? build : null;
+        }
+    }
+
+    /**
+     * Reads the fields of a build, from just after its start.
+     */
+    private static BrewBuild readBuild(JsonParser parser) throws IOException {
+        String nvr = null;
+        String externalBuildId = null;
+        MavenGav typeinfoMaven = null;
+        MavenGav legacyMaven = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken token = parser.nextToken();
+            if ("nvr".equals(field)) {
+                nvr = parser.getValueAsString();
+            } else if ("extra".equals(field) && token == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String extraField = parser.currentName();
+                    JsonToken extraToken = parser.nextToken();
+                    switch (extraField) {
+                        case "external_build_id" -> externalBuildId = parser.getValueAsString();
+                        case "maven" -> legacyMaven = readMaven(parser, extraToken);
+                        case "typeinfo" -> typeinfoMaven = readTypeinfo(parser, extraToken);
+                        default -> parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        if (typeinfoMaven == null && legacyMaven != null) {
+            log.warn("Legacy typeinfo detected for {}", nvr);
+            typeinfoMaven = legacyMaven;
+        }
+        return new BrewBuild(nvr, externalBuildId, typeinfoMaven);
+    }
+
+    /**
+     * Parses the output of {@code brew call --json-output getTag <tag>}.
+     *
+     * @param json the JSON stream
+     * @return the tag, or null if Brew returned null (i.e. unknown tag)
+     */
+    public static BrewTag parseTag(InputStream json) throws IOException {
+        try (JsonParser parser = MAVEN_READER.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            String name = null;
+            String rhpkgSclPrefix = null;
+            String rpmMacroScl = null;
+            String rpmMacroDist = null;
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken token = parser.nextToken();
+                if ("name".equals(field)) {
+                    name = parser.getValueAsString();
+                } else if ("extra".equals(field) && token == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String extraField = parser.currentName();
+                        parser.nextToken();
+                        switch (extraField) {
+                            case "rhpkg_scl_prefix" -> rhpkgSclPrefix = parser.getValueAsString();
+                            case "rpm.macro.scl" -> rpmMacroScl = parser.getValueAsString();
+                            case "rpm.macro.dist" -> rpmMacroDist = parser.getValueAsString();
+                            default -> parser.skipChildren();
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return new BrewTag(name, rhpkgSclPrefix, rpmMacroScl, rpmMacroDist);
+        }
+    }
+
+    private static MavenGav readTypeinfo(JsonParser parser, JsonToken token) throws IOException {
+        MavenGav maven = null;
+        if (token == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken fieldToken = parser.nextToken();
+                if ("maven".equals(field)) {
+                    maven = readMaven(parser, fieldToken);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return maven;
+    }
+
+    private static MavenGav readMaven(JsonParser parser, JsonToken token) throws IOException {
+        if (token != JsonToken.START_OBJECT) {
+            return null;
+        }
+        return MAVEN_READER.readValue(parser);
+    }
+}
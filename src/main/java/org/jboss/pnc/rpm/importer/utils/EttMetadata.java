@@ -0,0 +1,179 @@
+package org.jboss.pnc.rpm.importer.utils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.jboss.pnc.rpm.importer.checkout.Checkout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The ETT files of a branch, parsed and validated once.
+ * <p>
+ * The format of {@code version-release-serial} is
+ *
+ * <pre>
+ * {@code <meadversion> <namedversion> <meadalpha> <meadrel> <serial> <namedversionrel>}
+ * </pre>
+ *
+ * and of {@code mead-pkg-name}
+ *
+ * <pre>
+ * {@code <pkg> <optionalTag>}
+ * </pre>
+ *
+ * @param lastMeadBuild the NVR of the build in {@code last-mead-build}
+ * @param meadPkgName the mead package
+ * @param namedVersion the RH version
+ * @param originalVersion the named version without its {@code namedversionrel} suffix
+ */
+public record EttMetadata(String lastMeadBuild, String meadPkgName, String namedVersion, String originalVersion) {
+    private static final Logger log = LoggerFactory.getLogger(EttMetadata.class);
+
+    private static final Set<String> FILES = Set.of(
+            ETT.LAST_MEAD_BUILD,
+            ETT.MEAD_PKG_NAME,
+            ETT.VERSION_RELEASE_SERIAL);
+
+    /**
+     * Parses the content of the ETT files.
+     *
+     * @throws RuntimeException if a file is missing or malformed
+     */
+    public static EttMetadata parse(String lastMeadBuild, String meadPkgName, String versionReleaseSerial) {
+        if (lastMeadBuild == null || lastMeadBuild.isBlank()) {
+            throw new RuntimeException("Missing or empty " + ETT.LAST_MEAD_BUILD);
+        }
+        if (meadPkgName == null || meadPkgName.isBlank()) {
+            throw new RuntimeException("Missing or empty " + ETT.MEAD_PKG_NAME);
+        }
+        if (versionReleaseSerial == null) {
+            throw new RuntimeException("Missing " + ETT.VERSION_RELEASE_SERIAL);
+        }
+        String[] fields = versionReleaseSerialFields(versionReleaseSerial);
+        return new EttMetadata(
+                lastMeadBuild.trim(),
+                meadPkgName(meadPkgName),
+                fields[1],
+                originalVersion(fields));
+    }
+
+    /**
+     * Reads the ETT files of a checkout.
+     */
+    public static EttMetadata read(Checkout checkout) throws IOException {
+        return parse(
+                checkout.read(ETT.LAST_MEAD_BUILD).orElse(null),
+                checkout.read(ETT.MEAD_PKG_NAME).orElse(null),
+                checkout.read(ETT.VERSION_RELEASE_SERIAL).orElse(null));
+    }
+
+    /**
+     * Reads the ETT files of a branch straight from the object database of a (typically bare or mirror)
+     * repository, without a working tree.
+     *
+     * @return the metadata, or empty if the branch has no {@code last-mead-build} or its ETT files are malformed
+     * @see #load(Repository, Collection)
+     */
+    public static Optional<EttMetadata> load(Repository repository, String branch) throws IOException {
+        return Optional.ofNullable(load(repository, Set.of(branch)).get(branch));
+    }
+
+    /**
+     * Reads the ETT files of many branches straight from the object database of a (typically bare or mirror)
+     * repository. A single {@link ObjectReader} is shared for every branch, so trees and blobs common to the
+     * branches are only inflated once, and only the top level tree of each branch is walked. A branch with
+     * malformed ETT files is logged and left out, so that it does not hide the other branches of the repository.
+     *
+     * @param repository the repository
+     * @param branches the branches, each of which must exist as a local branch or one of {@code origin}
+     * @return the metadata of the branches that have valid ETT files, keyed by branch
+     * @throws IOException if a branch does not exist or cannot be read
+     */
+    public static Map<String, EttMetadata> load(Repository repository, Collection<String> branches)
+            throws IOException {
+        Map<String, EttMetadata> result = new LinkedHashMap<>();
+        try (ObjectReader reader = repository.newObjectReader(); RevWalk revWalk = new RevWalk(reader)) {
+            for (String branch : branches) {
+                Ref ref = repository.exactRef(Constants.R_HEADS + branch);
+                if (ref == null) {
+                    ref = repository.exactRef(Constants.R_REMOTES + Constants.DEFAULT_REMOTE_NAME + "/" + branch);
+                }
+                if (ref == null) {
+                    throw new IOException("Branch " + branch + " not found in " + repository);
+                }
+                Map<String, String> files = new HashMap<>();
+                try (TreeWalk treeWalk = new TreeWalk(repository, reader)) {
+                    treeWalk.addTree(revWalk.parseCommit(ref.getObjectId()).getTree());
+                    treeWalk.setRecursive(false);
+                    while (treeWalk.next()) {
+                        if (FILES.contains(treeWalk.getNameString())
+                                && (treeWalk.getRawMode(0) & FileMode.TYPE_MASK) == FileMode.TYPE_FILE) {
+                            byte[] content = reader.open(treeWalk.getObjectId(0), Constants.OBJ_BLOB).getBytes();
+                            files.put(treeWalk.getNameString(), new String(content, StandardCharsets.UTF_8));
+                        }
+                    }
+                }
+                if (!files.containsKey(ETT.LAST_MEAD_BUILD)) {
+                    log.debug("Branch {} has no {}", branch, ETT.LAST_MEAD_BUILD);
+                    continue;
+                }
+                try {
+                    result.put(
+                            branch,
+                            parse(
+                                    files.get(ETT.LAST_MEAD_BUILD),
+                                    files.get(ETT.MEAD_PKG_NAME),
+                                    files.get(ETT.VERSION_RELEASE_SERIAL)));
+                } catch (RuntimeException e) {
+                    log.warn("Skipping branch {} of {}: invalid ETT files: {}", branch, repository, e.getMessage());
+                }
+            }
+        }
+        return result;
+    }
+
+    static String[] versionReleaseSerialFields(String versionReleaseSerial) {
+        String[] fields = versionReleaseSerial.trim().split(" ");
+        if (fields.length < 2) {
+            throw new RuntimeException(
+                    "Invalid version-release-serial format; no named version in " + versionReleaseSerial.trim());
+        }
+        return fields;
+    }
+
+    /**
+     * Returns the original version by subtracting the final field (namedversionrel) and one extra
+     * character from the namedversion.
+     */
+    static String originalVersion(String[] versionReleaseSerialFields) {
+        String namedVersion = versionReleaseSerialFields[1];
+        String namedVersionRel = versionReleaseSerialFields[versionReleaseSerialFields.length - 1];
+        // Subtract the final field and 1 extra character (the separator) from the named version
+        String suffix = "." + namedVersionRel;
+        if (namedVersion.matches(".*" + suffix + "$")) {
+            return namedVersion.substring(0, namedVersion.length() - suffix.length());
+        }
+        log.error("Found namedVersion {} and suffix {} ", namedVersion, suffix);
+        throw new RuntimeException(
+                "Invalid version-release-serial format; unable to determine original version from "
+                        + String.join(" ", versionReleaseSerialFields));
+    }
+
+    static String meadPkgName(String meadPkgName) {
+        return meadPkgName.trim().split(" ")[0];
+    }
+}
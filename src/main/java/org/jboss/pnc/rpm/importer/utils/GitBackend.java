@@ -0,0 +1,47 @@
+package org.jboss.pnc.rpm.importer.utils;
+
+import java.nio.file.Path;
+
+import org.eclipse.jgit.api.errors.TransportException;
+
+/**
+ * The git operations that talk to a remote repository. {@link GitBackends} chooses the implementation for each
+ * repository.
+ * <p>
+ * Commits are always made in-process with JGit (see {@link Utils#commitRepository}), whichever backend cloned
+ * the repository, so the commit of a pom is identical however the repository was cloned and is pushed.
+ */
+public interface GitBackend {
+
+    /**
+     * @return the name of the backend, for logging
+     */
+    String name();
+
+    /**
+     * Clones a branch of a repository into an existing, empty, directory.
+     *
+     * @param url the repository
+     * @param branch the branch
+     * @param directory the directory to clone into
+     */
+    void cloneRepository(String url, String branch, Path directory);
+
+    /**
+     * Pushes the current branch of the repository to the branch of the same name on {@code origin}.
+     *
+     * @param repository the path to the repository.
+     * @throws TransportException if the push could not be completed due to a transport (e.g. network) error
+     * @throws RuntimeException if the remote rejected the push
+     */
+    void pushRepository(Path repository) throws TransportException;
+
+    /**
+     * Verifies whether a remote repository and branch exist.
+     *
+     * @param url the repository
+     * @param branch the branch
+     * @return true if it exists, false otherwise
+     */
+    boolean remoteBranchExists(String url, String branch);
+}
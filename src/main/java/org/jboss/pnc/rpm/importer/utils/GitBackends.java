@@ -0,0 +1,117 @@
+package org.jboss.pnc.rpm.importer.utils;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Chooses the {@link GitBackend} for each clone, push and remote check.
+ * <p>
+ * Native git is much faster than JGit for large repositories, but each operation starts a process (and its own
+ * ssh connection) where JGit reuses the shared in-process ssh session factory, so for small repositories JGit
+ * is as fast or faster. In {@link Mode#AUTO} native git is therefore used when it is available and the
+ * repository is at least {@link #DEFAULT_NATIVE_THRESHOLD} (or the configured threshold). The size of a remote
+ * repository is estimated from the packs of earlier clones of it in this run, e.g. of its other branches. The
+ * size of a repository that has not been cloned yet is not known, and most are small, so it is cloned with JGit;
+ * its later clones and its push then use native git if the first clone turned out to be large.
+ */
+public class GitBackends {
+    private static final Logger log = LoggerFactory.getLogger(GitBackends.class);
+
+    public static final long DEFAULT_NATIVE_THRESHOLD = 16L << 20;
+
+    static final GitBackend JGIT = new JGitBackend();
+
+    static final GitBackend NATIVE = new NativeGitBackend();
+
+    /**
+     * How the backend is chosen.
+     */
+    public enum Mode {
+        /** Native git for repositories known to be large if it is available, otherwise JGit */
+        AUTO,
+        /** Always JGit */
+        JGIT,
+        /** Always native git */
+        NATIVE
+    }
+
+    private static volatile Mode mode = Mode.AUTO;
+
+    private static volatile long nativeThreshold = DEFAULT_NATIVE_THRESHOLD;
+
+    private static final Map<String, Long> SIZES = new ConcurrentHashMap<>();
+
+    private static class Available {
+        static final boolean NATIVE = NativeGitBackend.available();
+    }
+
+    /**
+     * @param mode how the backend is chosen
+     * @param nativeThreshold the estimated size from which {@link Mode#AUTO} uses native git
+     * @throws RuntimeException if native git is required but cannot be run
+     */
+    public static void configure(Mode mode, long nativeThreshold) {
+        if (mode == Mode.NATIVE && !nativeAvailable()) {
+            throw new RuntimeException("Unable to run git; is it on the PATH?");
+        }
+        GitBackends.mode = mode;
+        GitBackends.nativeThreshold = nativeThreshold;
+        log.debug("Using {} git backend (native git available: {})", mode, nativeAvailable());
+    }
+
+    /**
+     * @return whether the git executable can be run
+     */
+    public static boolean nativeAvailable() {
+        return Available.NATIVE;
+    }
+
+    /**
+     * @param url the repository to clone
+     * @return the backend to clone it with
+     */
+    public static GitBackend forClone(String url) {
+        return select(SIZES.getOrDefault(url, -1L));
+    }
+
+    /**
+     * @param repository a cloned repository
+     * @return the backend to push it with
+     */
+    public static GitBackend forRepository(Path repository) {
+        return select(Utils.packSize(repository.resolve(".git")));
+    }
+
+    /**
+     * @return the backend to query remote repositories with
+     */
+    public static GitBackend forRemote() {
+        return select(-1);
+    }
+
+    /**
+     * Records the size of a clone, to choose the backend of later clones of the same repository.
+     *
+     * @param url the repository
+     * @param bytes the size of its packs
+     */
+    public static void recordSize(String url, long bytes) {
+        SIZES.put(url, bytes);
+    }
+
+    /**
+     * @param estimatedSize the estimated size of the repository, or a negative value if it is not known (which
+     *        {@link Mode#AUTO} treats as small)
+     */
+    static GitBackend select(long estimatedSize) {
+        return switch (mode) {
+            case JGIT -> JGIT;
+            case NATIVE -> NATIVE;
+            case AUTO -> nativeAvailable() && estimatedSize >= nativeThreshold ? NATIVE : JGIT;
+        };
+    }
+}
@@ -0,0 +1,82 @@
+package org.jboss.pnc.rpm.importer.utils;
+
+import org.eclipse.jgit.storage.file.WindowCacheConfig;
+import org.eclipse.jgit.storage.file.WindowCacheStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The JGit pack file storage settings, which are global to the JVM. When hundreds of repositories are cloned
+ * and pushed in one run, the window cache (the pack file pages held in memory), the delta base cache and the
+ * threshold above which objects are streamed rather than loaded whole decide both heap use and pack I/O speed.
+ * <p>
+ * Each repository is closed and evicted once its import is complete (see {@link Utils#closeRepository}), which
+ * also drops its pages from the window cache, so the heap stays within these limits for a run of any length.
+ */
+public class GitStorage {
+    private static final Logger log = LoggerFactory.getLogger(GitStorage.class);
+
+    private static volatile WindowCacheConfig config = new WindowCacheConfig();
+
+    /**
+     * Installs the storage settings. A size of zero keeps the JGit default.
+     *
+     * @param mmap whether to memory map pack files rather than reading them into the heap
+     * @param windowCache the maximum bytes of pack file pages to keep in memory
+     * @param windowSize the size of each page
+     * @param deltaBaseCache the maximum bytes of inflated delta bases to keep in memory
+     * @param streamFileThreshold the size above which objects are streamed rather than loaded whole
+     */
+    public static void configure(
+            boolean mmap,
+            long windowCache,
+            long windowSize,
+            long deltaBaseCache,
+            long streamFileThreshold) {
+        WindowCacheConfig c = new WindowCacheConfig();
+        c.setPackedGitMMAP(mmap);
+        if (windowCache > 0) {
+            c.setPackedGitLimit(windowCache);
+        }
+        if (windowSize > 0) {
+            c.setPackedGitWindowSize(Math.toIntExact(windowSize));
+        }
+        if (deltaBaseCache > 0) {
+            c.setDeltaBaseCacheLimit(Math.toIntExact(deltaBaseCache));
+        }
+        if (streamFileThreshold > 0) {
+            c.setStreamFileThreshold(Math.toIntExact(streamFileThreshold));
+        }
+        c.install();
+        config = c;
+        log.debug("Installed JGit storage settings: {}", describe());
+    }
+
+    /**
+     * @return the installed settings
+     */
+    public static String describe() {
+        WindowCacheConfig c = config;
+        return String.format(
+                "mmap %s, window cache %d MiB of %d KiB windows, delta base cache %d MiB, stream threshold %d MiB",
+                c.isPackedGitMMAP() ? "on" : "off",
+                c.getPackedGitLimit() >> 20,
+                c.getPackedGitWindowSize() >> 10,
+                c.getDeltaBaseCacheLimit() >> 20,
+                c.getStreamFileThreshold() >> 20);
+    }
+
+    /**
+     * Logs the settings along with how the window cache was used.
+     */
+    public static void log() {
+        WindowCacheStats stats = WindowCacheStats.getStats();
+        log.info(
+                "JGit storage: {}; window cache hit ratio {}%, {} evictions, {} KiB in {} open pack files",
+                describe(),
+                Math.round(stats.getHitRatio() * 100),
+                stats.getEvictionCount(),
+                stats.getOpenByteCount() >> 10,
+                stats.getOpenFileCount());
+    }
+}
@@ -0,0 +1,96 @@
+package org.jboss.pnc.rpm.importer.utils;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Path;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.api.errors.TransportException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.transport.RemoteRefUpdate;
+import org.jboss.pnc.rpm.importer.backend.Backend;
+import org.jboss.pnc.rpm.importer.backend.Backends;
+import org.jboss.pnc.rpm.importer.jfr.GitEvent;
+import org.jboss.pnc.rpm.importer.jfr.GitProgress;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Clones and pushes in-process with JGit, over the shared ssh session factory (see
+ * {@link Utils#configureSshSessionFactory()}).
+ */
+class JGitBackend implements GitBackend {
+    private static final Logger log = LoggerFactory.getLogger(JGitBackend.class);
+
+    @Override
+    public String name() {
+        return "jgit";
+    }
+
+    @Override
+    public void cloneRepository(String url, String branch, Path directory) {
+        StringWriter writer = new StringWriter();
+        GitProgress progress = new GitProgress(Utils.getMonitor(writer));
+        GitEvent event = new GitEvent("clone", url);
+        event.begin();
+        var repoClone = Git.cloneRepository()
+                .setURI(url)
+                .setProgressMonitor(progress)
+                .setBranch(branch)
+                .setDirectory(directory.toFile());
+        try (var ignored = Backends.call(Backend.GIT, "clone", repoClone::call)) {
+            log.info("Clone summary:\n{}", writer.toString().replaceAll("(?m)^\\s+", ""));
+        } catch (GitAPIException e) {
+            throw new RuntimeException(e);
+        }
+        if (event.shouldCommit()) {
+            event.objects = progress.objects();
+            event.bytes = Utils.packSize(directory.resolve(".git"));
+            event.commit();
+        }
+    }
+
+    @Override
+    public void pushRepository(Path repository) throws TransportException {
+        try (var jGit = Git.open(repository.toFile())) {
+            StringWriter writer = new StringWriter();
+            GitProgress progress = new GitProgress(Utils.getMonitor(writer));
+            GitEvent event = new GitEvent("push", repository.toString());
+            event.begin();
+            var pushCommand = jGit.push().setProgressMonitor(progress);
+            var results = Backends.call(Backend.GIT, "push", pushCommand::call);
+            event.objects = progress.objects();
+            event.commit();
+            log.info("Push summary:\n{}", writer.toString().replaceAll("(?m)^\\s+", ""));
+            for (var result : results) {
+                for (var update : result.getRemoteUpdates()) {
+                    if (update.getStatus() != RemoteRefUpdate.Status.OK
+                            && update.getStatus() != RemoteRefUpdate.Status.UP_TO_DATE) {
+                        throw new RuntimeException(
+                                "Push of " + update.getRemoteName() + " failed with " + update.getStatus()
+                                        + (update.getMessage() == null ? "" : " (" + update.getMessage() + ")"));
+                    }
+                }
+            }
+        } catch (TransportException e) {
+            throw e;
+        } catch (GitAPIException | IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public boolean remoteBranchExists(String url, String branch) {
+        try {
+            var refs = Backends.call(
+                    Backend.GIT,
+                    "ls-remote",
+                    () -> Git.lsRemoteRepository().setRemote(url).setHeads(true).callAsMap());
+            return refs.containsKey(Constants.R_HEADS + branch);
+        } catch (GitAPIException e) {
+            log.debug("Unable to list the branches of {}", url, e);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package org.jboss.pnc.rpm.importer.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.eclipse.jgit.api.errors.TransportException;
+import org.jboss.pnc.rpm.importer.backend.Backend;
+import org.jboss.pnc.rpm.importer.backend.Backends;
+import org.jboss.pnc.rpm.importer.jfr.GitEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.smallrye.common.process.ProcessBuilder;
+
+/**
+ * Clones and pushes by running the {@code git} executable, which for large repositories is much faster than
+ * JGit: it uses protocol v2, resolves deltas on every core while indexing the pack and checks files out in
+ * parallel. Only the branch being imported is cloned, without tags.
+ */
+class NativeGitBackend implements GitBackend {
+    private static final Logger log = LoggerFactory.getLogger(NativeGitBackend.class);
+
+    /**
+     * The exit code of git for fatal errors, e.g. the remote could not be reached. A rejected push exits with 1.
+     */
+    private static final int FATAL = 128;
+
+    @Override
+    public String name() {
+        return "git";
+    }
+
+    @Override
+    public void cloneRepository(String url, String branch, Path directory) {
+        GitEvent event = new GitEvent("clone", url);
+        event.begin();
+        Backends.call(
+                Backend.GIT,
+                "clone",
+                () -> ProcessBuilder.newBuilder("git")
+                        .arguments(
+                                "-c",
+                                "protocol.version=2",
+                                // Zero is one thread per core
+                                "-c",
+                                "pack.threads=0",
+                                "-c",
+                                "checkout.workers=0",
+                                "clone",
+                                "--quiet",
+                                "--single-branch",
+                                "--no-tags",
+                                "--branch",
+                                branch,
+                                "--",
+                                url,
+                                directory.toString())
+                        .output()
+                        .discard()
+                        .run());
+        if (event.shouldCommit()) {
+            event.bytes = Utils.packSize(directory.resolve(".git"));
+            event.commit();
+        }
+    }
+
+    @Override
+    public void pushRepository(Path repository) throws TransportException {
+        var holder = new Object() {
+            int exitCode;
+        };
+        GitEvent event = new GitEvent("push", repository.toString());
+        event.begin();
+        String porcelain = Backends.call(
+                Backend.GIT,
+                "push",
+                () -> {
+                    try {
+                        return ProcessBuilder.newBuilder("git")
+                                .arguments(
+                                        "-C",
+                                        repository.toString(),
+                                        "push",
+                                        "--porcelain",
+                                        "origin",
+                                        "HEAD")
+                                .output()
+                                .processBytesWith(in -> new String(in.readAllBytes(), StandardCharsets.UTF_8))
+                                .exitCodeChecker(ec -> {
+                                    holder.exitCode = ec;
+                                    return ec != FATAL;
+                                })
+                                .run();
+                    } catch (RuntimeException e) {
+                        throw new TransportException("Push of " + repository + " failed: " + e.getMessage(), e);
+                    }
+                });
+        event.commit();
+        log.info("Push summary:\n{}", porcelain.strip());
+        // Each ref is reported as "<flag>\t<from>:<to>\t<summary>", where a flag of ! means it was rejected
+        for (String line : porcelain.lines().toList()) {
+            List<String> fields = List.of(line.split("\t"));
+            if (fields.size() >= 3 && fields.get(0).equals("!")) {
+                throw new RuntimeException(
+                        "Push of " + fields.get(1).substring(fields.get(1).indexOf(':') + 1) + " failed with "
+                                + fields.get(2));
+            }
+        }
+        if (holder.exitCode != 0) {
+            throw new RuntimeException("Push of " + repository + " failed with exit code " + holder.exitCode);
+        }
+    }
+
+    @Override
+    public boolean remoteBranchExists(String url, String branch) {
+        var holder = new Object() {
+            int exitCode;
+        };
+        Backends.call(
+                Backend.GIT,
+                "ls-remote",
+                () -> ProcessBuilder.newBuilder("git")
+                        .arguments(
+                                "ls-remote",
+                                "--exit-code",
+                                "--heads",
+                                url,
+                                branch)
+                        .output()
+                        .gatherOnFail(false)
+                        .discard()
+                        .error()
+                        .gatherOnFail(false)
+                        .discard()
+                        .exitCodeChecker(ec -> {
+                            holder.exitCode = ec;
+                            return true;
+                        })
+                        .run());
+        return holder.exitCode == 0;
+    }
+
+    /**
+     * @return whether the git executable can be run
+     */
+    static boolean available() {
+        try {
+            ProcessBuilder.newBuilder("git")
+                    .arguments("--version")
+                    .output()
+                    .gatherOnFail(false)
+                    .discard()
+                    .error()
+                    .gatherOnFail(false)
+                    .discard()
+                    .run();
+            return true;
+        } catch (RuntimeException e) {
+            log.debug("Unable to run git", e);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package org.jboss.pnc.rpm.importer.utils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.jboss.pnc.rpm.importer.model.ArtifactKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Determines which files a spec file consumes so that wrapped build artifacts the RPM never uses can be
+ * left out of the pom (and so are not downloaded during the PNC build).
+ * <p>
+ * The file names are gathered from {@code Source} tags (which also covers anything unpacked by
+ * {@code %setup -a/-b}) and from the arguments of {@code cp}, {@code install} and similar commands. The
+ * version macros defined by the pom template ({@code namedversion} and {@code maven_version}) are replaced
+ * by the wrapped build version; any other RPM macros, shell variables and globs within a name are treated
+ * as wildcards. This is a heuristic so it errs on the side of keeping artifacts: a spec file that copies
+ * whole directories or picks its files in a way that cannot be followed (e.g. a shell loop) is reported as
+ * {@link #unsupported()}, and nothing should be pruned unless {@link #consumesAny(Collection) some artifact}
+ * is referenced.
+ */
+public class SpecAnalyzer {
+    private static final Logger log = LoggerFactory.getLogger(SpecAnalyzer.class);
+
+    private static final Pattern SOURCE_TAG = Pattern.compile("^Source\\d*\\s*:\\s*(\\S+)", Pattern.CASE_INSENSITIVE);
+
+    private static final Set<String> FILE_COMMANDS = Set.of("cp", "install", "ln", "mv", "tar", "unzip");
+
+    // The commands whose arguments, bar the last, are files of the build directory copied into the RPM
+    private static final Set<String> COPY_COMMANDS = Set.of("cp", "install", "mv");
+
+    // The options that take an argument, which is not a file
+    private static final Map<String, Set<String>> OPTION_ARGUMENTS = Map.of(
+            "cp", Set.of("-t", "-S"),
+            "install", Set.of("-m", "-o", "-g", "-t", "-S"),
+            "ln", Set.of("-t", "-S"),
+            "mv", Set.of("-t", "-S"),
+            "tar", Set.of("-C"),
+            "unzip", Set.of("-d"));
+
+    private static final Pattern COMMAND_SEPARATOR = Pattern.compile("&&|\\|\\||[;|]");
+
+    // Loops, finds and command substitutions choose their files at build time
+    private static final Pattern SHELL_CONSTRUCT = Pattern
+            .compile("^for\\s+\\w+\\s+in\\s|^(while|until)\\s.*\\bdo\\b|^(find|xargs)\\s|\\$\\(|`[^`]+`");
+
+    private static final Pattern RECURSIVE_COPY = Pattern.compile("-[a-zA-Z]*[rRa][a-zA-Z]*|--recursive|--archive");
+
+    private static final Pattern CREATE_DIRECTORIES = Pattern.compile("-[a-zA-Z]*d[a-zA-Z]*");
+
+    // Matches %{macro}, %{?macro}, %macro, ${variable} and $variable
+    private static final Pattern VARIABLE = Pattern.compile("%\\{[^}]*}|%\\w+|\\$\\{[^}]*}|\\$\\w+");
+
+    private static final Set<String> VERSION_MACROS = Set.of("namedversion", "maven_version");
+
+    private final List<Pattern> references;
+
+    private final String version;
+
+    private final String unsupported;
+
+    private SpecAnalyzer(List<Pattern> references, String version, String unsupported) {
+        this.references = references;
+        this.version = version;
+        this.unsupported = unsupported;
+    }
+
+    /**
+     * @param spec the spec file
+     * @param version the version of the wrapped build
+     */
+    public static SpecAnalyzer parse(Path spec, String version) throws IOException {
+        return parse(Files.readAllLines(spec), version);
+    }
+
+    /**
+     * @param lines the contents of the spec file
+     * @param version the version of the wrapped build
+     */
+    public static SpecAnalyzer parse(List<String> lines, String version) {
+        List<Pattern> references = new ArrayList<>();
+        String unsupported = null;
+        for (String line : joinContinuations(lines)) {
+            String trimmed = line.trim();
+            Matcher source = SOURCE_TAG.matcher(trimmed);
+            if (source.find()) {
+                addReference(references, source.group(1), version);
+                continue;
+            }
+            if (unsupported == null && SHELL_CONSTRUCT.matcher(trimmed).find()) {
+                unsupported = trimmed;
+            }
+            for (String command : COMMAND_SEPARATOR.split(trimmed)) {
+                if (!parseCommand(command.trim().split("\\s+"), references, version) && unsupported == null) {
+                    unsupported = command.trim();
+                }
+            }
+        }
+        log.debug("Found spec file references {}", references);
+        if (unsupported != null) {
+            log.debug("Unable to follow the files of {}", unsupported);
+        }
+        return new SpecAnalyzer(references, version, unsupported);
+    }
+
+    /**
+     * @return true if any file references were found
+     */
+    public boolean hasReferences() {
+        return !references.isEmpty();
+    }
+
+    /**
+     * @return the first command whose files could not be determined (e.g. a recursive copy or a loop), in which
+     *         case the spec file may consume any artifact
+     */
+    public Optional<String> unsupported() {
+        return Optional.ofNullable(unsupported);
+    }
+
+    /**
+     * @param keys the artifacts
+     * @return true if the spec file references at least one of the artifacts
+     */
+    public boolean consumesAny(Collection<ArtifactKey> keys) {
+        return keys.stream().anyMatch(this::isConsumed);
+    }
+
+    /**
+     * Checks whether the spec file references the artifact, as named when copied by the
+     * maven-dependency-plugin (i.e. {@code artifactId-version[-classifier].type}).
+     *
+     * @param key the artifact
+     * @return true if the spec file may use the artifact
+     */
+    public boolean isConsumed(ArtifactKey key) {
+        String fileName = key.artifactId() + "-" + version
+                + (key.classifier() == null ? "" : "-" + key.classifier())
+                + "." + key.type();
+        return references.stream().anyMatch(p -> p.matcher(fileName).matches());
+    }
+
+    /**
+     * Adds the files of a command to the references.
+     *
+     * @return false if the command copies files that cannot be determined
+     */
+    private static boolean parseCommand(String[] tokens, List<Pattern> references, String version) {
+        String command = tokens[0];
+        if (!FILE_COMMANDS.contains(command)) {
+            return true;
+        }
+        List<String> files = new ArrayList<>();
+        boolean targetDirectory = false;
+        for (int i = 1; i < tokens.length; i++) {
+            String token = tokens[i];
+            if (OPTION_ARGUMENTS.get(command).contains(token)) {
+                targetDirectory |= token.equals("-t");
+                i++;
+            } else if (token.startsWith("-")) {
+                if (command.equals("cp") && RECURSIVE_COPY.matcher(token).matches()) {
+                    return false;
+                }
+                if (command.equals("install") && CREATE_DIRECTORIES.matcher(token).matches()) {
+                    // install -d only creates directories
+                    return true;
+                }
+            } else {
+                files.add(token);
+            }
+        }
+        for (int i = 0; i < files.size(); i++) {
+            String file = files.get(i);
+            if (file.contains("%{SOURCE")) {
+                continue;
+            }
+            boolean destination = !targetDirectory && files.size() > 1 && i == files.size() - 1;
+            if (COPY_COMMANDS.contains(command) && !destination) {
+                String name = fileName(file);
+                // A directory, everything in one (e.g. lib/*) or a name only known at build time
+                if (name.isEmpty() || toPattern(name, version) == null
+                        || command.equals("mv") && !name.contains(".") && !VARIABLE.matcher(name).find()) {
+                    return false;
+                }
+            }
+            addReference(references, file, version);
+        }
+        return true;
+    }
+
+    private static void addReference(List<Pattern> references, String token, String version) {
+        // Only the file name is of interest. A trailing slash means the token is a directory.
+        String name = fileName(token);
+        if (name.isEmpty()) {
+            return;
+        }
+        Pattern reference = toPattern(name, version);
+        if (reference != null) {
+            references.add(reference);
+        }
+    }
+
+    private static String fileName(String token) {
+        String name = token.replaceAll("[\"']", "");
+        return name.substring(name.lastIndexOf('/') + 1);
+    }
+
+    /**
+     * @return the pattern of the name, or null if it is entirely wildcards (e.g. a bare %{name}) and so tells us
+     *         nothing
+     */
+    private static Pattern toPattern(String name, String version) {
+        StringBuilder regex = new StringBuilder();
+        Matcher variable = VARIABLE.matcher(name);
+        int last = 0;
+        while (variable.find()) {
+            String macro = variable.group().replaceAll("[%${}?]", "");
+            regex.append(glob(name.substring(last, variable.start())))
+                    .append(VERSION_MACROS.contains(macro) ? Pattern.quote(version) : ".*");
+            last = variable.end();
+        }
+        regex.append(glob(name.substring(last)));
+        return regex.toString().replace(".*", "").isEmpty() ? null : Pattern.compile(regex.toString());
+    }
+
+    private static List<String> joinContinuations(List<String> lines) {
+        List<String> result = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (String line : lines) {
+            if (line.endsWith("\\")) {
+                current.append(line, 0, line.length() - 1).append(' ');
+            } else {
+                result.add(current.append(line).toString());
+                current.setLength(0);
+            }
+        }
+        if (!current.isEmpty()) {
+            result.add(current.toString());
+        }
+        return result;
+    }
+
+    private static String glob(String text) {
+        StringBuilder result = new StringBuilder();
+        for (char c : text.toCharArray()) {
+            switch (c) {
+                case '*' -> result.append(".*");
+                case '?' -> result.append('.');
+                default -> result.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return result.toString();
+    }
+}
@@ -1,11 +1,10 @@
 package org.jboss.pnc.rpm.importer.utils;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.StringWriter;
 import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
@@ -18,14 +17,23 @@ import java.util.regex.Pattern;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.EmptyCommitException;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.api.errors.TransportException;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.RepositoryCache;
 import org.eclipse.jgit.lib.TextProgressMonitor;
+import org.eclipse.jgit.transport.SshSessionFactory;
+import org.eclipse.jgit.transport.sshd.JGitKeyCache;
+import org.eclipse.jgit.transport.sshd.SshdSessionFactoryBuilder;
+import org.eclipse.jgit.transport.sshd.agent.ConnectorFactory;
+import org.eclipse.jgit.util.FS;
+import org.jboss.pnc.rpm.importer.backend.Coalescer;
+import org.jboss.pnc.rpm.importer.backend.HttpClients;
 import org.jboss.pnc.rpm.importer.model.brew.BuildInfo;
 import org.jboss.pnc.rpm.importer.model.brew.Typeinfo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import io.smallrye.common.process.ProcessBuilder;
-
 public class Utils {
     private static final Logger log = LoggerFactory.getLogger(Utils.class);
 
@@ -33,6 +41,11 @@ public class Utils {
     private static final Pattern LATEST_VERSION_PATTERN = Pattern.compile("<latest>([^<]+)</latest>");
     private static final Pattern RELEASE_VERSION_PATTERN = Pattern.compile("<release>([^<]+)</release>");
 
+    /**
+     * Every concurrent import renders the same plugin version, so one fetch is shared between them.
+     */
+    private static final Coalescer<URI, String> PLUGIN_VERSIONS = new Coalescer<>("rpm-builder-maven-plugin version");
+
     public static Path createTempDirForCloning() {
         return createTempDir("clone-", "cloning");
     }
@@ -65,8 +78,17 @@ public class Utils {
      * @return a parsed String RH version
      */
     public static String parseNamedVersionFromVersionReleaseSerial(Path path) throws IOException {
-        String found = Files.readString(Paths.get(path.toString(), ETT.VERSION_RELEASE_SERIAL)).trim();
-        return found.split(" ")[1];
+        return parseNamedVersionFromVersionReleaseSerial(
+                Files.readString(Paths.get(path.toString(), ETT.VERSION_RELEASE_SERIAL)));
+    }
+
+    /**
+     * @param versionReleaseSerial the content of the version-release-serial file
+     * @return a parsed String RH version
+     * @see #parseNamedVersionFromVersionReleaseSerial(Path)
+     */
+    public static String parseNamedVersionFromVersionReleaseSerial(String versionReleaseSerial) {
+        return EttMetadata.versionReleaseSerialFields(versionReleaseSerial)[1];
     }
 
     /**
@@ -83,18 +105,17 @@ public class Utils {
      * @return a parsed String original version
      */
     public static String parseOriginalVersionFromVersionReleaseSerial(Path path) throws IOException {
-        String found = Files.readString(Paths.get(path.toString(), ETT.VERSION_RELEASE_SERIAL)).trim();
-        String[] fields = found.split(" ");
-        String namedVersion = fields[1];
-        String namedVersionRel = fields[fields.length - 1];
-        // Subtract the final field and 1 extra character (the separator) from the named version
-        String suffix = "." + namedVersionRel;
-        if (namedVersion.matches(".*" + suffix + "$")) {
-            return namedVersion.substring(0, namedVersion.length() - suffix.length());
-        }
-        log.error("Found namedVersion {} and suffix {} ", namedVersion, suffix);
-        throw new RuntimeException(
-                "Invalid version-release-serial format; unable to determine original version from " + found);
+        return parseOriginalVersionFromVersionReleaseSerial(
+                Files.readString(Paths.get(path.toString(), ETT.VERSION_RELEASE_SERIAL)));
+    }
+
+    /**
+     * @param versionReleaseSerial the content of the version-release-serial file
+     * @return a parsed String original version
+     * @see #parseOriginalVersionFromVersionReleaseSerial(Path)
+     */
+    public static String parseOriginalVersionFromVersionReleaseSerial(String versionReleaseSerial) {
+        return EttMetadata.originalVersion(EttMetadata.versionReleaseSerialFields(versionReleaseSerial));
     }
 
     /**
@@ -110,8 +131,16 @@ public class Utils {
      * @return a parsed String version
      */
     public static String parseMeadPkgName(Path path) throws IOException {
-        String found = Files.readString(Paths.get(path.toString(), ETT.MEAD_PKG_NAME)).trim();
-        return found.split(" ")[0];
+        return parseMeadPkgName(Files.readString(Paths.get(path.toString(), ETT.MEAD_PKG_NAME)));
+    }
+
+    /**
+     * @param meadPkgName the content of the mead-pkg-name file
+     * @return a parsed String version
+     * @see #parseMeadPkgName(Path)
+     */
+    public static String parseMeadPkgName(String meadPkgName) {
+        return EttMetadata.meadPkgName(meadPkgName);
     }
 
     /**
@@ -122,19 +151,23 @@ public class Utils {
      * @return the path of the cloned repository
      */
     public static Path cloneRepository(String url, String branch) {
-        Path path = createTempDirForCloning();
-        log.info("Using {} for repository", path);
-        StringWriter writer = new StringWriter();
-        var repoClone = Git.cloneRepository()
-                .setURI(url)
-                .setProgressMonitor(getMonitor(writer))
-                .setBranch(branch)
-                .setDirectory(path.toFile());
-        try (var ignored = repoClone.call()) {
-            log.info("Clone summary:\n{}", writer.toString().replaceAll("(?m)^\\s+", ""));
-        } catch (GitAPIException e) {
-            throw new RuntimeException(e);
-        }
+        return cloneRepository(url, branch, createTempDirForCloning());
+    }
+
+    /**
+     * Clones a branch of a repository into an existing, empty, directory, with the backend chosen by
+     * {@link GitBackends}.
+     *
+     * @param url the repository
+     * @param branch the branch
+     * @param path the directory to clone into
+     * @return the directory
+     */
+    public static Path cloneRepository(String url, String branch, Path path) {
+        GitBackend backend = GitBackends.forClone(url);
+        log.info("Using {} for repository (cloning with {})", path, backend.name());
+        backend.cloneRepository(url, branch, path);
+        GitBackends.recordSize(url, packSize(path.resolve(".git")));
         return path;
     }
 
@@ -145,27 +178,107 @@ public class Utils {
      * @param push whether to push changes to external repository
      */
     public static void commitAndPushRepository(Path repository, boolean push) {
+        if (commitRepository(repository) && push) {
+            try {
+                pushRepository(repository);
+            } catch (TransportException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * Commits the pom.xml to the repository. Empty commits are avoided as they would trigger PNC rebuilds.
+     *
+     * @param repository the path to the repository.
+     * @return true if a commit was made, false if there was nothing to commit
+     */
+    public static boolean commitRepository(Path repository) {
+        return commitRepository(repository, null);
+    }
+
+    /**
+     * Commits the pom.xml to the repository as the given author and committer, so that the commit is
+     * reproducible.
+     *
+     * @param repository the path to the repository.
+     * @param ident the author and committer, or null for the configured user and the current time
+     * @return true if a commit was made, false if there was nothing to commit
+     */
+    public static boolean commitRepository(Path repository, PersonIdent ident) {
         try (var jGit = Git.init().setDirectory(repository.toFile()).call()) {
             jGit.add().addFilepattern("pom.xml").call();
-            var revCommit = jGit.commit()
+            var commit = jGit.commit()
                     .setNoVerify(true)
                     .setMessage("RPM-Importer - POM Generation")
-                    .setAllowEmpty(false)
-                    .call();
-            log.info("Added and committed pom.xml ({})", revCommit.getName());
-            if (push) {
-                StringWriter writer = new StringWriter();
-                jGit.push().setProgressMonitor(getMonitor(writer)).call();
-                log.info("Push summary:\n{}", writer.toString().replaceAll("(?m)^\\s+", ""));
+                    .setAllowEmpty(false);
+            if (ident != null) {
+                commit.setAuthor(ident).setCommitter(ident);
             }
+            var revCommit = commit.call();
+            log.info("Added and committed pom.xml ({})", revCommit.getName());
+            return true;
         } catch (EmptyCommitException ex) {
             // avoid empty commit to avoid PNC rebuilds
             log.info("Nothing to commit");
+            return false;
         } catch (GitAPIException e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * Pushes the current branch of the repository.
+     *
+     * @param repository the path to the repository.
+     * @throws TransportException if the push could not be completed due to a transport (e.g. network) error
+     */
+    public static void pushRepository(Path repository) throws TransportException {
+        GitBackends.forRepository(repository).pushRepository(repository);
+    }
+
+    /**
+     * Evicts a repository from JGit's {@link RepositoryCache} once it is no longer needed and closes it, which
+     * releases its pack files and drops their pages from the window cache (see {@link GitStorage}). A cached
+     * repository is otherwise only closed after it has been unused for an hour, so a long batch would
+     * accumulate them. Repositories opened through {@link Git#open} are not cached and are already closed as
+     * soon as each operation completes.
+     *
+     * @param repository the working tree (or bare repository)
+     */
+    public static void closeRepository(Path repository) {
+        File gitDir = RepositoryCache.FileKey.resolve(repository.toFile(), FS.DETECTED);
+        if (gitDir == null) {
+            return;
+        }
+        RepositoryCache.FileKey key = RepositoryCache.FileKey.exact(gitDir, FS.DETECTED);
+        if (!RepositoryCache.getRegisteredKeys().contains(key)) {
+            return;
+        }
+        // Once unregistered, the final close releases the repository rather than returning it to the cache.
+        try (Repository cached = RepositoryCache.open(key, false)) {
+            RepositoryCache.unregister(key);
+            log.debug("Evicted {} from the repository cache", gitDir);
+        } catch (IOException e) {
+            log.warn("Unable to close repository {}", gitDir, e);
+        }
+    }
+
+    /**
+     * Installs a single shared Apache MINA sshd session factory with a key cache, so that keys, known
+     * hosts, ssh config and the ssh agent connector are loaded once and reused by every clone and push
+     * rather than per transport.
+     */
+    public static void configureSshSessionFactory() {
+        File home = FS.DETECTED.userHome();
+        SshSessionFactory.setInstance(
+                new SshdSessionFactoryBuilder()
+                        .setHomeDirectory(home)
+                        .setSshDirectory(new File(home, ".ssh"))
+                        .setConnectorFactory(ConnectorFactory.getDefault())
+                        .build(new JGitKeyCache()));
+    }
+
     /**
      * Verifies whether a remote repository and branch exist
      *
@@ -174,28 +287,7 @@ public class Utils {
      * @return true if it exists, false otherwise
      */
     public static boolean checkForRemoteRepositoryAndBranch(String url, String branch) {
-        var holder = new Object() {
-            int exitCode;
-        };
-        ProcessBuilder.newBuilder("git")
-                .arguments(
-                        "ls-remote",
-                        "--exit-code",
-                        "--heads",
-                        url,
-                        branch)
-                .output()
-                .gatherOnFail(false)
-                .discard()
-                .error()
-                .gatherOnFail(false)
-                .discard()
-                .exitCodeChecker(ec -> {
-                    holder.exitCode = ec;
-                    return true;
-                })
-                .run();
-        return holder.exitCode == 0;
+        return GitBackends.forRemote().remoteBranchExists(url, branch);
     }
 
     /**
@@ -206,18 +298,25 @@ public class Utils {
      * @throws InterruptedException if the request is interrupted
      */
     public static String getLatestRpmBuilderMavenPluginVersion() throws IOException, InterruptedException {
-        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(RPM_BUILDER_PLUGIN_METADATA_URL))
-                .GET()
-                .build();
-        HttpResponse<String> response = client.send(
-                request,
-                HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        return getLatestRpmBuilderMavenPluginVersion(URI.create(RPM_BUILDER_PLUGIN_METADATA_URL));
+    }
+
+    static String getLatestRpmBuilderMavenPluginVersion(URI metadata) throws IOException, InterruptedException {
+        try {
+            return PLUGIN_VERSIONS.get(metadata, () -> fetchLatestVersion(metadata));
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            // Not thrown by fetchLatestVersion
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String fetchLatestVersion(URI metadata) throws IOException, InterruptedException {
+        HttpResponse<String> response = HttpClients.get(metadata);
         if (response.statusCode() != 200) {
             throw new IOException(
-                    "Failed to fetch maven-metadata.xml: HTTP " + response.statusCode() + " "
-                            + RPM_BUILDER_PLUGIN_METADATA_URL);
+                    "Failed to fetch maven-metadata.xml: HTTP " + response.statusCode() + " " + metadata);
         }
         String body = response.body();
         String version = extractFirstMatch(LATEST_VERSION_PATTERN, body);
@@ -225,9 +324,7 @@ public class Utils {
             version = extractFirstMatch(RELEASE_VERSION_PATTERN, body);
         }
         if (version == null) {
-            throw new IOException(
-                    "Could not parse latest or release version from maven-metadata.xml: "
-                            + RPM_BUILDER_PLUGIN_METADATA_URL);
+            throw new IOException("Could not parse latest or release version from maven-metadata.xml: " + metadata);
         }
         return version;
     }
@@ -237,7 +334,18 @@ public class Utils {
         return m.find() ? m.group(1).trim() : null;
     }
 
-    private static TextProgressMonitor getMonitor(StringWriter writer) {
+    /**
+     * @return the total size of the pack files in the git directory
+     */
+    static long packSize(Path gitDir) {
+        try (var packs = Files.list(gitDir.resolve("objects").resolve("pack"))) {
+            return packs.filter(p -> p.toString().endsWith(".pack")).mapToLong(p -> p.toFile().length()).sum();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    static TextProgressMonitor getMonitor(StringWriter writer) {
         TextProgressMonitor monitor = new TextProgressMonitor(writer) {
             // Don't want percent updates, just final summaries.
             protected void onUpdate(String taskName, int workCurr, Duration duration) {
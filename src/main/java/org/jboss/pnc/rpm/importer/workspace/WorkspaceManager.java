@@ -0,0 +1,260 @@
+package org.jboss.pnc.rpm.importer.workspace;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.jboss.pnc.rpm.importer.utils.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Owns the working directories (clones) created by the importer. Directories are created under a
+ * configurable root (which may be a tmpfs such as {@code /dev/shm} as only a few small files are needed)
+ * and are deleted once they are no longer required.
+ * <p>
+ * If a quota is set, a new directory is only handed out once the directories in use plus the expected
+ * size of the new one (the average size of the clones so far) fit within it; otherwise {@link #create}
+ * blocks until other directories have been released. Retained directories stay on disk so they keep counting
+ * against the quota. A single directory is always allowed so that an oversized repository, or retained
+ * directories filling the quota, cannot stall the run.
+ * <p>
+ * Repositories are closed (see {@link Utils#closeRepository}) when their directory is released or retained.
+ */
+public class WorkspaceManager {
+    private static final Logger log = LoggerFactory.getLogger(WorkspaceManager.class);
+
+    private static final String PREFIX = "clone-";
+
+    /** Used as the expected size of a clone until one has been measured. */
+    private static final long DEFAULT_ESTIMATE = 50L * 1024 * 1024;
+
+    private final Path root;
+
+    private final long quota;
+
+    /**
+     * The directories created (or adopted) and not yet released or retained, and the space reserved (estimated,
+     * then measured) for each. Only these are ever deleted.
+     */
+    private final Map<Path, Long> reserved = new HashMap<>();
+
+    /**
+     * The directories retained, and their size. They are never deleted.
+     */
+    private final Map<Path, Long> retained = new HashMap<>();
+
+    private final AtomicLong measured = new AtomicLong();
+
+    private final AtomicLong measuredCount = new AtomicLong();
+
+    private long inUse;
+
+    /**
+     * @param root the directory to create working directories in
+     * @param quota the maximum number of bytes the working directories may use, or 0 for no limit
+     */
+    public WorkspaceManager(Path root, long quota) {
+        this.root = root;
+        this.quota = quota;
+    }
+
+    /**
+     * Creates a new, empty, working directory, waiting if the quota does not allow for it yet.
+     *
+     * @return the directory
+     */
+    public Path create() throws InterruptedException {
+        long estimate = estimate();
+        Path directory;
+        synchronized (this) {
+            while (quota > 0 && !reserved.isEmpty() && inUse + estimate > quota) {
+                log.info("Waiting for workspace space ({} of {} bytes in use)", inUse, quota);
+                wait();
+            }
+            try {
+                Files.createDirectories(root);
+                directory = Files.createTempDirectory(root, PREFIX);
+            } catch (IOException e) {
+                throw new RuntimeException("Cannot create working directory in " + root, e);
+            }
+            reserved.put(directory, estimate);
+            inUse += estimate;
+        }
+        return directory;
+    }
+
+    /**
+     * Takes ownership of a working directory created by an earlier run (e.g. one recorded in the journal of a
+     * resumed batch), so that it is deleted once released like those created by {@link #create}. Only a
+     * {@code clone-*} directory directly under the root is adopted.
+     *
+     * @param directory the directory
+     * @return true if the directory was adopted
+     */
+    public boolean adopt(Path directory) {
+        if (directory == null || !Files.isDirectory(directory)
+                || !directory.getFileName().toString().startsWith(PREFIX)
+                || !root.toAbsolutePath().normalize().equals(directory.toAbsolutePath().normalize().getParent())) {
+            return false;
+        }
+        long size = size(directory);
+        synchronized (this) {
+            if (reserved.containsKey(directory) || retained.containsKey(directory)) {
+                return false;
+            }
+            reserved.put(directory, size);
+            inUse += size;
+        }
+        log.debug("Adopted working directory {} ({} bytes)", directory, size);
+        return true;
+    }
+
+    /**
+     * Replaces the estimated size of a working directory with its actual size, for example once it has
+     * been cloned into.
+     */
+    public void measure(Path directory) {
+        long size = size(directory);
+        measured.addAndGet(size);
+        measuredCount.incrementAndGet();
+        synchronized (this) {
+            Long previous = reserved.replace(directory, size);
+            if (previous != null) {
+                inUse += size - previous;
+                notifyAll();
+            }
+        }
+        log.debug("Working directory {} uses {} bytes", directory, size);
+    }
+
+    /**
+     * Deletes a working directory that is no longer needed. Directories that were not created by this
+     * workspace manager (e.g. a repository passed in by the user, even if it is under the root) are never
+     * deleted.
+     */
+    public void release(Path directory) {
+        if (directory != null) {
+            Utils.closeRepository(directory);
+        }
+        if (!isManaged(directory)) {
+            return;
+        }
+        try {
+            delete(directory);
+            log.debug("Deleted working directory {}", directory);
+        } catch (IOException e) {
+            log.warn("Unable to delete working directory {}", directory, e);
+        }
+        forget(directory);
+    }
+
+    /**
+     * Keeps a working directory (e.g. for debugging a failure, or because it holds an unpushed commit). It is no
+     * longer deleted when released, but still counts against the quota.
+     */
+    public void retain(Path directory, String reason) {
+        if (directory != null) {
+            Utils.closeRepository(directory);
+        }
+        if (isManaged(directory)) {
+            log.info("Keeping working directory {} ({})", directory, reason);
+            long size = size(directory);
+            synchronized (this) {
+                Long previous = reserved.remove(directory);
+                if (previous != null) {
+                    retained.put(directory, size);
+                    inUse += size - previous;
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true if the directory was created or adopted by this manager and has not been released or retained
+     *         since
+     */
+    public synchronized boolean isManaged(Path directory) {
+        return directory != null && reserved.containsKey(directory);
+    }
+
+    private synchronized void forget(Path directory) {
+        Long size = reserved.remove(directory);
+        if (size != null) {
+            inUse -= size;
+            notifyAll();
+        }
+    }
+
+    private long estimate() {
+        long count = measuredCount.get();
+        return count == 0 ? DEFAULT_ESTIMATE : measured.get() / count;
+    }
+
+    /**
+     * Parses a size such as {@code 512M} or {@code 10G}.
+     *
+     * @param size the size, in bytes unless suffixed with K, M or G
+     * @return the number of bytes
+     * @throws IllegalArgumentException if the size is empty, negative or not a number
+     */
+    public static long parseSize(String size) {
+        String value = size == null ? "" : size.trim().toUpperCase(Locale.ROOT);
+        if (!value.matches("\\d+[KMG]?")) {
+            throw new IllegalArgumentException(
+                    "Invalid size '" + size + "'; expected a number of bytes, optionally suffixed with K, M or G");
+        }
+        long multiplier = switch (value.charAt(value.length() - 1)) {
+            case 'K' -> 1024L;
+            case 'M' -> 1024L * 1024;
+            case 'G' -> 1024L * 1024 * 1024;
+            default -> 1;
+        };
+        if (multiplier != 1) {
+            value = value.substring(0, value.length() - 1);
+        }
+        return Long.parseLong(value) * multiplier;
+    }
+
+    private static long size(Path directory) {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile).mapToLong(f -> f.toFile().length()).sum();
+        } catch (IOException e) {
+            log.warn("Unable to measure {}", directory, e);
+            return 0;
+        }
+    }
+
+    private static void delete(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                // Git marks pack files read only.
+                file.toFile().setWritable(true);
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                if (e != null) {
+                    throw e;
+                }
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
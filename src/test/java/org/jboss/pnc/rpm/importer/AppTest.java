@@ -27,6 +27,7 @@ import org.jboss.pnc.bacon.config.ConfigProfile;
 import org.jboss.pnc.bacon.config.PncConfig;
 import org.jboss.pnc.mavenmanipulator.common.util.ManifestUtils;
 import org.jboss.pnc.rpm.importer.model.Macros;
+import org.jboss.pnc.rpm.importer.model.WrappedArtifacts;
 import org.jboss.pnc.rpm.importer.utils.Utils;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -143,8 +144,8 @@ class AppTest {
             app.overrideVersionOptions.gavOverride = "com.google.guava:guava-parent:1.0.redhat-1";
             app.overrideVersionOptions.originalVersionOverride = "1.0";
 
-            // Mock getDependencies to return an empty list
-            doReturn(Collections.emptyList()).when(app).getDependencies(any(), any(), any());
+            // Mock getDependencies to return no artifacts
+            doReturn(new WrappedArtifacts()).when(app).getDependencies(any(), any(), any());
 
             //            File spec = new File(tempDir.toString(), "example.spec");
             //            spec.createNewFile();
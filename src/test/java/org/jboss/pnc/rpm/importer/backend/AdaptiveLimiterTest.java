@@ -0,0 +1,81 @@
+package org.jboss.pnc.rpm.importer.backend;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class AdaptiveLimiterTest {
+
+    @Test
+    void testIncreaseWhenUtilised() throws InterruptedException {
+        AdaptiveLimiter limiter = new AdaptiveLimiter("test", 2, 1, 4);
+        for (int i = 0; i < 20; i++) {
+            AdaptiveLimiter.Permit first = limiter.acquire();
+            AdaptiveLimiter.Permit second = limiter.acquire();
+            first.success();
+            second.success();
+        }
+        assertEquals(4, limiter.limit());
+
+        // A single call at a time does not use the limit so does not grow it.
+        AdaptiveLimiter idle = new AdaptiveLimiter("idle", 4, 1, 8);
+        for (int i = 0; i < 20; i++) {
+            idle.acquire().success();
+        }
+        assertEquals(4, idle.limit());
+    }
+
+    @Test
+    void testOverloadDecreasesOnce() throws InterruptedException {
+        AdaptiveLimiter limiter = new AdaptiveLimiter("test", 8, 1, 8);
+        List<AdaptiveLimiter.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            permits.add(limiter.acquire());
+        }
+        // All the calls in flight fail together, which is a single congestion event.
+        permits.forEach(AdaptiveLimiter.Permit::overloaded);
+        assertEquals(4, limiter.limit());
+
+        limiter.acquire().overloaded();
+        assertEquals(2, limiter.limit());
+        limiter.acquire().overloaded();
+        limiter.acquire().overloaded();
+        assertEquals(1, limiter.limit());
+    }
+
+    @Test
+    void testMixedLatencies() throws InterruptedException {
+        // An ls-remote followed by a clone: the clone is far slower than the baseline set by the ls-remote
+        AdaptiveLimiter limiter = new AdaptiveLimiter("test", 8, 1, 8);
+        limiter.acquire().success();
+        AdaptiveLimiter.Permit slow = limiter.acquire();
+        Thread.sleep(50);
+        slow.success();
+        assertEquals(7, limiter.limit());
+
+        // Which is not congestion for a backend whose latency depends on the amount of work
+        AdaptiveLimiter git = new AdaptiveLimiter("git", 8, 1, 8, Backend.GIT.latencyTracksLoad());
+        for (int i = 0; i < 5; i++) {
+            git.acquire().success();
+            slow = git.acquire();
+            Thread.sleep(50);
+            slow.success();
+        }
+        assertEquals(8, git.limit());
+        // Overload still reduces the limit
+        git.acquire().overloaded();
+        assertEquals(4, git.limit());
+    }
+
+    @Test
+    void testIsOverload() {
+        assertTrue(Backends.isOverload(new RuntimeException(new SocketTimeoutException())));
+        assertFalse(Backends.isOverload(new IllegalStateException("Not found")));
+    }
+}
@@ -0,0 +1,188 @@
+package org.jboss.pnc.rpm.importer.backend;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.ProcessingException;
+import jakarta.ws.rs.QueryParam;
+
+import org.eclipse.jgit.errors.TransportException;
+import org.jboss.pnc.rpm.importer.jfr.BackendCallEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+class BackendsTest {
+
+    interface Client {
+        @GET
+        String read();
+
+        String write();
+    }
+
+    @Test
+    void testRetryOnlyIdempotent() {
+        AtomicInteger reads = new AtomicInteger();
+        AtomicInteger writes = new AtomicInteger();
+        Client client = Backends.guard(Client.class, new Client() {
+            @Override
+            public String read() {
+                if (reads.incrementAndGet() < 3) {
+                    throw new ProcessingException(new IOException("Connection reset"));
+                }
+                return "read";
+            }
+
+            @Override
+            public String write() {
+                writes.incrementAndGet();
+                throw new ProcessingException(new IOException("Connection reset"));
+            }
+        }, Backend.REQOUR);
+
+        assertEquals("read", client.read());
+        assertEquals(3, reads.get());
+        assertThrows(ProcessingException.class, client::write);
+        assertEquals(1, writes.get());
+    }
+
+    @Test
+    void testHedge() {
+        AtomicInteger reads = new AtomicInteger();
+        Client client = Backends.guard(Client.class, new Client() {
+            @Override
+            public String read() {
+                if (reads.incrementAndGet() == 21) {
+                    try {
+                        Thread.sleep(10_000);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return "slow";
+                }
+                return "fast";
+            }
+
+            @Override
+            public String write() {
+                return null;
+            }
+        }, Backend.BREW);
+
+        Backends.setHedging(true);
+        try {
+            for (int i = 0; i < 20; i++) {
+                client.read();
+            }
+            long start = System.nanoTime();
+            assertEquals("fast", client.read());
+            assertTrue(System.nanoTime() - start < 5_000_000_000L);
+        } finally {
+            Backends.setHedging(false);
+        }
+    }
+
+    interface Paged {
+        @GET
+        String list(@QueryParam("pageIndex") int pageIndex);
+    }
+
+    @Test
+    void testEvents(@TempDir Path tempDir) throws IOException {
+        Paged client = Backends.guard(Paged.class, pageIndex -> "page " + pageIndex, Backend.GITLAB);
+        Path file = tempDir.resolve("backends.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(BackendCallEvent.class);
+            recording.start();
+            client.list(2);
+            assertThrows(ProcessingException.class, () -> Backends.call(Backend.GITLAB, "fail", () -> {
+                throw new ProcessingException(new IOException("Connection reset"));
+            }));
+            recording.stop();
+            recording.dump(file);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        assertEquals(2, events.size());
+        assertEquals("GITLAB", events.get(0).getString("backend"));
+        assertEquals("list", events.get(0).getString("operation"));
+        assertEquals(2, events.get(0).getInt("page"));
+        assertEquals("success", events.get(0).getString("outcome"));
+        assertEquals("fail", events.get(1).getString("operation"));
+        assertEquals("failed", events.get(1).getString("outcome"));
+    }
+
+    @Test
+    void testErrorReleasesPermit() {
+        int limit = Backends.limiter(Backend.ORCH).limit();
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            for (int i = 0; i <= limit; i++) {
+                assertThrows(StackOverflowError.class, () -> Backends.call(Backend.ORCH, "overflow", () -> {
+                    throw new StackOverflowError();
+                }));
+            }
+            // Every permit was released
+            assertEquals("ok", Backends.call(Backend.ORCH, () -> "ok"));
+        });
+    }
+
+    @Test
+    void testInterruptedRetry() {
+        Client client = Backends.guard(Client.class, new Client() {
+            @Override
+            public String read() {
+                throw new ProcessingException(new IOException("Connection reset"));
+            }
+
+            @Override
+            public String write() {
+                return null;
+            }
+        }, Backend.GITLAB);
+
+        Thread.currentThread().interrupt();
+        try {
+            RuntimeException e = assertThrows(RuntimeException.class, client::read);
+            assertEquals(RuntimeException.class, e.getClass());
+            assertInstanceOf(InterruptedException.class, e.getCause());
+            assertTrue(Thread.interrupted());
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    @Test
+    void testRepositoryFailures() throws IOException {
+        // A repository that does not exist fails every time, but says nothing about the others
+        for (int i = 0; i < 10; i++) {
+            assertThrows(TransportException.class, () -> Backends.call(Backend.GIT, "clone", () -> {
+                throw new TransportException("https://example.com/missing.git: not found");
+            }));
+        }
+        assertEquals("cloned", Backends.call(Backend.GIT, "clone", () -> "cloned"));
+    }
+
+    @Test
+    void testCircuitBreaker() {
+        CircuitBreaker breaker = new CircuitBreaker("test");
+        for (int i = 0; i < 5; i++) {
+            breaker.before();
+            breaker.failure();
+        }
+        assertThrows(CircuitBreaker.OpenException.class, breaker::before);
+        assertTrue(breaker.isOpen());
+    }
+}
@@ -0,0 +1,90 @@
+package org.jboss.pnc.rpm.importer.backend;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class CoalescerTest {
+
+    @Test
+    void testConcurrentCallsShareResult() throws Exception {
+        Coalescer<String, String> coalescer = new Coalescer<>("test");
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newFixedThreadPool(4)) {
+            List<CompletableFuture<String>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(CompletableFuture.supplyAsync(() -> coalescer.get("tag", () -> {
+                    calls.incrementAndGet();
+                    await(release);
+                    return "result";
+                }), executor));
+            }
+            // Wait for the followers to join the leader before letting it finish
+            while (coalescer.coalesced() < 3) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+            for (CompletableFuture<String> result : results) {
+                assertEquals("result", result.join());
+            }
+        } catch (Exception e) {
+            release.countDown();
+            throw e;
+        }
+        assertEquals(1, calls.get());
+        assertEquals(3, coalescer.coalesced());
+
+        // Nothing is cached once the call has completed
+        assertEquals("again", coalescer.get("tag", () -> "again"));
+        assertEquals(3, coalescer.coalesced());
+    }
+
+    @Test
+    void testFailureIsShared() throws Exception {
+        Coalescer<String, String> coalescer = new Coalescer<>("test");
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> {
+            try {
+                return coalescer.get("tag", () -> {
+                    started.countDown();
+                    await(release);
+                    throw new IOException("Connection reset");
+                });
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        started.await();
+        // The follower gets the leader's checked exception
+        CompletableFuture<Void> follower = CompletableFuture.runAsync(
+                () -> assertThrows(IOException.class, () -> coalescer.get("tag", () -> "unused")));
+        while (coalescer.coalesced() < 1) {
+            Thread.sleep(10);
+        }
+        release.countDown();
+        follower.join();
+        assertEquals(1, coalescer.coalesced());
+        assertEquals(IOException.class, assertThrows(Exception.class, leader::join).getCause().getCause().getClass());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+}
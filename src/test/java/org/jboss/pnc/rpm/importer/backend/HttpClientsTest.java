@@ -0,0 +1,89 @@
+package org.jboss.pnc.rpm.importer.backend;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+class HttpClientsTest {
+
+    private static final String BODY = "<metadata><versioning><latest>1.5</latest></versioning></metadata>";
+
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+
+    private HttpServer server;
+
+    @BeforeEach
+    void startStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/maven-metadata.xml", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            byte[] body = BODY.getBytes(StandardCharsets.UTF_8);
+            if ("gzip".equals(exchange.getRequestHeaders().getFirst("Accept-Encoding"))) {
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+                try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                    gzip.write(body);
+                }
+                body = compressed.toByteArray();
+                exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.createContext("/truncated", exchange -> {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(BODY.getBytes(StandardCharsets.UTF_8));
+            }
+            byte[] body = compressed.toByteArray();
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(200, body.length - 8);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body, 0, body.length - 8);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopStub() {
+        server.stop(0);
+    }
+
+    @Test
+    void testGzipAndConnectionReuse() throws IOException, InterruptedException {
+        URI uri = URI.create("http://localhost:" + server.getAddress().getPort() + "/maven-metadata.xml");
+        for (int i = 0; i < 10; i++) {
+            var response = HttpClients.get(uri);
+            assertEquals(200, response.statusCode());
+            assertEquals(BODY, response.body());
+        }
+        // Sequential requests are all served over the one pooled connection.
+        assertEquals(1, clientPorts.size());
+    }
+
+    @Test
+    void testTruncatedBody() {
+        URI uri = URI.create("http://localhost:" + server.getAddress().getPort() + "/truncated");
+        // The failure to decompress the body is reported as such, rather than wrapped
+        assertInstanceOf(EOFException.class, assertThrows(IOException.class, () -> HttpClients.get(uri)));
+    }
+}
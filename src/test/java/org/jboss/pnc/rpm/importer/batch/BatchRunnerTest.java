@@ -0,0 +1,119 @@
+package org.jboss.pnc.rpm.importer.batch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Constants;
+import org.jboss.pnc.rpm.importer.checkout.WorkTreeCheckout;
+import org.jboss.pnc.rpm.importer.utils.Utils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BatchRunnerTest {
+
+    @Test
+    void testParseEntries(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("batch");
+        Files.writeString(file, """
+                # Comment
+                https://pkgs.example.com/git/rpms/foo jb-eap-8.0-rhel-9 jb-eap-8.1-rhel-9
+                https://pkgs.example.com/git/rpms/bar jb-eap-8.0-rhel-9
+                """);
+        assertEquals(
+                List.of(
+                        new BatchEntry("https://pkgs.example.com/git/rpms/foo", "jb-eap-8.0-rhel-9"),
+                        new BatchEntry("https://pkgs.example.com/git/rpms/foo", "jb-eap-8.1-rhel-9"),
+                        new BatchEntry("https://pkgs.example.com/git/rpms/bar", "jb-eap-8.0-rhel-9")),
+                BatchEntry.parse(file));
+
+        Files.writeString(file, "https://pkgs.example.com/git/rpms/foo");
+        assertThrows(IllegalArgumentException.class, () -> BatchEntry.parse(file));
+    }
+
+    @Test
+    void testRun(@TempDir Path tempDir) throws IOException, GitAPIException {
+        Path seed = tempDir.resolve("seed");
+        try (Git git = Git.init().setDirectory(seed.toFile()).setInitialBranch("main").call()) {
+            Files.writeString(seed.resolve("README"), "");
+            git.add().addFilepattern("README").call();
+            git.commit().setMessage("Initial commit").setAuthor("Test User", "test@example.com").call();
+        }
+        Path remote = tempDir.resolve("remote.git");
+        Git.cloneRepository().setBare(true).setURI(seed.toUri().toString()).setDirectory(remote.toFile()).call().close();
+        Path working = tempDir.resolve("working");
+        Git.cloneRepository().setURI(remote.toUri().toString()).setDirectory(working.toFile()).call().close();
+        Files.writeString(working.resolve("pom.xml"), "<project/>");
+
+        List<BatchEntry> entries = List.of(
+                new BatchEntry("pushed", "main"),
+                new BatchEntry("unchanged", "main"),
+                new BatchEntry("failed", "main"));
+        BatchReport report;
+        try (PushStage pushStage = new PushStage(1, 1)) {
+            report = new BatchRunner(2, pushStage).run(entries, entry -> switch (entry.url()) {
+                case "pushed" -> Utils.commitRepository(working) ? new WorkTreeCheckout(working) : null;
+                case "unchanged" -> null;
+                default -> throw new IllegalStateException("Failed import");
+            });
+        }
+
+        Map<String, BatchResult.Status> statuses = report.results()
+                .stream()
+                .collect(Collectors.toMap(r -> r.entry().url(), BatchResult::status));
+        assertEquals(BatchResult.Status.PUSHED, statuses.get("pushed"));
+        assertEquals(BatchResult.Status.UNCHANGED, statuses.get("unchanged"));
+        assertEquals(BatchResult.Status.FAILED, statuses.get("failed"));
+        try (Git git = Git.open(remote.toFile()); Git local = Git.open(working.toFile())) {
+            assertEquals(
+                    local.getRepository().resolve(Constants.HEAD),
+                    git.getRepository().exactRef(Constants.R_HEADS + "main").getObjectId());
+        }
+    }
+
+    @Test
+    void testResume(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("batch.journal");
+        BatchEntry done = new BatchEntry("done", "main");
+        BatchEntry partial = new BatchEntry("partial", "main");
+        try (Journal journal = Journal.open(file, false)) {
+            journal.record(done, Stage.TRANSLATED, null);
+            journal.record(done, Stage.UNCHANGED, tempDir);
+            journal.record(partial, Stage.CLONED, tempDir);
+        }
+        // Simulate a crash part way through writing a record
+        Files.writeString(file, "GENERA", StandardOpenOption.APPEND);
+
+        List<BatchEntry> imported = new ArrayList<>();
+        BatchReport report;
+        try (Journal journal = Journal.open(file, true)) {
+            assertEquals(new Journal.Progress(Stage.CLONED, tempDir.toAbsolutePath()), journal.progress(partial));
+            report = new BatchRunner(1, null, journal).run(List.of(done, partial), entry -> {
+                imported.add(entry);
+                return null;
+            });
+        }
+
+        assertEquals(List.of(partial), imported);
+        assertEquals(
+                List.of(BatchResult.Status.SKIPPED, BatchResult.Status.UNCHANGED),
+                report.results().stream().map(BatchResult::status).toList());
+        try (Journal journal = Journal.open(file, true)) {
+            assertEquals(Stage.UNCHANGED, journal.progress(partial).stage());
+        }
+        try (Journal journal = Journal.open(file, false)) {
+            assertNull(journal.progress(done));
+        }
+    }
+}
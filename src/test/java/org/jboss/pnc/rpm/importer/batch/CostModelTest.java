@@ -0,0 +1,65 @@
+package org.jboss.pnc.rpm.importer.batch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CostModelTest {
+
+    private static final BatchEntry SMALL = new BatchEntry("https://example.com/rpms/small", "jb-eap-8.0-rhel-9");
+
+    private static final BatchEntry LARGE = new BatchEntry("https://example.com/rpms/large", "jb-eap-8.0-rhel-9");
+
+    private static final BatchEntry LARGE_BRANCH = new BatchEntry(
+            "https://example.com/rpms/large",
+            "jb-eap-8.1-rhel-9");
+
+    private static final BatchEntry NEW = new BatchEntry("https://example.com/rpms/new", "jb-eap-8.0-rhel-9");
+
+    @Test
+    void testEstimate(@TempDir Path tempDir) {
+        Path file = tempDir.resolve("costs.properties");
+        CostModel costs = new CostModel(file);
+        costs.recordArtifacts(SMALL, 10);
+        costs.recordArtifacts(LARGE, 1000);
+        BatchReport report = new BatchReport();
+        report.add(new BatchResult(SMALL, BatchResult.Status.PUSHED, Duration.ofSeconds(1), null));
+        report.add(new BatchResult(LARGE, BatchResult.Status.PUSHED, Duration.ofSeconds(100), null));
+        report.add(new BatchResult(NEW, BatchResult.Status.FAILED, Duration.ofSeconds(500), null));
+        costs.record(report);
+
+        // Read back from the history file
+        costs = new CostModel(file);
+        costs.recordArtifacts(NEW, 50);
+        Map<BatchEntry, Duration> estimates = costs.estimate(List.of(SMALL, LARGE, LARGE_BRANCH, NEW));
+        assertEquals(Duration.ofSeconds(1), estimates.get(SMALL));
+        assertEquals(Duration.ofSeconds(100), estimates.get(LARGE));
+        // Another branch of the same repository
+        assertEquals(Duration.ofSeconds(100), estimates.get(LARGE_BRANCH));
+        // 101 s for 1010 artifacts
+        assertEquals(Duration.ofSeconds(5), estimates.get(NEW));
+
+        assertEquals(
+                List.of(LARGE, LARGE_BRANCH, NEW, SMALL),
+                CostModel.longestFirst(List.of(SMALL, NEW, LARGE, LARGE_BRANCH), estimates));
+
+        // Smoothed with the previous time
+        report = new BatchReport();
+        report.add(new BatchResult(SMALL, BatchResult.Status.UNCHANGED, Duration.ofSeconds(3), null));
+        costs.record(report);
+        assertEquals(Duration.ofSeconds(2), costs.estimate(List.of(SMALL)).get(SMALL));
+    }
+
+    @Test
+    void testNoHistory() {
+        Map<BatchEntry, Duration> estimates = new CostModel(null).estimate(List.of(SMALL, LARGE));
+        assertEquals(Duration.ZERO, estimates.get(SMALL));
+        assertEquals(List.of(SMALL, LARGE), CostModel.longestFirst(List.of(SMALL, LARGE), estimates));
+    }
+}
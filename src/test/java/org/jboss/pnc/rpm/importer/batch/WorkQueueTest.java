@@ -0,0 +1,148 @@
+package org.jboss.pnc.rpm.importer.batch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.jboss.pnc.rpm.importer.checkout.Checkout;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class WorkQueueTest {
+
+    private static final List<BatchEntry> ENTRIES = List.of(
+            new BatchEntry("https://example.com/rpms/foo", "jb-eap-8.0-rhel-9"),
+            new BatchEntry("https://example.com/rpms/foo", "jb-eap-8.1-rhel-9"),
+            new BatchEntry("https://example.com/rpms/bar", "jb-eap-8.0-rhel-9"),
+            new BatchEntry("https://example.com/rpms/baz", "feature/x"),
+            new BatchEntry("https://example.com/rpms/baz", "feature_x"));
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testEnqueue() throws Exception {
+        try (WorkQueue queue = WorkQueue.open(tempDir, "a", Duration.ofMinutes(1))) {
+            assertEquals(ENTRIES.size(), queue.enqueue(ENTRIES, false));
+            // Already queued
+            assertEquals(0, queue.enqueue(ENTRIES, false));
+            assertEquals(Set.copyOf(ENTRIES), Set.copyOf(queue.pending()));
+
+            BatchEntry entry = queue.claim();
+            queue.complete(new BatchResult(entry, BatchResult.Status.PUSHED, Duration.ofSeconds(1), null));
+            assertEquals(ENTRIES.size() - 1, queue.pending().size());
+            // Completed entries are only added again when not resuming
+            assertEquals(0, queue.enqueue(List.of(entry), true));
+            assertEquals(1, queue.enqueue(List.of(entry), false));
+            assertEquals(0, queue.report().results().size());
+        }
+    }
+
+    @Test
+    void testLongestFirst() throws Exception {
+        try (WorkQueue queue = WorkQueue.open(tempDir, "a", Duration.ofMinutes(1))) {
+            queue.enqueue(
+                    ENTRIES.subList(0, 3),
+                    Map.of(ENTRIES.get(0), Duration.ofSeconds(5), ENTRIES.get(2), Duration.ofMinutes(5)),
+                    false);
+            assertEquals(ENTRIES.get(2), queue.claim());
+            assertEquals(ENTRIES.get(0), queue.claim());
+            assertEquals(ENTRIES.get(1), queue.claim());
+        }
+    }
+
+    @Test
+    void testWorkers() throws Exception {
+        Map<BatchEntry, String> importedBy = new ConcurrentHashMap<>();
+        try (WorkQueue a = WorkQueue.open(tempDir, "a", Duration.ofSeconds(2));
+                WorkQueue b = WorkQueue.open(tempDir, "b", Duration.ofSeconds(2))) {
+            a.enqueue(ENTRIES, false);
+            CompletableFuture<BatchReport> first = CompletableFuture.supplyAsync(
+                    () -> new BatchRunner(2, null).run(a, entry -> importEntry(importedBy, "a", entry)));
+            BatchReport second = new BatchRunner(2, null).run(b, entry -> importEntry(importedBy, "b", entry));
+
+            // Each entry is imported once, by one of the workers
+            assertEquals(ENTRIES.size(), first.join().results().size() + second.results().size());
+            assertEquals(Set.copyOf(ENTRIES), importedBy.keySet());
+
+            Map<BatchEntry, BatchResult> merged = a.report()
+                    .results()
+                    .stream()
+                    .collect(Collectors.toMap(BatchResult::entry, r -> r));
+            assertEquals(Set.copyOf(ENTRIES), merged.keySet());
+            assertEquals(BatchResult.Status.FAILED, merged.get(ENTRIES.get(2)).status());
+            assertEquals("Failed import", merged.get(ENTRIES.get(2)).message());
+            assertEquals(BatchResult.Status.UNCHANGED, merged.get(ENTRIES.get(0)).status());
+            assertNull(a.claim());
+        }
+    }
+
+    private static Checkout importEntry(Map<BatchEntry, String> importedBy, String worker, BatchEntry entry)
+            throws InterruptedException {
+        assertNull(importedBy.put(entry, worker));
+        if (entry.url().endsWith("bar")) {
+            throw new IllegalStateException("Failed import");
+        }
+        Thread.sleep(50);
+        return null;
+    }
+
+    @Test
+    void testExpiredLease() throws Exception {
+        try (WorkQueue dead = WorkQueue.open(tempDir, "dead", Duration.ofMillis(400));
+                WorkQueue live = WorkQueue.open(tempDir, "live", Duration.ofMillis(400))) {
+            dead.enqueue(ENTRIES.subList(0, 1), false);
+            BatchEntry leased = dead.claim();
+            assertNotNull(leased);
+            // The dead worker stops renewing its lease
+            dead.close();
+
+            assertEquals(leased, live.claim());
+            live.complete(new BatchResult(leased, BatchResult.Status.PUSHED, Duration.ZERO, "a\tmulti\nline message"));
+            assertNull(live.claim());
+
+            BatchResult result = live.report().results().get(0);
+            assertEquals(BatchResult.Status.PUSHED, result.status());
+            assertEquals("a multi line message", result.message());
+        }
+    }
+
+    @Test
+    void testHeartbeat() throws Exception {
+        try (WorkQueue holder = WorkQueue.open(tempDir, "holder", Duration.ofMillis(400));
+                WorkQueue other = WorkQueue.open(tempDir, "other", Duration.ofMillis(400))) {
+            holder.enqueue(ENTRIES.subList(0, 2), false);
+            BatchEntry held = holder.claim();
+            // Well past the timeout, but the lease is renewed
+            Thread.sleep(1000);
+            BatchEntry next = other.claim();
+            assertNotEquals(held, next);
+            other.complete(new BatchResult(next, BatchResult.Status.UNCHANGED, Duration.ZERO, null));
+            holder.complete(new BatchResult(held, BatchResult.Status.UNCHANGED, Duration.ZERO, null));
+            assertNull(other.claim());
+        }
+    }
+
+    @Test
+    void testShortLeaseTimeout() throws Exception {
+        assertThrows(IllegalArgumentException.class, () -> WorkQueue.open(tempDir, "zero", Duration.ZERO));
+        // A quarter of the timeout rounds down to 0 ms, which must not be used as the heartbeat interval
+        try (WorkQueue queue = WorkQueue.open(tempDir, "short", Duration.ofMillis(3))) {
+            queue.enqueue(ENTRIES.subList(0, 1), false);
+            BatchEntry entry = queue.claim();
+            queue.complete(new BatchResult(entry, BatchResult.Status.UNCHANGED, Duration.ZERO, null));
+            assertNull(queue.claim());
+        }
+    }
+}
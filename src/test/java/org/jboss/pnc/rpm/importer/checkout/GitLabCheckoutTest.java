@@ -0,0 +1,210 @@
+package org.jboss.pnc.rpm.importer.checkout;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.pnc.rpm.importer.batch.BatchEntry;
+import org.jboss.pnc.rpm.importer.batch.PushStage;
+import org.jboss.pnc.rpm.importer.utils.ETT;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+class GitLabCheckoutTest {
+
+    private static final String BRANCH = "jb-eap-8.0-rhel-9";
+
+    private static final String PROJECT = "/api/v4/projects/rpms%2Ffoo/repository";
+
+    /** The files on the branch of the stub repository. */
+    private final Map<String, String> files = new ConcurrentHashMap<>();
+
+    /** The last commit that changed each file. */
+    private final Map<String, String> lastCommits = new ConcurrentHashMap<>();
+
+    private final List<JsonNode> commits = new CopyOnWriteArrayList<>();
+
+    /** The number of commit requests to fail with 503 before accepting one. */
+    private final AtomicInteger unavailable = new AtomicInteger();
+
+    private volatile String head = "c0";
+
+    private HttpServer server;
+
+    private String api;
+
+    @BeforeEach
+    void startStub() throws IOException {
+        files.put(ETT.LAST_MEAD_BUILD, "org.foo-bar-1.0.0.redhat_00001-1");
+        files.put("foo.spec", "Name: foo");
+        lastCommits.put(ETT.LAST_MEAD_BUILD, head);
+        lastCommits.put("foo.spec", head);
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/api/v4/projects/", exchange -> {
+            if (!"secret".equals(exchange.getRequestHeaders().getFirst("PRIVATE-TOKEN"))) {
+                respond(exchange, 401, "{\"message\":\"401 Unauthorized\"}");
+                return;
+            }
+            String path = exchange.getRequestURI().getRawPath();
+            String query = exchange.getRequestURI().getQuery();
+            if (path.equals(PROJECT + "/branches/" + BRANCH)) {
+                respond(exchange, 200, "{\"name\":\"" + BRANCH + "\",\"commit\":{\"id\":\"" + head + "\"}}");
+            } else if (path.equals(PROJECT + "/tree") && query.contains("ref=" + head)) {
+                // Two pages of one file each, plus a directory that must be ignored
+                boolean first = query.endsWith("&page=1");
+                List<String> names = files.keySet().stream().sorted().toList();
+                StringBuilder body = new StringBuilder("[");
+                for (int i = first ? 0 : 1; i < (first ? 1 : names.size()); i++) {
+                    body.append("{\"name\":\"").append(names.get(i)).append("\",\"type\":\"blob\"},");
+                }
+                body.append("{\"name\":\"patches\",\"type\":\"tree\"}]");
+                exchange.getResponseHeaders().add("X-Next-Page", first ? "2" : "");
+                respond(exchange, 200, body.toString());
+            } else if (path.startsWith(PROJECT + "/files/") && path.endsWith("/raw")) {
+                String file = path.substring((PROJECT + "/files/").length(), path.length() - "/raw".length());
+                String content = files.get(file);
+                if (content != null) {
+                    exchange.getResponseHeaders().add("X-Gitlab-Last-Commit-Id", lastCommits.get(file));
+                }
+                respond(exchange, content == null ? 404 : 200, content == null ? "" : content);
+            } else if (path.equals(PROJECT + "/commits") && "POST".equals(exchange.getRequestMethod())) {
+                JsonNode commit = new ObjectMapper().readTree(exchange.getRequestBody());
+                if (unavailable.getAndDecrement() > 0) {
+                    respond(exchange, 503, "{\"message\":\"503 Service Unavailable\"}");
+                    return;
+                }
+                for (JsonNode action : commit.path("actions")) {
+                    JsonNode lastCommit = action.path("last_commit_id");
+                    if (!lastCommit.isMissingNode()
+                            && !lastCommit.asText().equals(lastCommits.get(action.path("file_path").asText()))) {
+                        respond(exchange, 400, "{\"message\":\"The file has changed since you started editing it\"}");
+                        return;
+                    }
+                }
+                commits.add(commit);
+                String id = change(commit.path("actions"));
+                respond(exchange, 201, "{\"id\":\"" + id + "\"}");
+            } else {
+                respond(exchange, 404, "{\"message\":\"404 Not Found\"}");
+            }
+        });
+        server.start();
+        api = "http://localhost:" + server.getAddress().getPort() + "/api/v4/";
+    }
+
+    @AfterEach
+    void stopStub() {
+        server.stop(0);
+    }
+
+    /**
+     * Applies the actions of a commit to the branch.
+     *
+     * @return the id of the new commit
+     */
+    private synchronized String change(Iterable<JsonNode> actions) {
+        head = "c" + (Integer.parseInt(head.substring(1)) + 1);
+        for (JsonNode action : actions) {
+            files.put(action.path("file_path").asText(), action.path("content").asText());
+            lastCommits.put(action.path("file_path").asText(), head);
+        }
+        return head;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Test
+    void testCommitAndPush() throws Exception {
+        GitLabCheckout checkout = GitLabCheckout.open(api, "secret", "git@gitlab.example.com:rpms/foo.git", BRANCH);
+        assertTrue(checkout.directory().isEmpty());
+        assertEquals(List.of("foo.spec", ETT.LAST_MEAD_BUILD), checkout.list());
+        assertEquals(Optional.of("org.foo-bar-1.0.0.redhat_00001-1"), checkout.read(ETT.LAST_MEAD_BUILD));
+        assertEquals(Optional.empty(), checkout.read(Checkout.POM));
+
+        checkout.writePom("<project/>");
+        assertTrue(checkout.commit());
+        // Nothing is written until pushed
+        assertTrue(commits.isEmpty());
+        checkout.push();
+
+        assertEquals(1, commits.size());
+        JsonNode commit = commits.get(0);
+        assertEquals(BRANCH, commit.path("branch").asText());
+        assertEquals(Checkout.COMMIT_MESSAGE, commit.path("commit_message").asText());
+        assertEquals("create", commit.path("actions").get(0).path("action").asText());
+        assertEquals("<project/>", files.get(Checkout.POM));
+
+        // An unchanged pom is not committed
+        GitLabCheckout again = GitLabCheckout.open(api, "secret", "https://gitlab.example.com/rpms/foo", BRANCH);
+        again.writePom("<project/>");
+        assertFalse(again.commit());
+        again.push();
+        assertEquals(1, commits.size());
+
+        // A changed one updates the existing file
+        again.writePom("<project><modelVersion>4.0.0</modelVersion></project>");
+        assertTrue(again.commit());
+        again.push();
+        assertEquals(2, commits.size());
+        assertEquals("update", commits.get(1).path("actions").get(0).path("action").asText());
+        // Against the commit the pom was read at
+        assertEquals("c1", commits.get(1).path("actions").get(0).path("last_commit_id").asText());
+    }
+
+    @Test
+    void testConcurrentChange() throws Exception {
+        GitLabCheckout checkout = GitLabCheckout.open(api, "secret", "https://gitlab.example.com/rpms/foo", BRANCH);
+        assertEquals(Optional.of("org.foo-bar-1.0.0.redhat_00001-1"), checkout.read(ETT.LAST_MEAD_BUILD));
+        checkout.writePom("<project/>");
+        assertTrue(checkout.commit());
+
+        // The ETT files are updated before the pom generated from them is pushed
+        change(
+                new ObjectMapper().readTree(
+                        "[{\"file_path\":\"" + ETT.LAST_MEAD_BUILD
+                                + "\",\"content\":\"org.foo-bar-1.0.1.redhat_00001-1\"}]"));
+        RuntimeException e = assertThrows(RuntimeException.class, checkout::push);
+        assertTrue(e.getMessage().contains("the branch has moved from c0 to c1"), e.getMessage());
+        assertTrue(commits.isEmpty());
+        assertFalse(files.containsKey(Checkout.POM));
+    }
+
+    @Test
+    void testRetriedUnavailable() throws Exception {
+        GitLabCheckout checkout = GitLabCheckout.open(api, "secret", "https://gitlab.example.com/rpms/foo", BRANCH);
+        checkout.writePom("<project/>");
+        assertTrue(checkout.commit());
+
+        unavailable.set(1);
+        try (PushStage stage = new PushStage(1, 1)) {
+            stage.submit(new BatchEntry("https://gitlab.example.com/rpms/foo", BRANCH), checkout).join();
+        }
+        assertEquals(1, commits.size());
+        assertEquals("<project/>", files.get(Checkout.POM));
+    }
+}
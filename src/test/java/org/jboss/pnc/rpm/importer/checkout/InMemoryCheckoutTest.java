@@ -0,0 +1,90 @@
+package org.jboss.pnc.rpm.importer.checkout;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.jboss.pnc.rpm.importer.utils.ETT;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class InMemoryCheckoutTest {
+
+    private static final String BRANCH = "jb-eap-8.0-rhel-9";
+
+    @Test
+    void testCommitAndPush(@TempDir Path tempDir) throws Exception {
+        Path source = tempDir.resolve("source");
+        try (Git git = Git.init().setDirectory(source.toFile()).setInitialBranch(BRANCH).call()) {
+            Files.writeString(source.resolve(ETT.LAST_MEAD_BUILD), "org.foo-bar-1.0.0.redhat_00001-1");
+            Files.writeString(source.resolve("foo.spec"), "Name: foo");
+            Files.createDirectories(source.resolve("patches"));
+            Files.writeString(source.resolve("patches").resolve("fix.patch"), "");
+            git.add().addFilepattern(".").call();
+            git.commit().setMessage("ETT").setAuthor("Test User", "test@example.com").call();
+            // History beyond the shallow fetch
+            Files.writeString(source.resolve("foo.spec"), "Name: foo\nVersion: 1.0.0");
+            git.commit().setAll(true).setMessage("Spec").setAuthor("Test User", "test@example.com").call();
+        }
+        Path remote = tempDir.resolve("remote.git");
+        Git.cloneRepository().setURI(source.toUri().toString()).setDirectory(remote.toFile()).setBare(true).call()
+                .close();
+        String url = remote.toUri().toString();
+
+        InMemoryCheckout checkout = InMemoryCheckout.fetch(url, BRANCH);
+        assertTrue(checkout.directory().isEmpty());
+        assertEquals(List.of("foo.spec", ETT.LAST_MEAD_BUILD), checkout.list());
+        assertEquals(Optional.of("org.foo-bar-1.0.0.redhat_00001-1"), checkout.read(ETT.LAST_MEAD_BUILD));
+        assertEquals(Optional.empty(), checkout.read("patches"));
+        assertEquals(Optional.empty(), checkout.read(Checkout.POM));
+
+        checkout.writePom("<project/>");
+        assertTrue(checkout.commit());
+        checkout.push();
+
+        // The identity a commit in a clone on disk would have
+        PersonIdent expected;
+        try (Git git = Git.init().setDirectory(tempDir.resolve("disk").toFile()).call()) {
+            expected = new PersonIdent(git.getRepository());
+        }
+
+        try (Git git = Git.open(remote.toFile())) {
+            Repository repository = git.getRepository();
+            ObjectId head = repository.resolve("refs/heads/" + BRANCH);
+            try (RevWalk revWalk = new RevWalk(repository)) {
+                RevCommit commit = revWalk.parseCommit(head);
+                assertEquals(Checkout.COMMIT_MESSAGE, commit.getFullMessage());
+                assertEquals(1, commit.getParentCount());
+                for (PersonIdent ident : List.of(commit.getAuthorIdent(), commit.getCommitterIdent())) {
+                    assertEquals(expected.getName(), ident.getName());
+                    assertEquals(expected.getEmailAddress(), ident.getEmailAddress());
+                }
+                try (TreeWalk treeWalk = TreeWalk.forPath(repository, Checkout.POM, commit.getTree())) {
+                    assertEquals("<project/>", new String(repository.open(treeWalk.getObjectId(0)).getBytes()));
+                }
+                // The rest of the tree is preserved
+                try (TreeWalk treeWalk = TreeWalk.forPath(repository, "patches/fix.patch", commit.getTree())) {
+                    assertTrue(treeWalk != null);
+                }
+            }
+        }
+
+        // An unchanged pom is not committed
+        InMemoryCheckout again = InMemoryCheckout.fetch(url, BRANCH);
+        assertEquals(Optional.of("<project/>"), again.read(Checkout.POM));
+        again.writePom("<project/>");
+        assertFalse(again.commit());
+    }
+}
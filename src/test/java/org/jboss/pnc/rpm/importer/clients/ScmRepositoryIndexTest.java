@@ -0,0 +1,68 @@
+package org.jboss.pnc.rpm.importer.clients;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.jboss.pnc.dto.SCMRepository;
+import org.jboss.pnc.dto.response.Page;
+import org.junit.jupiter.api.Test;
+
+class ScmRepositoryIndexTest {
+
+    @Test
+    void testNormalize() {
+        assertEquals(
+                "gitlab.example.com/pnc-workspace/sshd",
+                ScmRepositoryIndex.normalize("git@gitlab.example.com:pnc-workspace/sshd.git"));
+        assertEquals(
+                "gitlab.example.com/pnc-workspace/sshd",
+                ScmRepositoryIndex.normalize("https://GitLab.example.com/pnc-workspace/sshd/"));
+        assertEquals(
+                "gitlab.example.com/pnc-workspace/sshd",
+                ScmRepositoryIndex.normalize("ssh://git@gitlab.example.com:22/pnc-workspace/sshd.git"));
+    }
+
+    @Test
+    void testFind() {
+        OrchService orchService = mock(OrchService.class);
+        SCMRepository sshd = SCMRepository.builder()
+                .id("1")
+                .internalUrl("git@gitlab.example.com:pnc-workspace/rpms/sshd.git")
+                .externalUrl("https://pkgs.example.com/git/rpms/sshd")
+                .build();
+        SCMRepository guava = SCMRepository.builder()
+                .id("2")
+                .internalUrl("git@gitlab.example.com:pnc-workspace/rpms/guava.git")
+                .build();
+        when(orchService.getAll(any(), any(), eq(200), eq(0))).thenReturn(new Page<>(0, 200, 2, 2, List.of(sshd)));
+        when(orchService.getAll(any(), any(), eq(200), eq(1))).thenReturn(new Page<>(1, 200, 2, 2, List.of(guava)));
+
+        ScmRepositoryIndex index = new ScmRepositoryIndex(orchService, "https://pnc", () -> "token");
+
+        assertEquals(sshd, index.find("https://gitlab.example.com/pnc-workspace/rpms/sshd").orElseThrow());
+        assertEquals(sshd, index.find("https://pkgs.example.com/git/rpms/sshd.git").orElseThrow());
+        assertEquals(guava, index.find("git@gitlab.example.com:pnc-workspace/rpms/guava.git").orElseThrow());
+        assertFalse(index.find("git@gitlab.example.com:pnc-workspace/rpms/netty.git").isPresent());
+        assertEquals(3, index.size());
+        verify(orchService, times(2)).getAll(any(), any(), anyInt(), anyInt());
+
+        SCMRepository netty = SCMRepository.builder()
+                .id("3")
+                .internalUrl("git@gitlab.example.com:pnc-workspace/rpms/netty.git")
+                .build();
+        when(orchService.getAll(any(), any(), eq("git@gitlab.example.com:pnc-workspace/rpms/netty.git")))
+                .thenReturn(new Page<>(0, 1, 1, 1, List.of(netty)));
+        index.refresh("git@gitlab.example.com:pnc-workspace/rpms/netty.git");
+        assertTrue(index.find("git@gitlab.example.com:pnc-workspace/rpms/netty.git").isPresent());
+    }
+}
@@ -0,0 +1,57 @@
+package org.jboss.pnc.rpm.importer.listen;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import org.jboss.pnc.rpm.importer.batch.BatchEntry;
+import org.jboss.pnc.rpm.importer.model.brew.BrewBuild;
+import org.jboss.pnc.rpm.importer.model.brew.MavenGav;
+import org.jboss.pnc.rpm.importer.scan.DriftScanner;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BuildIndexTest {
+
+    @Test
+    void testAffected(@TempDir Path tempDir) throws Exception {
+        String url = BuildListenerTest
+                .createRepository(tempDir, "org.foo-bar-2.0.1.Final_redhat_00001-1", "org.foo-bar");
+        Path batch = tempDir.resolve("batch");
+        Files.writeString(batch, url + " jb-eap-8.0-rhel-9 main\n");
+        BuildIndex index = new BuildIndex(new DriftScanner(tempDir.resolve("mirror"), 2), batch);
+
+        assertTrue(index.reload());
+        assertFalse(index.reload());
+        // The main branch has no ETT files
+        assertEquals(1, index.size());
+        List<BatchEntry> entry = List.of(new BatchEntry(url, "jb-eap-8.0-rhel-9"));
+        assertEquals(entry, index.affected(new BrewBuild("org.foo-bar-2.0.2.Final_redhat_00001-1", null, null)));
+        // A Maven build is also matched by its GAV
+        assertEquals(
+                entry,
+                index.affected(new BrewBuild("renamed-2.0.2-1", null, new MavenGav("org.foo", "bar", "2.0.2"))));
+        assertEquals(List.of(), index.affected(new BrewBuild("org.foo-baz-2.0.2.Final_redhat_00001-1", null, null)));
+        assertEquals("org.foo-bar-2.0.1.Final_redhat_00001-1", index.lastMeadBuild(entry.get(0)));
+        assertNull(index.lastMeadBuild(new BatchEntry(url, "main")));
+
+        // Entries removed from the batch file are dropped
+        Files.writeString(batch, "");
+        Files.setLastModifiedTime(batch, FileTime.fromMillis(Files.getLastModifiedTime(batch).toMillis() + 1000));
+        assertTrue(index.reload());
+        assertEquals(0, index.size());
+        assertEquals(List.of(), index.affected(new BrewBuild("org.foo-bar-2.0.2.Final_redhat_00001-1", null, null)));
+    }
+
+    @Test
+    void testPackageName() {
+        assertEquals("org.foo-bar", BuildIndex.packageName("org.foo-bar-2.0.1.Final_redhat_00001-1"));
+        assertEquals("bar", BuildIndex.packageName("bar"));
+    }
+}
@@ -0,0 +1,186 @@
+package org.jboss.pnc.rpm.importer.listen;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jgit.api.Git;
+import org.jboss.pnc.rpm.importer.batch.BatchEntry;
+import org.jboss.pnc.rpm.importer.scan.DriftScanner;
+import org.jboss.pnc.rpm.importer.utils.ETT;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BuildListenerTest {
+
+    private static final String DESTINATION = "/queue/Consumer.test.VirtualTopic.eng.brew.build.complete";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testListen() throws Exception {
+        String url = createRepository(tempDir, "org.foo-bar-2.0.1.Final_redhat_00001-1", "org.foo-bar");
+        Path batch = tempDir.resolve("batch");
+        Files.writeString(batch, url + " jb-eap-8.0-rhel-9\n");
+        BuildIndex index = new BuildIndex(new DriftScanner(tempDir.resolve("mirror"), 2), batch);
+        List<BatchEntry> entries = List.of(new BatchEntry(url, "jb-eap-8.0-rhel-9"));
+
+        try (ServerSocket server = new ServerSocket(0)) {
+            BlockingQueue<String> received = new LinkedBlockingQueue<>();
+            Thread broker = new Thread(() -> serve(server, received));
+            broker.setDaemon(true);
+            broker.start();
+
+            URI uri = URI.create("stomp://localhost:" + server.getLocalPort() + DESTINATION);
+            try (BuildListener listener = new BuildListener(
+                    uri,
+                    "user",
+                    "secret",
+                    index,
+                    Duration.ofMillis(500),
+                    Duration.ofSeconds(8))) {
+                assertEquals(entries, listener.next());
+                assertTrue(received.poll(10, TimeUnit.SECONDS).startsWith("CONNECT\naccept-version:1.2\n"));
+                String subscribe = received.poll(10, TimeUnit.SECONDS);
+                assertTrue(subscribe.contains("destination:" + DESTINATION + "\n"), subscribe);
+                assertTrue(subscribe.contains("ack:client-individual\n"), subscribe);
+                // The build that affects nothing is acknowledged straight away
+                assertEquals("ACK\nid:1\n\n", received.poll(10, TimeUnit.SECONDS));
+
+                // The ETT files still name 2.0.1, so both builds are held
+                listener.acknowledge(entries);
+                assertNull(received.poll(1, TimeUnit.SECONDS));
+
+                // Once the ETT files name a build its entries are regenerated again, then it is acknowledged
+                updateLastMeadBuild(tempDir, "org.foo-bar-2.0.3.Final_redhat_00001-1");
+                assertEquals(entries, listener.next());
+                listener.acknowledge(entries);
+                assertEquals("ACK\nid:3\n\n", received.poll(10, TimeUnit.SECONDS));
+                assertNull(received.poll(1, TimeUnit.SECONDS));
+            }
+            assertEquals("DISCONNECT\n\n", received.poll(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void testFailure() throws Exception {
+        String url = createRepository(tempDir, "org.foo-bar-2.0.3.Final_redhat_00001-1", "org.foo-bar");
+        Path batch = tempDir.resolve("batch");
+        Files.writeString(batch, url + " jb-eap-8.0-rhel-9\n");
+        BuildIndex index = new BuildIndex(new DriftScanner(tempDir.resolve("mirror"), 2), batch);
+
+        try (ServerSocket server = new ServerSocket(0)) {
+            BlockingQueue<String> received = new LinkedBlockingQueue<>();
+            Thread broker = new Thread(() -> serve(server, received));
+            broker.setDaemon(true);
+            broker.start();
+
+            URI uri = URI.create("stomp://localhost:" + server.getLocalPort() + DESTINATION);
+            try (BuildListener listener = new BuildListener(
+                    uri,
+                    "user",
+                    "secret",
+                    index,
+                    Duration.ofMillis(500),
+                    Duration.ofSeconds(8))) {
+                assertEquals(List.of(new BatchEntry(url, "jb-eap-8.0-rhel-9")), listener.next());
+                received.poll(10, TimeUnit.SECONDS);
+                received.poll(10, TimeUnit.SECONDS);
+                assertEquals("ACK\nid:1\n\n", received.poll(10, TimeUnit.SECONDS));
+
+                // Nothing is acknowledged, and disconnecting makes the broker redeliver both builds
+                listener.acknowledge(Set.of());
+                assertEquals("DISCONNECT\n\n", received.poll(10, TimeUnit.SECONDS));
+            }
+            assertNull(received.poll(1, TimeUnit.SECONDS));
+        }
+    }
+
+    /**
+     * A broker that accepts one connection and sends three build messages once subscribed: one for an unrelated
+     * package and two for the indexed one, the second with a content-length.
+     */
+    private static void serve(ServerSocket server, BlockingQueue<String> received) {
+        try (Socket socket = server.accept()) {
+            InputStream in = socket.getInputStream();
+            OutputStream out = socket.getOutputStream();
+            received.add(readFrame(in));
+            out.write("CONNECTED\nversion:1.2\nserver:test\n\n\0".getBytes(StandardCharsets.UTF_8));
+            received.add(readFrame(in));
+            out.write(message("1", "org.baz-baz-1.0.0.redhat_00001-1", false));
+            out.write(message("2", "org.foo-bar-2.0.2.Final_redhat_00001-1", false));
+            out.write("\n".getBytes(StandardCharsets.UTF_8));
+            out.write(message("3", "org.foo-bar-2.0.3.Final_redhat_00001-1", true));
+            out.flush();
+            for (String frame = readFrame(in); frame != null; frame = readFrame(in)) {
+                received.add(frame);
+            }
+        } catch (IOException e) {
+            // The client disconnected
+        }
+    }
+
+    private static byte[] message(String ack, String nvr, boolean contentLength) {
+        String body = "{\"info\": {\"nvr\": \"" + nvr + "\", \"extra\": null}, \"new\": 1}";
+        return ("MESSAGE\nsubscription:rpm-importer\nmessage-id:m" + ack + "\nack:" + ack + "\n"
+                + (contentLength ? "content-length:" + body.getBytes(StandardCharsets.UTF_8).length + "\n" : "")
+                + "\n" + body + "\0").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String readFrame(InputStream in) throws IOException {
+        ByteArrayOutputStream frame = new ByteArrayOutputStream();
+        for (int c = in.read(); c != 0; c = in.read()) {
+            if (c == -1) {
+                return null;
+            }
+            frame.write(c);
+        }
+        return frame.toString(StandardCharsets.UTF_8);
+    }
+
+    static String createRepository(Path tempDir, String lastMeadBuild, String meadPkgName) throws Exception {
+        Path source = tempDir.resolve("source");
+        try (Git git = Git.init().setDirectory(source.toFile()).setInitialBranch("main").call()) {
+            Files.writeString(source.resolve("README"), "");
+            git.add().addFilepattern("README").call();
+            git.commit().setMessage("Initial commit").setAuthor("Test User", "test@example.com").call();
+
+            git.checkout().setCreateBranch(true).setName("jb-eap-8.0-rhel-9").call();
+            Files.writeString(source.resolve(ETT.LAST_MEAD_BUILD), lastMeadBuild + "\n");
+            Files.writeString(source.resolve(ETT.MEAD_PKG_NAME), meadPkgName + "\n");
+            Files.writeString(
+                    source.resolve(ETT.VERSION_RELEASE_SERIAL),
+                    "2.0.1 2.0.1.Final-redhat-00001 .Final_redhat_00001 .1 1 redhat-00001\n");
+            git.add().addFilepattern(".").call();
+            git.commit().setMessage("ETT").setAuthor("Test User", "test@example.com").call();
+        }
+        return source.toUri().toString();
+    }
+
+    private static void updateLastMeadBuild(Path tempDir, String lastMeadBuild) throws Exception {
+        Path source = tempDir.resolve("source");
+        try (Git git = Git.open(source.toFile())) {
+            Files.writeString(source.resolve(ETT.LAST_MEAD_BUILD), lastMeadBuild + "\n");
+            git.add().addFilepattern(ETT.LAST_MEAD_BUILD).call();
+            git.commit().setMessage("Update ETT").setAuthor("Test User", "test@example.com").call();
+        }
+    }
+}
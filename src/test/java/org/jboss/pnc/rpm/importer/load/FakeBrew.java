@@ -0,0 +1,55 @@
+package org.jboss.pnc.rpm.importer.load;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Locale;
+
+/**
+ * Writes a {@code brew} executable answering {@code call --json-output getBuild} and {@code getTag} for the
+ * generated repositories of a {@link Workload}, with its latency and error rate.
+ */
+class FakeBrew {
+
+    private FakeBrew() {
+    }
+
+    /**
+     * @param directory the directory to write the script to
+     * @return the script, to be set as the {@link org.jboss.pnc.rpm.importer.utils.Brew#BREW_PROPERTY}
+     */
+    static Path write(Workload workload, Path directory) throws IOException {
+        Path script = directory.resolve("brew");
+        Files.writeString(script, """
+                #!/bin/bash
+                # Fake brew for load testing: brew call --json-output <method> <name>
+                sleep %s
+                if [ $((RANDOM %% 10000)) -lt %d ]; then
+                    echo "Injected failure" >&2
+                    exit 1
+                fi
+                case "$3" in
+                    getBuild)
+                        # <groupId>-<artifactId>-<version>-<release>
+                        artifact=${4#%s-}
+                        artifact=${artifact%%%%-*}
+                        echo "{\\"nvr\\":\\"$4\\",\\"extra\\":{\\"external_build_id\\":\\"$artifact\\",\\"typeinfo\\":{\\"maven\\":{\\"group_id\\":\\"%s\\",\\"artifact_id\\":\\"$artifact\\",\\"version\\":\\"%s\\"}}}}"
+                        ;;
+                    getTag)
+                        echo "{\\"name\\":\\"$4\\",\\"extra\\":{\\"rpm.macro.dist\\":\\".el9\\"}}"
+                        ;;
+                    *)
+                        echo null
+                        ;;
+                esac
+                """.formatted(
+                String.format(Locale.ROOT, "%.3f", workload.latency().toMillis() / 1000.0),
+                Math.round(workload.errorRate() * 10000),
+                Workload.GROUP_ID,
+                Workload.GROUP_ID,
+                Workload.VERSION));
+        Files.setPosixFilePermissions(script, PosixFilePermissions.fromString("rwxr-xr-x"));
+        return script;
+    }
+}
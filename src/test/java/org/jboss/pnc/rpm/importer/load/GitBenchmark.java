@@ -0,0 +1,314 @@
+package org.jboss.pnc.rpm.importer.load;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.jboss.pnc.rpm.importer.checkout.Checkout;
+import org.jboss.pnc.rpm.importer.checkout.InMemoryCheckout;
+import org.jboss.pnc.rpm.importer.jfr.GitEvent;
+import org.jboss.pnc.rpm.importer.utils.ETT;
+import org.jboss.pnc.rpm.importer.utils.GitBackends;
+import org.jboss.pnc.rpm.importer.utils.Utils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.smallrye.common.process.ProcessBuilder;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Times cloning a branch, committing a pom and pushing it with the importer's own
+ * {@link Utils#cloneRepository(String, String, Path)} and {@link Utils#commitAndPushRepository(Path, boolean)}
+ * against alternative strategies, over a generated repository of configurable shape. For each strategy the
+ * median wall time is reported along with the bytes transferred, disk written and heap allocated. Only run
+ * when requested, e.g.
+ *
+ * <pre>
+ * {@code mvn test -Dtest=GitBenchmark -Dbench=true -Dbench.depth=500 -Dbench.branches=20 -Dbench.blobSize=1048576}
+ * </pre>
+ *
+ * The repository has {@code bench.depth} commits, each replacing a {@code bench.blobSize} byte source archive,
+ * and {@code bench.branches} branches. Each strategy is run {@code bench.iterations} times.
+ */
+@EnabledIfSystemProperty(named = "bench", matches = "true")
+class GitBenchmark {
+    private static final Logger log = LoggerFactory.getLogger(GitBenchmark.class);
+
+    private static final String BRANCH = "jb-bench-0-rhel-9";
+
+    private static final String NAME = "bench";
+
+    private static final String EMAIL = "bench@example.com";
+
+    /**
+     * Clones the branch into the directory, then commits and pushes a pom.
+     */
+    private interface Strategy {
+        void run(String url, Path directory, String pom) throws Exception;
+    }
+
+    private record Named(String name, Strategy strategy) {
+    }
+
+    /**
+     * The measurements of one run of a strategy.
+     *
+     * @param nanos the wall time
+     * @param transferred the bytes of pack received (and sent) as recorded by the {@link GitEvent}s, or the size
+     *        of the packs cloned if the strategy does not record them
+     * @param disk the bytes written to the clone directory
+     * @param allocated the bytes of heap allocated by the benchmark thread
+     */
+    private record Result(long nanos, long transferred, long disk, long allocated) {
+    }
+
+    @AfterEach
+    void tearDown() {
+        GitBackends.configure(GitBackends.Mode.AUTO, GitBackends.DEFAULT_NATIVE_THRESHOLD);
+    }
+
+    @Test
+    void testStrategies(@TempDir Path tempDir) throws Exception {
+        int depth = Integer.getInteger("bench.depth", 100);
+        int branches = Integer.getInteger("bench.branches", 8);
+        int blobSize = Integer.getInteger("bench.blobSize", 256 * 1024);
+        int iterations = Integer.getInteger("bench.iterations", 3);
+
+        Path source = generate(tempDir.resolve("source.git"), depth, branches, blobSize);
+        String url = source.toUri().toString();
+        Path mirror = tempDir.resolve("mirror.git");
+        git(null, "clone", "--quiet", "--mirror", url, mirror.toString());
+
+        List<Named> strategies = new ArrayList<>();
+        strategies.add(new Named("Utils (full clone)", (u, d, pom) -> {
+            // The JGit baseline, whatever the size recorded by earlier iterations
+            GitBackends.configure(GitBackends.Mode.JGIT, GitBackends.DEFAULT_NATIVE_THRESHOLD);
+            Utils.cloneRepository(u, BRANCH, d);
+            Files.writeString(d.resolve(Checkout.POM), pom);
+            Utils.commitAndPushRepository(d, true);
+        }));
+        strategies.add(new Named("JGit single-branch", (u, d, pom) -> {
+            try (Git git = Git.cloneRepository()
+                    .setURI(u)
+                    .setBranch(BRANCH)
+                    .setCloneAllBranches(false)
+                    .setBranchesToClone(List.of("refs/heads/" + BRANCH))
+                    .setDirectory(d.toFile())
+                    .call()) {
+                commitAndPush(git, d, pom);
+            }
+        }));
+        strategies.add(new Named("JGit shallow", (u, d, pom) -> {
+            try (Git git = Git.cloneRepository()
+                    .setURI(u)
+                    .setBranch(BRANCH)
+                    .setCloneAllBranches(false)
+                    .setBranchesToClone(List.of("refs/heads/" + BRANCH))
+                    .setDepth(1)
+                    .setDirectory(d.toFile())
+                    .call()) {
+                commitAndPush(git, d, pom);
+            }
+        }));
+        strategies.add(new Named("In-memory", (u, d, pom) -> {
+            InMemoryCheckout checkout = InMemoryCheckout.fetch(u, BRANCH);
+            checkout.writePom(pom);
+            assertTrue(checkout.commit());
+            checkout.push();
+        }));
+        strategies.add(new Named("git shallow", (u, d, pom) -> {
+            git(null, "clone", "--quiet", "--depth", "1", "--single-branch", "-b", BRANCH, u, d.toString());
+            nativeCommitAndPush(d, pom);
+        }));
+        strategies.add(new Named("git blob-filtered", (u, d, pom) -> {
+            git(null, "clone", "--quiet", "--filter=blob:none", "--single-branch", "-b", BRANCH, u, d.toString());
+            nativeCommitAndPush(d, pom);
+        }));
+        strategies.add(new Named("git reference-mirror", (u, d, pom) -> {
+            git(
+                    null,
+                    "clone",
+                    "--quiet",
+                    "--reference",
+                    mirror.toString(),
+                    "--single-branch",
+                    "-b",
+                    BRANCH,
+                    u,
+                    d.toString());
+            nativeCommitAndPush(d, pom);
+        }));
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean();
+        List<String> report = new ArrayList<>();
+        report.add(
+                String.format(
+                        "%-22s %12s %14s %14s %14s",
+                        "strategy",
+                        "median ms",
+                        "transferred KiB",
+                        "disk KiB",
+                        "allocated KiB"));
+        int run = 0;
+        for (Named named : strategies) {
+            List<Result> results = new ArrayList<>();
+            for (int i = 0; i < iterations; i++) {
+                Path directory = tempDir.resolve("clone-" + run++);
+                Files.createDirectories(directory);
+                Path jfr = tempDir.resolve("git.jfr");
+                long allocated = threads.getCurrentThreadAllocatedBytes();
+                long start = System.nanoTime();
+                try (Recording recording = new Recording()) {
+                    recording.enable(GitEvent.class);
+                    recording.start();
+                    named.strategy().run(url, directory, "<project><!-- " + run + " --></project>");
+                    recording.stop();
+                    recording.dump(jfr);
+                }
+                long nanos = System.nanoTime() - start;
+                allocated = threads.getCurrentThreadAllocatedBytes() - allocated;
+                long transferred = RecordingFile.readAllEvents(jfr)
+                        .stream()
+                        .mapToLong(e -> e.getLong("bytes"))
+                        .sum();
+                if (transferred == 0) {
+                    transferred = packSize(directory);
+                }
+                results.add(new Result(nanos, transferred, size(directory), allocated));
+                delete(directory);
+            }
+            results.sort(Comparator.comparingLong(Result::nanos));
+            Result median = results.get(results.size() / 2);
+            report.add(
+                    String.format(
+                            "%-22s %12d %14d %14d %14d",
+                            named.name(),
+                            median.nanos() / 1_000_000,
+                            median.transferred() / 1024,
+                            median.disk() / 1024,
+                            median.allocated() / 1024));
+        }
+        log.info(
+                "Git strategies for {} commits, {} branches and {} byte blobs ({} KiB of packs):\n{}",
+                depth,
+                branches,
+                blobSize,
+                packSize(source) / 1024,
+                String.join("\n", report));
+    }
+
+    /**
+     * Creates a bare repository whose first branch has {@code depth} commits, each replacing a source archive
+     * of {@code blobSize} random bytes, and {@code branches - 1} more branches each with a commit of its own.
+     */
+    private static Path generate(Path bare, int depth, int branches, int blobSize)
+            throws IOException, GitAPIException {
+        Path work = bare.resolveSibling("seed");
+        Random random = new Random(42);
+        byte[] blob = new byte[blobSize];
+        Git.init().setBare(true).setInitialBranch(BRANCH).setDirectory(bare.toFile()).call().close();
+        try (Git git = Git.init().setInitialBranch(BRANCH).setDirectory(work.toFile()).call()) {
+            Files.writeString(work.resolve(ETT.LAST_MEAD_BUILD), "org.bench-bench-1.0.0.redhat_00001-1\n");
+            Files.writeString(work.resolve(ETT.MEAD_PKG_NAME), "org.bench-bench\n");
+            Files.writeString(work.resolve("bench.spec"), "Name: bench\nSource0: bench-sources.tar.gz\n");
+            for (int i = 0; i < depth; i++) {
+                random.nextBytes(blob);
+                Files.write(work.resolve("bench-sources.tar.gz"), blob);
+                git.add().addFilepattern(".").call();
+                git.commit().setMessage("Commit " + i).setAuthor(NAME, EMAIL).setCommitter(NAME, EMAIL).call();
+            }
+            for (int b = 1; b < branches; b++) {
+                git.checkout()
+                        .setName("jb-bench-" + b + "-rhel-9")
+                        .setCreateBranch(true)
+                        .setStartPoint(BRANCH)
+                        .call();
+                random.nextBytes(blob);
+                Files.write(work.resolve("bench-sources.tar.gz"), blob);
+                git.commit()
+                        .setAll(true)
+                        .setMessage("Branch " + b)
+                        .setAuthor(NAME, EMAIL)
+                        .setCommitter(NAME, EMAIL)
+                        .call();
+            }
+            git.push().setRemote(bare.toUri().toString()).setPushAll().call();
+        }
+        delete(work);
+        try (Git git = Git.open(bare.toFile())) {
+            // Permits the blob-filtered (partial) clones
+            StoredConfig config = git.getRepository().getConfig();
+            config.setBoolean("uploadpack", null, "allowFilter", true);
+            config.save();
+        }
+        return bare;
+    }
+
+    private static void commitAndPush(Git git, Path directory, String pom) throws IOException, GitAPIException {
+        Files.writeString(directory.resolve(Checkout.POM), pom);
+        git.add().addFilepattern(Checkout.POM).call();
+        git.commit().setMessage(Checkout.COMMIT_MESSAGE).setAuthor(NAME, EMAIL).setCommitter(NAME, EMAIL).call();
+        git.push().call();
+    }
+
+    private static void nativeCommitAndPush(Path directory, String pom) throws IOException {
+        Files.writeString(directory.resolve(Checkout.POM), pom);
+        git(directory, "add", Checkout.POM);
+        git(
+                directory,
+                "-c",
+                "user.name=" + NAME,
+                "-c",
+                "user.email=" + EMAIL,
+                "commit",
+                "--quiet",
+                "-m",
+                Checkout.COMMIT_MESSAGE);
+        git(directory, "push", "--quiet");
+    }
+
+    private static void git(Path directory, String... arguments) {
+        List<String> command = new ArrayList<>();
+        if (directory != null) {
+            command.add("-C");
+            command.add(directory.toString());
+        }
+        command.addAll(List.of(arguments));
+        ProcessBuilder.newBuilder("git").arguments(command).output().discard().run();
+    }
+
+    private static long packSize(Path directory) throws IOException {
+        Path git = Files.isDirectory(directory.resolve(".git")) ? directory.resolve(".git") : directory;
+        Path packs = git.resolve("objects").resolve("pack");
+        return Files.isDirectory(packs) ? size(packs) : 0;
+    }
+
+    private static long size(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile).mapToLong(p -> p.toFile().length()).sum();
+        }
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+}
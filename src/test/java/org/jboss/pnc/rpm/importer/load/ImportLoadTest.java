@@ -0,0 +1,219 @@
+package org.jboss.pnc.rpm.importer.load;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mockStatic;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import jakarta.inject.Inject;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.jboss.pnc.bacon.auth.client.PncClientHelper;
+import org.jboss.pnc.bacon.config.Config;
+import org.jboss.pnc.bacon.config.ConfigProfile;
+import org.jboss.pnc.bacon.config.PncConfig;
+import org.jboss.pnc.bacon.config.ReqourConfig;
+import org.jboss.pnc.client.Configuration;
+import org.jboss.pnc.rpm.importer.App;
+import org.jboss.pnc.rpm.importer.checkout.Checkout;
+import org.jboss.pnc.rpm.importer.jfr.BackendCallEvent;
+import org.jboss.pnc.rpm.importer.jfr.GitEvent;
+import org.jboss.pnc.rpm.importer.jfr.StageEvent;
+import org.jboss.pnc.rpm.importer.utils.Brew;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.MockedStatic;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.quarkus.test.junit.QuarkusTest;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import picocli.CommandLine;
+
+/**
+ * Drives a batch import of a synthetic {@link Workload} against stub PNC, reqour and Brew backends and local
+ * bare repositories, then reports the throughput, the import latency percentiles, the backend calls and the
+ * peak heap. Only run when requested, e.g.
+ *
+ * <pre>
+ * {@code mvn test -Dtest=ImportLoadTest -Dload=true -Dload.repositories=100 -Dload.latency=50}
+ * </pre>
+ *
+ * See {@link Workload#fromSystemProperties()} for the other {@code load.*} properties.
+ */
+@QuarkusTest
+@EnabledIfSystemProperty(named = "load", matches = "true")
+class ImportLoadTest {
+    private static final Logger log = LoggerFactory.getLogger(ImportLoadTest.class);
+
+    @Inject
+    App app;
+
+    @Inject
+    CommandLine.IFactory factory;
+
+    @Test
+    void testLoad(@TempDir Path tempDir) throws Exception {
+        Workload workload = Workload.fromSystemProperties();
+        log.info("Generating {}", workload);
+        List<Workload.Repository> repositories = workload.generate(tempDir);
+        Path batch = workload.writeBatch(tempDir.resolve("batch.txt"), repositories);
+        System.setProperty(Brew.BREW_PROPERTY, FakeBrew.write(workload, tempDir).toString());
+
+        List<String> args = new ArrayList<>(
+                List.of(
+                        "--batch",
+                        batch.toString(),
+                        "--push",
+                        "--threads",
+                        String.valueOf(workload.threads()),
+                        "--workspace",
+                        tempDir.resolve("workspace").toString(),
+                        "--translation-cache",
+                        tempDir.resolve("translations.properties").toString()));
+        if ("memory".equals(workload.mode())) {
+            args.add("--in-memory");
+        }
+
+        Path jfr = tempDir.resolve("load.jfr");
+        long elapsed;
+        long peakHeap;
+        try (StubServices stubs = new StubServices(workload, repositories);
+                MockedStatic<Config> mockConfig = mockStatic(Config.class);
+                MockedStatic<PncClientHelper> mockPncClientHelper = mockStatic(PncClientHelper.class);
+                Recording recording = new Recording()) {
+            Config config = new Config();
+            ConfigProfile profile = new ConfigProfile();
+            PncConfig pncConfig = new PncConfig();
+            pncConfig.setUrl(stubs.url());
+            profile.setPnc(pncConfig);
+            ReqourConfig reqourConfig = new ReqourConfig();
+            reqourConfig.setUrl(stubs.url());
+            profile.setReqour(reqourConfig);
+            config.setActiveProfile(profile);
+            mockConfig.when(Config::instance).thenReturn(config);
+            mockPncClientHelper.when(PncClientHelper::getPncConfiguration)
+                    .thenReturn(Configuration.builder().bearerTokenSupplier(() -> "token").build());
+
+            recording.enable(StageEvent.class);
+            recording.enable(BackendCallEvent.class);
+            recording.enable(GitEvent.class);
+            System.gc();
+            heapPools().forEach(MemoryPoolMXBean::resetPeakUsage);
+            recording.start();
+
+            long start = System.nanoTime();
+            new CommandLine(app, factory).execute(args.toArray(String[]::new));
+            elapsed = System.nanoTime() - start;
+
+            recording.stop();
+            recording.dump(jfr);
+            peakHeap = heapPools().stream().mapToLong(p -> p.getPeakUsage().getUsed()).sum();
+            log.info("Stub PNC and reqour served {} requests ({} failed)", stubs.requests(), stubs.failures());
+        }
+
+        int imported = 0;
+        for (Workload.Repository repository : repositories) {
+            for (int b = 0; b < workload.branches(); b++) {
+                if (hasPom(repository.directory(), workload.branch(b))) {
+                    imported++;
+                }
+            }
+        }
+        report(workload, RecordingFile.readAllEvents(jfr), imported, Duration.ofNanos(elapsed), peakHeap);
+        if (workload.errorRate() == 0) {
+            assertEquals(workload.entries(), imported);
+        }
+    }
+
+    private static void report(
+            Workload workload,
+            List<RecordedEvent> events,
+            int imported,
+            Duration elapsed,
+            long peakHeap) {
+        // The stages of an entry run one after the other so their sum is the time to import it (excluding push).
+        List<Long> latencies = events.stream()
+                .filter(e -> e.getEventType().getName().equals("org.jboss.pnc.rpm.importer.Stage"))
+                .collect(
+                        Collectors.groupingBy(
+                                e -> e.getString("url") + " " + e.getString("branch"),
+                                Collectors.summingLong(e -> e.getDuration().toMillis())))
+                .values()
+                .stream()
+                .sorted()
+                .toList();
+        Map<String, Long> calls = events.stream()
+                .filter(e -> e.getEventType().getName().equals("org.jboss.pnc.rpm.importer.BackendCall"))
+                .collect(
+                        Collectors.groupingBy(
+                                e -> e.getString("backend") + " " + e.getString("outcome"),
+                                TreeMap::new,
+                                Collectors.counting()));
+        long gitBytes = events.stream()
+                .filter(e -> e.getEventType().getName().equals("org.jboss.pnc.rpm.importer.Git"))
+                .mapToLong(e -> e.getLong("bytes"))
+                .sum();
+
+        log.info("Workload {}", workload);
+        log.info(
+                "Imported {} of {} entries in {} ms: {} entries/s",
+                imported,
+                workload.entries(),
+                elapsed.toMillis(),
+                String.format("%.2f", imported * 1000.0 / Math.max(1, elapsed.toMillis())));
+        log.info(
+                "Import latency (ms): p50 {} p90 {} p99 {} max {}",
+                percentile(latencies, 0.50),
+                percentile(latencies, 0.90),
+                percentile(latencies, 0.99),
+                percentile(latencies, 1.0));
+        log.info("Backend calls: {}", calls);
+        log.info("Git transferred {} KiB", gitBytes / 1024);
+        log.info("Peak heap {} MiB", peakHeap / (1024 * 1024));
+    }
+
+    private static long percentile(List<Long> sorted, double quantile) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        return sorted.get(Math.max(0, (int) Math.ceil(quantile * sorted.size()) - 1));
+    }
+
+    private static List<MemoryPoolMXBean> heapPools() {
+        return ManagementFactory.getMemoryPoolMXBeans()
+                .stream()
+                .filter(p -> p.getType() == MemoryType.HEAP && p.isValid())
+                .toList();
+    }
+
+    private static boolean hasPom(Path bare, String branch) throws IOException {
+        try (Repository repository = new FileRepositoryBuilder().setGitDir(bare.toFile()).build();
+                RevWalk walk = new RevWalk(repository)) {
+            ObjectId head = repository.resolve("refs/heads/" + branch);
+            if (head == null) {
+                return false;
+            }
+            try (TreeWalk pom = TreeWalk.forPath(repository, Checkout.POM, walk.parseCommit(head).getTree())) {
+                return pom != null;
+            }
+        }
+    }
+}
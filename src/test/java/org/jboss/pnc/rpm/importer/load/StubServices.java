@@ -0,0 +1,212 @@
+package org.jboss.pnc.rpm.importer.load;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves the subset of the PNC orch and reqour APIs used by an import from the generated repositories of a
+ * {@link Workload}, adding its latency and failing its error rate of requests with a 503.
+ * <p>
+ * Every repository is listed as already synced, so repositories are never created.
+ */
+class StubServices implements AutoCloseable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String PNC = "/pnc-rest/v2";
+
+    private final Workload workload;
+
+    private final Map<String, Workload.Repository> repositories = new LinkedHashMap<>();
+
+    private final HttpServer server;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private final AtomicLong requests = new AtomicLong();
+
+    private final AtomicLong failures = new AtomicLong();
+
+    StubServices(Workload workload, List<Workload.Repository> generated) throws IOException {
+        this.workload = workload;
+        generated.forEach(r -> repositories.put(r.name(), r));
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    /**
+     * @return the URL to configure as both the PNC and reqour URL
+     */
+    String url() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    long requests() {
+        return requests.get();
+    }
+
+    long failures() {
+        return failures.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        try {
+            Thread.sleep(workload.latency().toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (ThreadLocalRandom.current().nextDouble() < workload.errorRate()) {
+            failures.incrementAndGet();
+            respond(exchange, 503, Map.of("errorMessage", "Injected failure"));
+            return;
+        }
+        String path = exchange.getRequestURI().getPath();
+        Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+        Object body;
+        if (path.equals("/external-to-internal")) {
+            JsonNode request = MAPPER.readTree(exchange.getRequestBody());
+            String externalUrl = request.path("externalUrl").asText();
+            body = Map.of("externalUrl", externalUrl, "internalUrl", repository(externalUrl).internalUrl());
+        } else if (path.equals(PNC + "/scm-repositories")) {
+            List<Object> content = new ArrayList<>();
+            for (Workload.Repository repository : repositories.values()) {
+                if (!query.containsKey("matchUrl") || query.get("matchUrl").equals(repository.internalUrl())) {
+                    content.add(
+                            Map.of(
+                                    "id",
+                                    repository.name(),
+                                    "internalUrl",
+                                    repository.internalUrl(),
+                                    "externalUrl",
+                                    repository.externalUrl(),
+                                    "preBuildSyncEnabled",
+                                    true));
+                }
+            }
+            body = page(content, query);
+        } else if (path.equals(PNC + "/artifacts/filter")) {
+            // org.load:<name>:pom:<version>
+            String name = query.get("identifier").split(":")[1];
+            body = page(
+                    repositories.containsKey(name)
+                            ? List.of(Map.of("id", name, "identifier", query.get("identifier")))
+                            : List.of(),
+                    Map.of());
+        } else if (path.startsWith(PNC + "/artifacts/")) {
+            String name = path.substring((PNC + "/artifacts/").length());
+            body = Map.of(
+                    "id",
+                    name,
+                    "identifier",
+                    String.join(":", Workload.GROUP_ID, name, "pom", Workload.VERSION),
+                    "build",
+                    Map.of("id", name));
+        } else if (path.startsWith(PNC + "/builds/") && path.endsWith("/artifacts/built")) {
+            String name = path.substring((PNC + "/builds/").length(), path.length() - "/artifacts/built".length());
+            body = page(builtArtifacts(name), query);
+        } else {
+            respond(exchange, 404, Map.of("errorMessage", "Not found: " + path));
+            return;
+        }
+        respond(exchange, 200, body);
+    }
+
+    private Workload.Repository repository(String externalUrl) {
+        return repositories.values()
+                .stream()
+                .filter(r -> r.externalUrl().equals(externalUrl))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    /**
+     * The artifacts of the wrapped build: its pom, sources and {@code artifacts} jars, each padded with
+     * {@code payload} bytes.
+     */
+    private List<Object> builtArtifacts(String name) {
+        List<String> identifiers = new ArrayList<>();
+        identifiers.add(String.join(":", Workload.GROUP_ID, name, "pom", Workload.VERSION));
+        identifiers.add(String.join(":", Workload.GROUP_ID, name, "tar.gz", Workload.VERSION, "project-sources"));
+        for (int i = 0; i < workload.artifacts(); i++) {
+            identifiers.add(String.join(":", Workload.GROUP_ID, name + "-m" + i, "jar", Workload.VERSION));
+        }
+        String padding = "x".repeat(workload.payload());
+        List<Object> result = new ArrayList<>();
+        for (int i = 0; i < identifiers.size(); i++) {
+            result.add(
+                    Map.of(
+                            "id",
+                            name + "-" + i,
+                            "identifier",
+                            identifiers.get(i),
+                            "size",
+                            1024L * (i + 1),
+                            "purl",
+                            "pkg:maven/" + padding));
+        }
+        return result;
+    }
+
+    private static Map<String, Object> page(List<Object> content, Map<String, String> query) {
+        int pageSize = Integer.parseInt(query.getOrDefault("pageSize", String.valueOf(Math.max(1, content.size()))));
+        int pageIndex = Integer.parseInt(query.getOrDefault("pageIndex", "0"));
+        int from = Math.min(content.size(), pageIndex * pageSize);
+        Map<String, Object> page = new HashMap<>();
+        page.put("pageIndex", pageIndex);
+        page.put("pageSize", pageSize);
+        page.put("totalPages", (content.size() + pageSize - 1) / pageSize);
+        page.put("totalHits", content.size());
+        page.put("content", content.subList(from, Math.min(content.size(), from + pageSize)));
+        return page;
+    }
+
+    private static Map<String, String> query(String query) {
+        Map<String, String> result = new HashMap<>();
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                int equals = parameter.indexOf('=');
+                if (equals != -1) {
+                    result.put(
+                            parameter.substring(0, equals),
+                            URLDecoder.decode(parameter.substring(equals + 1), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return result;
+    }
+
+    private static void respond(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = MAPPER.writeValueAsBytes(body);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,129 @@
+package org.jboss.pnc.rpm.importer.load;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.jboss.pnc.rpm.importer.utils.ETT;
+
+/**
+ * A synthetic workload: {@code repositories} RPM repositories of {@code branches} branches each, wrapping
+ * builds of {@code artifacts} artifacts, served by stubs that add {@code latency} to each call and fail
+ * {@code errorRate} of them.
+ *
+ * @param repositories the number of repositories
+ * @param branches the number of branches per repository
+ * @param artifacts the number of artifacts built by each wrapped build
+ * @param latency the latency added to each PNC, reqour and Brew call
+ * @param errorRate the fraction (0 to 1) of PNC, reqour and Brew calls that fail
+ * @param payload the number of bytes each artifact adds to the PNC responses
+ * @param threads the number of repositories to import concurrently
+ * @param mode how the repositories are checked out; {@code clone} or {@code memory}
+ */
+record Workload(
+        int repositories,
+        int branches,
+        int artifacts,
+        Duration latency,
+        double errorRate,
+        int payload,
+        int threads,
+        String mode) {
+
+    static final String GROUP_ID = "org.load";
+
+    static final String VERSION = "1.0.0.redhat-00001";
+
+    /**
+     * Reads the workload from the {@code load.*} system properties.
+     */
+    static Workload fromSystemProperties() {
+        return new Workload(
+                Integer.getInteger("load.repositories", 20),
+                Integer.getInteger("load.branches", 2),
+                Integer.getInteger("load.artifacts", 100),
+                Duration.ofMillis(Integer.getInteger("load.latency", 20)),
+                Double.parseDouble(System.getProperty("load.errorRate", "0")),
+                Integer.getInteger("load.payload", 256),
+                Integer.getInteger("load.threads", 8),
+                System.getProperty("load.mode", "clone"));
+    }
+
+    /**
+     * @return the number of repository branches to import
+     */
+    int entries() {
+        return repositories * branches;
+    }
+
+    String branch(int branch) {
+        return "jb-load-" + branch + "-rhel-9";
+    }
+
+    /**
+     * A generated repository.
+     *
+     * @param name the name, which is also the artifactId of the wrapped build
+     * @param externalUrl the URL listed in the batch file
+     * @param internalUrl the file URL of the bare repository
+     * @param directory the bare repository
+     */
+    record Repository(String name, String externalUrl, String internalUrl, Path directory) {
+    }
+
+    /**
+     * Creates the bare repositories, each with the ETT files and a spec file on every branch.
+     *
+     * @param root the directory to create the repositories in
+     */
+    List<Repository> generate(Path root) throws IOException, GitAPIException {
+        List<Repository> result = new ArrayList<>();
+        for (int i = 0; i < repositories; i++) {
+            String name = "r" + i;
+            Path bare = root.resolve("internal").resolve(name + ".git");
+            Path work = root.resolve("seed").resolve(name);
+            Git.init().setBare(true).setInitialBranch(branch(0)).setDirectory(bare.toFile()).call().close();
+            try (Git git = Git.init().setInitialBranch(branch(0)).setDirectory(work.toFile()).call()) {
+                Files.writeString(work.resolve(ETT.LAST_MEAD_BUILD), GROUP_ID + "-" + name + "-1.0.0.redhat_00001-1\n");
+                Files.writeString(work.resolve(ETT.MEAD_PKG_NAME), GROUP_ID + "-" + name + "\n");
+                Files.writeString(
+                        work.resolve(ETT.VERSION_RELEASE_SERIAL),
+                        "1.0.0 " + VERSION + " .redhat_00001 .1 1 redhat-00001\n");
+                Files.writeString(work.resolve(name + ".spec"), """
+                        Name: %s
+                        Version: 1.0.0
+                        Source0: %s-%%{namedversion}.jar
+                        Source1: %s-m0-%%{namedversion}.jar
+                        """.formatted(name, name, name));
+                git.add().addFilepattern(".").call();
+                git.commit().setMessage("Initial commit").setAuthor("Load Test", "load@example.com").call();
+                for (int b = 1; b < branches; b++) {
+                    git.branchCreate().setName(branch(b)).call();
+                }
+                git.push().setRemote(bare.toUri().toString()).setPushAll().call();
+            }
+            result.add(new Repository(name, "https://src.example.com/rpms/" + name, bare.toUri().toString(), bare));
+        }
+        return result;
+    }
+
+    /**
+     * Writes the batch file listing every branch of every repository.
+     */
+    Path writeBatch(Path file, List<Repository> generated) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (Repository repository : generated) {
+            StringBuilder line = new StringBuilder(repository.externalUrl());
+            for (int b = 0; b < branches; b++) {
+                line.append(' ').append(branch(b));
+            }
+            lines.add(line.toString());
+        }
+        return Files.write(file, lines);
+    }
+}
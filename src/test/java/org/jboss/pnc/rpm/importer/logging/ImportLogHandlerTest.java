@@ -0,0 +1,95 @@
+package org.jboss.pnc.rpm.importer.logging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.logging.Level;
+
+import org.jboss.logmanager.ExtLogRecord;
+import org.jboss.pnc.rpm.importer.batch.Stage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.MDC;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class ImportLogHandlerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testId() {
+        assertEquals(
+                "eap-jb-eap-8.0-rhel-9",
+                ImportContext.id("https://gitlab.example.com/rpms/eap.git", "jb-eap-8.0-rhel-9"));
+        assertEquals(
+                "eap-jb-eap-8.0-rhel-9",
+                ImportContext.id("git@gitlab.example.com:rpms/eap/", "jb-eap-8.0-rhel-9"));
+        assertEquals("eap-feature_x", ImportContext.id("https://gitlab.example.com/rpms/eap", "feature/x"));
+    }
+
+    @Test
+    void testContext() {
+        try (ImportContext ignored = ImportContext.open("https://example.com/rpms/eap", "main")) {
+            ImportContext.reached(Stage.CLONED);
+            assertEquals("eap-main", MDC.get(ImportContext.IMPORT));
+            assertEquals("cloned", MDC.get(ImportContext.STAGE));
+        }
+        assertEquals(null, MDC.get(ImportContext.IMPORT));
+        // Outside an import the stage is not recorded
+        ImportContext.reached(Stage.CLONED);
+        assertEquals(null, MDC.get(ImportContext.STAGE));
+    }
+
+    @Test
+    void testPublish() throws Exception {
+        ImportLogHandler handler = new ImportLogHandler(tempDir);
+        try {
+            try (ImportContext ignored = ImportContext.open("https://example.com/rpms/eap", "main")) {
+                ImportContext.reached(Stage.SYNCED);
+                handler.publish(record(Level.INFO, "Cloning {0}", "eap"));
+                handler.publish(record(Level.WARNING, "Failed", null));
+            }
+            try (ImportContext ignored = ImportContext.open("https://example.com/rpms/wildfly", "main")) {
+                handler.publish(record(Level.INFO, "Cloning {0}", "wildfly"));
+            }
+            // Not part of an import
+            handler.publish(record(Level.INFO, "Importing 2 entries", null));
+        } finally {
+            handler.close();
+        }
+
+        List<String> eap = Files.readAllLines(tempDir.resolve("eap-main.log"));
+        assertEquals(2, eap.size());
+        JsonNode first = new ObjectMapper().readTree(eap.get(0));
+        assertEquals("INFO", first.get("level").asText());
+        assertEquals("Cloning eap", first.get("message").asText());
+        assertEquals("https://example.com/rpms/eap", first.get("url").asText());
+        assertEquals("main", first.get("branch").asText());
+        assertEquals("synced", first.get("stage").asText());
+        JsonNode second = new ObjectMapper().readTree(eap.get(1));
+        assertTrue(second.get("exception").asText().contains("IllegalStateException"));
+
+        assertEquals(1, Files.readAllLines(tempDir.resolve("wildfly-main.log")).size());
+        try (var files = Files.list(tempDir)) {
+            assertFalse(files.anyMatch(f -> !f.getFileName().toString().endsWith("-main.log")));
+        }
+    }
+
+    private static ExtLogRecord record(Level level, String message, String parameter) {
+        ExtLogRecord record = new ExtLogRecord(level, message, ExtLogRecord.FormatStyle.MESSAGE_FORMAT, "test");
+        record.setLoggerName(ImportLogHandlerTest.class.getName());
+        if (parameter != null) {
+            record.setParameters(new Object[] { parameter });
+        } else if (level == Level.WARNING) {
+            record.setThrown(new IllegalStateException("test"));
+        }
+        return record;
+    }
+}
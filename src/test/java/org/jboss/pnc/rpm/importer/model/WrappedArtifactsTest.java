@@ -0,0 +1,39 @@
+package org.jboss.pnc.rpm.importer.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.commonjava.atlas.maven.ident.ref.SimpleArtifactRef;
+import org.junit.jupiter.api.Test;
+
+class WrappedArtifactsTest {
+
+    @Test
+    void testDedupeAndSort() {
+        WrappedArtifacts artifacts = new WrappedArtifacts();
+        assertTrue(artifacts.add(SimpleArtifactRef.parse("org.foo:zeta:1.0.redhat-00001")));
+        assertTrue(artifacts.add(SimpleArtifactRef.parse("org.foo:bar:tar.gz:1.0.redhat-00001:project-sources")));
+        assertTrue(artifacts.add(SimpleArtifactRef.parse("org.foo:bar:1.0.redhat-00001")));
+        assertFalse(artifacts.add(SimpleArtifactRef.parse("org.foo:bar:1.0.redhat-00001")));
+
+        assertEquals(4, artifacts.received());
+        assertEquals(
+                List.of("org.foo:bar::jar", "org.foo:bar:project-sources:tar.gz", "org.foo:zeta::jar"),
+                artifacts.keys().stream().map(ArtifactKey::toString).toList());
+        assertEquals("project-sources", artifacts.projectSources().orElseThrow().getClassifier());
+    }
+
+    @Test
+    void testExcludes() {
+        WrappedArtifacts artifacts = new WrappedArtifacts(List.of("*:*:javadoc:*", "org.foo:test-*"));
+        assertTrue(artifacts.add(SimpleArtifactRef.parse("org.foo:bar:1.0")));
+        assertFalse(artifacts.add(SimpleArtifactRef.parse("org.foo:bar:jar:1.0:javadoc")));
+        assertFalse(artifacts.add(SimpleArtifactRef.parse("org.foo:test-utils:1.0")));
+
+        assertEquals(1, artifacts.keys().size());
+        assertTrue(artifacts.projectSources().isEmpty());
+    }
+}
@@ -0,0 +1,116 @@
+package org.jboss.pnc.rpm.importer.reqour;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.pnc.api.reqour.dto.TranslateRequest;
+import org.jboss.pnc.api.reqour.dto.TranslateResponse;
+import org.jboss.pnc.rpm.importer.clients.ReqourService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class UrlTranslatorTest {
+
+    private static final String EXTERNAL = "https://pkgs.example.com/git/rpms/sshd";
+
+    private static final String INTERNAL = "git@gitlab.example.com:pnc-workspace/rpms/sshd.git";
+
+    private static final String FAILING = "https://pkgs.example.com/git/rpms/failing";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testRule() throws IOException {
+        Path rules = tempDir.resolve("rules");
+        Files.writeString(rules, """
+                # dist-git to workspace
+                https://pkgs\\.example\\.com/git/(.*) git@gitlab.example.com:pnc-workspace/$1.git
+                """);
+        ReqourService reqourService = mock(ReqourService.class);
+        UrlTranslator translator = new UrlTranslator(reqourService, null, TranslationRule.parse(rules), null);
+
+        assertEquals(INTERNAL, translator.translate(EXTERNAL));
+        verifyNoInteractions(reqourService);
+        // A rule miss falls back to reqour, which is not configured.
+        assertThrows(RuntimeException.class, () -> translator.translate("https://github.com/apache/mina-sshd"));
+    }
+
+    @Test
+    void testPersistentCache() {
+        Path cache = tempDir.resolve("cache").resolve("translations.properties");
+        ReqourService reqourService = mock(ReqourService.class);
+        when(reqourService.external_to_internal(eq("https://reqour"), any(TranslateRequest.class)))
+                .thenReturn(TranslateResponse.builder().externalUrl(EXTERNAL).internalUrl(INTERNAL).build());
+
+        assertEquals(INTERNAL, new UrlTranslator(reqourService, "https://reqour", List.of(), cache).translate(EXTERNAL));
+        assertEquals(INTERNAL, new UrlTranslator(reqourService, "https://reqour", List.of(), cache).translate(EXTERNAL));
+        verify(reqourService, times(1)).external_to_internal(any(), any());
+    }
+
+    @Test
+    void testTranslateAll() {
+        ReqourService reqourService = mock(ReqourService.class);
+        when(reqourService.external_to_internal(any(), any(TranslateRequest.class)))
+                .thenReturn(TranslateResponse.builder().externalUrl(EXTERNAL).internalUrl(INTERNAL).build());
+        UrlTranslator translator = new UrlTranslator(reqourService, "https://reqour", List.of(), null);
+
+        Map<String, String> result = translator.translateAll(List.of(EXTERNAL, EXTERNAL, EXTERNAL), 4);
+
+        assertEquals(Map.of(EXTERNAL, INTERNAL), result);
+        verify(reqourService, times(1)).external_to_internal(any(), any());
+        assertEquals(INTERNAL, translator.translate(EXTERNAL));
+        verify(reqourService, times(1)).external_to_internal(any(), any());
+    }
+
+    @Test
+    void testCacheKeyedByReqour() {
+        Path cache = tempDir.resolve("translations.properties");
+        String stageInternal = "git@gitlab.stage.example.com:pnc-workspace/rpms/sshd.git";
+        ReqourService reqourService = mock(ReqourService.class);
+        when(reqourService.external_to_internal(eq("https://reqour"), any(TranslateRequest.class)))
+                .thenReturn(TranslateResponse.builder().externalUrl(EXTERNAL).internalUrl(INTERNAL).build());
+        when(reqourService.external_to_internal(eq("https://reqour.stage"), any(TranslateRequest.class)))
+                .thenReturn(TranslateResponse.builder().externalUrl(EXTERNAL).internalUrl(stageInternal).build());
+
+        UrlTranslator production = new UrlTranslator(reqourService, "https://reqour", List.of(), cache);
+        assertEquals(INTERNAL, production.translate(EXTERNAL));
+        // Another reqour does not see the translation of the first, nor drop it from the file
+        assertEquals(
+                stageInternal,
+                new UrlTranslator(reqourService, "https://reqour.stage", List.of(), cache).translate(EXTERNAL));
+        production = new UrlTranslator(reqourService, "https://reqour", List.of(), cache);
+        assertEquals(INTERNAL, production.translate(EXTERNAL));
+        verify(reqourService, times(2)).external_to_internal(any(), any());
+    }
+
+    @Test
+    void testTranslateAllFailure() {
+        ReqourService reqourService = mock(ReqourService.class);
+        when(reqourService.external_to_internal(any(), argThat(r -> r != null && EXTERNAL.equals(r.getExternalUrl()))))
+                .thenReturn(TranslateResponse.builder().externalUrl(EXTERNAL).internalUrl(INTERNAL).build());
+        when(reqourService.external_to_internal(any(), argThat(r -> r != null && FAILING.equals(r.getExternalUrl()))))
+                .thenThrow(new RuntimeException("Service Unavailable"));
+        UrlTranslator translator = new UrlTranslator(reqourService, "https://reqour", List.of(), null);
+
+        // The failure only affects its own URL, which is not cached so is tried again when imported
+        assertEquals(Map.of(EXTERNAL, INTERNAL), translator.translateAll(List.of(EXTERNAL, FAILING), 2));
+        assertThrows(RuntimeException.class, () -> translator.translate(FAILING));
+        verify(reqourService, times(2))
+                .external_to_internal(any(), argThat(r -> r != null && FAILING.equals(r.getExternalUrl())));
+    }
+}
@@ -0,0 +1,152 @@
+package org.jboss.pnc.rpm.importer.scan;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.jboss.pnc.rpm.importer.utils.Brew;
+import org.jboss.pnc.rpm.importer.utils.ETT;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DriftScannerTest {
+
+    @Test
+    void testParseTargets(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("scan");
+        Files.writeString(file, """
+                # Comment
+                https://gitlab.example.com/foo.git jb-eap-8.0-rhel-9  jb-eap-8.1-rhel-9
+
+                https://gitlab.example.com/bar.git
+                """);
+        List<ScanTarget> targets = ScanTarget.parse(file);
+
+        assertEquals(2, targets.size());
+        assertEquals("https://gitlab.example.com/foo.git", targets.get(0).url());
+        assertEquals(List.of("jb-eap-8.0-rhel-9", "jb-eap-8.1-rhel-9"), targets.get(0).branches());
+        assertTrue(targets.get(1).branches().isEmpty());
+    }
+
+    @Test
+    void testScanMissingPom(@TempDir Path tempDir) throws IOException, GitAPIException {
+        Path source = tempDir.resolve("source");
+        try (Git git = Git.init().setDirectory(source.toFile()).setInitialBranch("main").call()) {
+            Files.writeString(source.resolve("README"), "");
+            git.add().addFilepattern("README").call();
+            git.commit().setMessage("Initial commit").setAuthor("Test User", "test@example.com").call();
+
+            git.branchCreate().setName("jb-eap-8.0-rhel-9").call();
+            git.checkout().setName("jb-eap-8.0-rhel-9").call();
+            Files.writeString(source.resolve(ETT.LAST_MEAD_BUILD), "org.foo-bar-1.0.0.redhat_00001-1");
+            git.add().addFilepattern(ETT.LAST_MEAD_BUILD).call();
+            git.commit().setMessage("ETT").setAuthor("Test User", "test@example.com").call();
+        }
+
+        List<ScanResult> results = new DriftScanner(tempDir.resolve("mirror"), 2)
+                .scan(List.of(new ScanTarget(source.toUri().toString(), List.of())));
+
+        // The main branch has no ETT files so is not reported.
+        assertEquals(1, results.size());
+        assertEquals("jb-eap-8.0-rhel-9", results.getFirst().branch());
+        assertTrue(results.getFirst().isStale());
+        assertEquals(List.of("pom.xml missing"), results.getFirst().reasons());
+    }
+
+    @Test
+    void testScanInvalidEtt(@TempDir Path tempDir) throws IOException, GitAPIException {
+        Path source = tempDir.resolve("source");
+        try (Git git = Git.init().setDirectory(source.toFile()).setInitialBranch("jb-eap-8.0-rhel-9").call()) {
+            Files.writeString(source.resolve(ETT.LAST_MEAD_BUILD), "org.foo-bar-1.0.0.redhat_00001-1");
+            Files.writeString(source.resolve(ETT.MEAD_PKG_NAME), "org.foo-bar");
+            Files.writeString(source.resolve(ETT.VERSION_RELEASE_SERIAL), "1.0.0\n");
+            Files.writeString(source.resolve("pom.xml"), "<project/>");
+            git.add().addFilepattern(".").call();
+            git.commit().setMessage("ETT").setAuthor("Test User", "test@example.com").call();
+        }
+
+        List<ScanResult> results = new DriftScanner(tempDir.resolve("mirror"), 2)
+                .scan(List.of(new ScanTarget(source.toUri().toString(), List.of())));
+
+        assertEquals(1, results.size());
+        assertTrue(results.getFirst().isStale());
+        assertEquals(
+                List.of("invalid ETT files: Invalid version-release-serial format; no named version in 1.0.0"),
+                results.getFirst().reasons());
+    }
+
+    @Test
+    void testScanUnreadableBranch(@TempDir Path tempDir) throws IOException, GitAPIException {
+        Path source = tempDir.resolve("source");
+        try (Git git = Git.init().setDirectory(source.toFile()).setInitialBranch("main").call()) {
+            Files.writeString(source.resolve("README"), "");
+            git.add().addFilepattern("README").call();
+            git.commit().setMessage("Initial commit").setAuthor("Test User", "test@example.com").call();
+        }
+        String url = source.toUri().toString();
+        DriftScanner scanner = new DriftScanner(tempDir.resolve("mirror"), 2);
+        Map<String, ObjectId> heads = scanner.mirror(new ScanTarget(url, List.of()));
+        assertEquals(List.of("main"), List.copyOf(heads.keySet()));
+
+        // A head missing from the mirror is reported against its branch rather than failing the scan
+        ScanResult result = scanner.compare(url, "jb-eap-8.0-rhel-9", ObjectId.zeroId());
+        assertEquals("jb-eap-8.0-rhel-9", result.branch());
+        assertTrue(result.isStale());
+        assertTrue(result.reasons().getFirst().startsWith("error: "), result.reasons().toString());
+    }
+
+    @Test
+    void testScanCachesUnknownBuild(@TempDir Path tempDir) throws IOException, GitAPIException {
+        Path calls = tempDir.resolve("calls");
+        Path brew = tempDir.resolve("brew");
+        Files.writeString(brew, """
+                #!/bin/bash
+                echo "$3 $4" >> %s
+                echo null
+                """.formatted(calls));
+        Files.setPosixFilePermissions(brew, PosixFilePermissions.fromString("rwxr-xr-x"));
+
+        Path source = tempDir.resolve("source");
+        try (Git git = Git.init().setDirectory(source.toFile()).setInitialBranch("jb-eap-8.0-rhel-9").call()) {
+            Files.writeString(source.resolve(ETT.LAST_MEAD_BUILD), "org.foo-bar-1.0.0.redhat_00001-1");
+            Files.writeString(source.resolve(ETT.MEAD_PKG_NAME), "org.foo-bar");
+            Files.writeString(
+                    source.resolve(ETT.VERSION_RELEASE_SERIAL),
+                    "1.0.0 1.0.0.redhat-00001 .redhat_00001 .1 1 redhat-00001\n");
+            Files.writeString(source.resolve("pom.xml"), "<project/>");
+            git.add().addFilepattern(".").call();
+            git.commit().setMessage("ETT").setAuthor("Test User", "test@example.com").call();
+            git.branchCreate().setName("jb-eap-8.1-rhel-9").call();
+        }
+
+        String previous = System.setProperty(Brew.BREW_PROPERTY, brew.toString());
+        List<ScanResult> results;
+        try {
+            results = new DriftScanner(tempDir.resolve("mirror"), 1)
+                    .scan(List.of(new ScanTarget(source.toUri().toString(), List.of())));
+        } finally {
+            if (previous == null) {
+                System.clearProperty(Brew.BREW_PROPERTY);
+            } else {
+                System.setProperty(Brew.BREW_PROPERTY, previous);
+            }
+        }
+
+        assertEquals(2, results.size());
+        String reason = ETT.LAST_MEAD_BUILD + " org.foo-bar-1.0.0.redhat_00001-1 is not a PNC build";
+        for (ScanResult result : results) {
+            assertTrue(result.reasons().contains(reason), result.reasons().toString());
+        }
+        // Brew does not know the NVR, which is only asked for once for both branches
+        assertEquals(1, Files.readAllLines(calls).stream().filter(l -> l.startsWith("getBuild ")).count());
+    }
+}
@@ -0,0 +1,133 @@
+package org.jboss.pnc.rpm.importer.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.jboss.pnc.rpm.importer.model.brew.BrewBuild;
+import org.jboss.pnc.rpm.importer.model.brew.BrewTag;
+import org.junit.jupiter.api.Test;
+
+class BrewParserTest {
+
+    private static final String validBuild = """
+            {
+              "build_id": 2958832,
+              "completion_ts": 1710754252.0,
+              "extra": {
+                "external_build_system": "/pnc-rest/v2/builds/A66J6LVO2DYAA",
+                "external_build_id": "A66J6LVO2DYAA",
+                "maven": {
+                  "group_id": "org.wildfly.wildfly-http-client",
+                  "artifact_id": "wildfly-http-client-parent",
+                  "version": "2.0.7.Final-redhat-00001"
+                },
+                "build_system": "PNC",
+                "typeinfo": {
+                  "maven": {
+                    "group_id": "org.wildfly.wildfly-http-client",
+                    "artifact_id": "wildfly-http-client-parent",
+                    "version": "2.0.7.Final-redhat-00001",
+                    "extra_field": [ 1, 2 ]
+                  }
+                }
+              },
+              "nvr": "org.wildfly.wildfly-http-client-wildfly-http-client-parent-2.0.7.Final_redhat_00001-1",
+              "owner_id": 7083,
+              "cg_name": "Project Newcastle"
+            }
+            """;
+
+    private static final String legacyBuild = """
+            {
+              "build_id": 967196,
+              "extra": {
+                "external_build_id": "26216",
+                "maven": {
+                  "group_id": "org.eclipse.microprofile.health",
+                  "artifact_id": "microprofile-health-parent",
+                  "version": "2.0.1.redhat-00001"
+                }
+              },
+              "nvr": "org.eclipse.microprofile.health-microprofile-health-parent-2.0.1.redhat_00001-1"
+            }
+            """;
+
+    private static final String invalidBuild = """
+            {
+              "build_id": 585577,
+              "extra": null,
+              "nvr": "org.projectodd.vdx-vdx-parent-1.1.6.redhat_1-1"
+            }
+            """;
+
+    private static final String tag = """
+            {
+              "arches": "",
+              "extra": {
+                "rhpkg_scl_prefix": "eap7",
+                "rpm.macro.dist": "el9eap",
+                "mock.package_manager": "dnf"
+              },
+              "id": 12345,
+              "name": "jb-eap-8.0-rhel-9-build",
+              "perm": null
+            }
+            """;
+
+    @Test
+    void testValidBuild() throws IOException {
+        BrewBuild build = BrewParser.parseBuild(stream(validBuild));
+        assertEquals("A66J6LVO2DYAA", build.externalBuildId());
+        assertEquals(
+                "org.wildfly.wildfly-http-client:wildfly-http-client-parent:2.0.7.Final-redhat-00001",
+                build.maven().toString());
+    }
+
+    @Test
+    void testLegacyBuild() throws IOException {
+        BrewBuild build = BrewParser.parseBuild(stream(legacyBuild));
+        assertEquals("org.eclipse.microprofile.health", build.maven().groupId());
+        assertEquals("2.0.1.redhat-00001", build.maven().version());
+    }
+
+    @Test
+    void testInvalidBuild() throws IOException {
+        BrewBuild build = BrewParser.parseBuild(stream(invalidBuild));
+        assertEquals("org.projectodd.vdx-vdx-parent-1.1.6.redhat_1-1", build.nvr());
+        assertNull(build.maven());
+        assertNull(BrewParser.parseBuild(stream("null")));
+    }
+
+    @Test
+    void testBuildMessage() throws IOException {
+        BrewBuild build = BrewParser
+                .parseBuildMessage(stream("{\"attribute\": \"state\", \"info\": " + validBuild + ", \"new\": 1}"));
+        assertEquals(
+                "org.wildfly.wildfly-http-client-wildfly-http-client-parent-2.0.7.Final_redhat_00001-1",
+                build.nvr());
+        assertEquals("wildfly-http-client-parent", build.maven().artifactId());
+        assertEquals(
+                "org.eclipse.microprofile.health-microprofile-health-parent-2.0.1.redhat_00001-1",
+                BrewParser.parseBuildMessage(stream("{\"info\": " + legacyBuild + "}")).nvr());
+        // A build that failed or was deleted
+        assertNull(BrewParser.parseBuildMessage(stream("{\"info\": " + validBuild + ", \"new\": 3}")));
+        assertNull(BrewParser.parseBuildMessage(stream("{\"old\": 0, \"new\": 1}")));
+    }
+
+    @Test
+    void testTag() throws IOException {
+        BrewTag brewTag = BrewParser.parseTag(stream(tag));
+        assertEquals("jb-eap-8.0-rhel-9-build", brewTag.name());
+        assertEquals(Map.of("scl", "eap7", "dist", ".el9eap"), brewTag.macros());
+    }
+
+    private static InputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
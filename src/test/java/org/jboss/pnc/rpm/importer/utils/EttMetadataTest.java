@@ -0,0 +1,105 @@
+package org.jboss.pnc.rpm.importer.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Repository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class EttMetadataTest {
+
+    private static final String VERSION_RELEASE_SERIAL = "2.0.1 2.0.1.Final-redhat-00001 .Final_redhat_00001 .1 2 "
+            + "redhat-00001\n";
+
+    @Test
+    void testParse() {
+        EttMetadata ett = EttMetadata.parse(
+                "org.foo-bar-2.0.1.Final_redhat_00001-1\n",
+                "org.foo-bar jb-eap-8.0\n",
+                VERSION_RELEASE_SERIAL);
+        assertEquals(
+                new EttMetadata(
+                        "org.foo-bar-2.0.1.Final_redhat_00001-1",
+                        "org.foo-bar",
+                        "2.0.1.Final-redhat-00001",
+                        "2.0.1.Final"),
+                ett);
+        assertThrows(RuntimeException.class, () -> EttMetadata.parse("nvr", null, VERSION_RELEASE_SERIAL));
+        assertThrows(RuntimeException.class, () -> EttMetadata.parse("nvr", "pkg", "2.0.1"));
+    }
+
+    @Test
+    void testLoadBranches(@TempDir Path tempDir) throws Exception {
+        Path source = tempDir.resolve("source");
+        try (Git git = Git.init().setDirectory(source.toFile()).setInitialBranch("jb-eap-8.0-rhel-9").call()) {
+            Files.writeString(source.resolve(ETT.LAST_MEAD_BUILD), "org.foo-bar-2.0.1.Final_redhat_00001-1\n");
+            Files.writeString(source.resolve(ETT.MEAD_PKG_NAME), "org.foo-bar\n");
+            Files.writeString(source.resolve(ETT.VERSION_RELEASE_SERIAL), VERSION_RELEASE_SERIAL);
+            git.add().addFilepattern(".").call();
+            git.commit().setMessage("ETT").setAuthor("Test User", "test@example.com").call();
+
+            git.checkout().setCreateBranch(true).setName("jb-eap-8.1-rhel-9").call();
+            Files.writeString(
+                    source.resolve(ETT.VERSION_RELEASE_SERIAL),
+                    VERSION_RELEASE_SERIAL.replace("00001", "00002"));
+            git.commit().setAll(true).setMessage("Bump").setAuthor("Test User", "test@example.com").call();
+
+            git.checkout().setCreateBranch(true).setName("main").call();
+            git.rm().addFilepattern(ETT.LAST_MEAD_BUILD).call();
+            git.commit().setMessage("No ETT").setAuthor("Test User", "test@example.com").call();
+        }
+        Path mirror = tempDir.resolve("mirror.git");
+        Git.cloneRepository().setURI(source.toUri().toString()).setDirectory(mirror.toFile()).setBare(true).call()
+                .close();
+
+        try (Git git = Git.open(mirror.toFile())) {
+            Repository repository = git.getRepository();
+            Map<String, EttMetadata> loaded = EttMetadata
+                    .load(repository, List.of("jb-eap-8.0-rhel-9", "jb-eap-8.1-rhel-9", "main"));
+            assertEquals(List.of("jb-eap-8.0-rhel-9", "jb-eap-8.1-rhel-9"), List.copyOf(loaded.keySet()));
+            assertEquals("2.0.1.Final-redhat-00001", loaded.get("jb-eap-8.0-rhel-9").namedVersion());
+            assertEquals("2.0.1.Final-redhat-00002", loaded.get("jb-eap-8.1-rhel-9").namedVersion());
+            assertEquals("2.0.1.Final", loaded.get("jb-eap-8.1-rhel-9").originalVersion());
+            assertEquals("org.foo-bar", loaded.get("jb-eap-8.1-rhel-9").meadPkgName());
+
+            assertEquals(Optional.empty(), EttMetadata.load(repository, "main"));
+            assertTrue(EttMetadata.load(repository, "jb-eap-8.0-rhel-9").isPresent());
+            assertThrows(IOException.class, () -> EttMetadata.load(repository, "missing"));
+        }
+    }
+
+    @Test
+    void testLoadSkipsMalformedBranch(@TempDir Path tempDir) throws Exception {
+        Path source = tempDir.resolve("source");
+        try (Git git = Git.init().setDirectory(source.toFile()).setInitialBranch("jb-eap-8.0-rhel-9").call()) {
+            Files.writeString(source.resolve(ETT.LAST_MEAD_BUILD), "org.foo-bar-2.0.1.Final_redhat_00001-1\n");
+            Files.writeString(source.resolve(ETT.MEAD_PKG_NAME), "org.foo-bar\n");
+            Files.writeString(source.resolve(ETT.VERSION_RELEASE_SERIAL), VERSION_RELEASE_SERIAL);
+            git.add().addFilepattern(".").call();
+            git.commit().setMessage("ETT").setAuthor("Test User", "test@example.com").call();
+
+            git.checkout().setCreateBranch(true).setName("jb-eap-8.1-rhel-9").call();
+            Files.writeString(source.resolve(ETT.VERSION_RELEASE_SERIAL), "2.0.1\n");
+            git.commit().setAll(true).setMessage("Break").setAuthor("Test User", "test@example.com").call();
+        }
+
+        try (Git git = Git.open(source.toFile())) {
+            Repository repository = git.getRepository();
+            Map<String, EttMetadata> loaded = EttMetadata
+                    .load(repository, List.of("jb-eap-8.1-rhel-9", "jb-eap-8.0-rhel-9"));
+            assertEquals(List.of("jb-eap-8.0-rhel-9"), List.copyOf(loaded.keySet()));
+            assertEquals("2.0.1.Final-redhat-00001", loaded.get("jb-eap-8.0-rhel-9").namedVersion());
+            assertEquals(Optional.empty(), EttMetadata.load(repository, "jb-eap-8.1-rhel-9"));
+        }
+    }
+}
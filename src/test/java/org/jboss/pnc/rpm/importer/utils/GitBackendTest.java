@@ -0,0 +1,132 @@
+package org.jboss.pnc.rpm.importer.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.ResetCommand;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class GitBackendTest {
+
+    private static final PersonIdent IDENT = new PersonIdent(
+            "Test User",
+            "test@example.com",
+            Instant.ofEpochSecond(1_700_000_000),
+            ZoneOffset.UTC);
+
+    @TempDir
+    Path tempDir;
+
+    @AfterEach
+    void reset() {
+        GitBackends.configure(GitBackends.Mode.AUTO, GitBackends.DEFAULT_NATIVE_THRESHOLD);
+    }
+
+    @Test
+    void testBackendsProduceIdenticalCommits() throws Exception {
+        assumeTrue(GitBackends.nativeAvailable());
+        String remote = createRemote();
+
+        Path jgit = Files.createDirectory(tempDir.resolve("jgit"));
+        Path git = Files.createDirectory(tempDir.resolve("git"));
+        GitBackends.JGIT.cloneRepository(remote, "main", jgit);
+        GitBackends.NATIVE.cloneRepository(remote, "main", git);
+        assertEquals(head(jgit), head(git));
+
+        for (Path clone : new Path[] { jgit, git }) {
+            Files.writeString(clone.resolve("pom.xml"), "<project/>\n");
+            assertTrue(Utils.commitRepository(clone, IDENT));
+            assertFalse(Utils.commitRepository(clone, IDENT));
+        }
+        ObjectId commit = head(jgit);
+        assertEquals(commit, head(git));
+
+        GitBackends.JGIT.pushRepository(jgit);
+        // The remote already has the identical commit
+        GitBackends.NATIVE.pushRepository(git);
+        assertEquals(commit, head(tempDir.resolve("remote.git")));
+
+        // A push that is not a fast forward is rejected
+        try (Git repository = Git.open(git.toFile())) {
+            repository.reset().setMode(ResetCommand.ResetType.HARD).setRef("HEAD~1").call();
+        }
+        Files.writeString(git.resolve("pom.xml"), "<project></project>\n");
+        assertTrue(Utils.commitRepository(git, IDENT));
+        assertNotEquals(commit, head(git));
+        assertThrows(RuntimeException.class, () -> GitBackends.NATIVE.pushRepository(git));
+        assertThrows(RuntimeException.class, () -> GitBackends.JGIT.pushRepository(git));
+    }
+
+    @Test
+    void testRemoteBranchExists() throws Exception {
+        String remote = createRemote();
+        GitBackend[] backends = GitBackends.nativeAvailable()
+                ? new GitBackend[] { GitBackends.JGIT, GitBackends.NATIVE }
+                : new GitBackend[] { GitBackends.JGIT };
+        for (GitBackend backend : backends) {
+            assertTrue(backend.remoteBranchExists(remote, "main"), backend.name());
+            assertFalse(backend.remoteBranchExists(remote, "main-INVALID"), backend.name());
+            assertFalse(backend.remoteBranchExists(remote + "-INVALID", "main"), backend.name());
+        }
+    }
+
+    @Test
+    void testSelect() {
+        GitBackends.configure(GitBackends.Mode.JGIT, 1000);
+        assertSame(GitBackends.JGIT, GitBackends.select(-1));
+        assertSame(GitBackends.JGIT, GitBackends.select(2000));
+
+        assumeTrue(GitBackends.nativeAvailable());
+        GitBackends.configure(GitBackends.Mode.AUTO, 1000);
+        // Repositories of unknown size are assumed to be small
+        assertSame(GitBackends.JGIT, GitBackends.select(-1));
+        assertSame(GitBackends.JGIT, GitBackends.select(999));
+        assertSame(GitBackends.NATIVE, GitBackends.select(1000));
+
+        GitBackends.recordSize("https://example.com/small.git", 10);
+        assertSame(GitBackends.JGIT, GitBackends.forClone("https://example.com/small.git"));
+        assertSame(GitBackends.JGIT, GitBackends.forClone("https://example.com/unknown.git"));
+        GitBackends.recordSize("https://example.com/large.git", 2000);
+        assertSame(GitBackends.NATIVE, GitBackends.forClone("https://example.com/large.git"));
+
+        GitBackends.configure(GitBackends.Mode.NATIVE, 1000);
+        assertSame(GitBackends.NATIVE, GitBackends.select(10));
+    }
+
+    private String createRemote() throws Exception {
+        Path source = tempDir.resolve("source");
+        try (Git git = Git.init().setDirectory(source.toFile()).setInitialBranch("main").call()) {
+            Files.writeString(source.resolve(ETT.LAST_MEAD_BUILD), "org.foo-bar-2.0.1.Final_redhat_00001-1\n");
+            Files.writeString(source.resolve("foo.spec"), "Name: foo\n");
+            git.add().addFilepattern(".").call();
+            git.commit().setMessage("ETT").setAuthor(IDENT).setCommitter(IDENT).call();
+        }
+        Path remote = tempDir.resolve("remote.git");
+        if (!Files.exists(remote)) {
+            Git.cloneRepository().setURI(source.toUri().toString()).setDirectory(remote.toFile()).setBare(true).call()
+                    .close();
+        }
+        return remote.toUri().toString();
+    }
+
+    private static ObjectId head(Path repository) throws Exception {
+        try (Git git = Git.open(repository.toFile())) {
+            return git.getRepository().resolve("HEAD");
+        }
+    }
+}
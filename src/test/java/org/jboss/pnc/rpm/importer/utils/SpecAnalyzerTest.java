@@ -0,0 +1,115 @@
+package org.jboss.pnc.rpm.importer.utils;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.jboss.pnc.rpm.importer.model.ArtifactKey;
+import org.junit.jupiter.api.Test;
+
+class SpecAnalyzerTest {
+
+    private static final String VERSION = "2.14.0.redhat-00002";
+
+    private static final String SPEC = """
+            Name:           eap8-apache-sshd
+            Version:        2.14.0
+            Source0:        https://github.com/apache/mina-sshd/archive/sshd-%{namedversion}.tar.gz
+            Source1:        sshd-osgi-%{namedversion}.jar
+
+            %prep
+            %setup -q -n sshd-%{namedversion} -T -b 100
+
+            %install
+            install -d -m 755 %{buildroot}%{_javadir}/
+            install -m 644 %{SOURCE1} %{buildroot}%{_javadir}/sshd-osgi.jar
+            cp -p sshd-common-${VERSION}.jar %{buildroot}%{_javadir}/
+            cp -p sshd-core-*-tests.jar %{buildroot}%{_javadir}/
+            """;
+
+    @Test
+    void testConsumedArtifacts() {
+        SpecAnalyzer analyzer = SpecAnalyzer.parse(SPEC.lines().toList(), VERSION);
+
+        assertTrue(analyzer.hasReferences());
+        assertTrue(analyzer.unsupported().isEmpty());
+        assertTrue(analyzer.isConsumed(new ArtifactKey("org.apache.sshd", "sshd-osgi", null, "jar")));
+        assertTrue(analyzer.isConsumed(new ArtifactKey("org.apache.sshd", "sshd-common", null, "jar")));
+        assertTrue(analyzer.isConsumed(new ArtifactKey("org.apache.sshd", "sshd-core", "tests", "jar")));
+        assertFalse(analyzer.isConsumed(new ArtifactKey("org.apache.sshd", "sshd-core", null, "jar")));
+        assertFalse(analyzer.isConsumed(new ArtifactKey("org.apache.sshd", "sshd-osgi", "sources", "jar")));
+        assertFalse(analyzer.isConsumed(new ArtifactKey("org.apache.sshd", "sshd", null, "pom")));
+    }
+
+    @Test
+    void testNoReferences() {
+        SpecAnalyzer analyzer = SpecAnalyzer.parse(List.of("Name: foo", "install -d %{buildroot}%{_javadir}/"), VERSION);
+        assertFalse(analyzer.hasReferences());
+    }
+
+    @Test
+    void testUnrelatedReferences() {
+        SpecAnalyzer analyzer = SpecAnalyzer.parse(
+                List.of(
+                        "install -m 644 LICENSE %{buildroot}%{_licensedir}/",
+                        "cp -p README.md %{buildroot}%{_docdir}/%{name}"),
+                VERSION);
+
+        assertTrue(analyzer.unsupported().isEmpty());
+        // Only the artifacts decide whether anything can be pruned
+        assertTrue(analyzer.hasReferences());
+        assertFalse(analyzer.isConsumed(new ArtifactKey("org.apache.sshd", "644", null, "jar")));
+        assertFalse(
+                analyzer.consumesAny(
+                        List.of(
+                                new ArtifactKey("org.apache.sshd", "sshd-core", null, "jar"),
+                                new ArtifactKey("org.apache.sshd", "sshd-common", null, "jar"))));
+    }
+
+    @Test
+    void testDirectoryCopies() {
+        for (String command : List.of(
+                "cp -r lib %{buildroot}/opt",
+                "cp -pR lib %{buildroot}/opt",
+                "cp -a lib/ %{buildroot}/opt/",
+                "cp -p lib/* %{buildroot}/opt/",
+                "install -m 644 target/ %{buildroot}/opt",
+                "mv lib %{buildroot}/opt",
+                "cp -p sshd-osgi-%{namedversion}.jar %{buildroot}%{_javadir} && cp -r lib %{buildroot}/opt")) {
+            SpecAnalyzer analyzer = SpecAnalyzer.parse(List.of(command), VERSION);
+            assertTrue(analyzer.unsupported().isPresent(), command);
+        }
+    }
+
+    @Test
+    void testShellConstructs() {
+        for (String spec : List.of(
+                "for j in *.jar; do cp -p $j %{buildroot}%{_javadir}/; done",
+                "for j in lib/*.jar\ndo\n  cp -p $j %{buildroot}%{_javadir}/\ndone",
+                "find . -name '*.jar' -exec cp {} %{buildroot}%{_javadir} \\;",
+                "cp -p $(ls *.jar) %{buildroot}%{_javadir}/")) {
+            SpecAnalyzer analyzer = SpecAnalyzer.parse(spec.lines().toList(), VERSION);
+            assertTrue(analyzer.unsupported().isPresent(), spec);
+        }
+    }
+
+    @Test
+    void testDestinations() {
+        SpecAnalyzer analyzer = SpecAnalyzer.parse(
+                List.of(
+                        "install -d -m 755 %{buildroot}%{_javadir}/%{name}",
+                        "cp -p sshd-osgi-%{namedversion}.jar \\",
+                        "    sshd-common-%{namedversion}.jar %{buildroot}%{_javadir}/%{name}",
+                        "install -p -m 644 -t %{buildroot}%{_javadir} sshd-core-%{namedversion}.jar",
+                        "ln -s %{_javadir}/%{name} %{buildroot}/opt/%{name}"),
+                VERSION);
+
+        // A destination (or a directory created) made up entirely of macros is not a directory copy
+        assertTrue(analyzer.unsupported().isEmpty());
+        assertTrue(analyzer.isConsumed(new ArtifactKey("org.apache.sshd", "sshd-osgi", null, "jar")));
+        assertTrue(analyzer.isConsumed(new ArtifactKey("org.apache.sshd", "sshd-common", null, "jar")));
+        assertTrue(analyzer.isConsumed(new ArtifactKey("org.apache.sshd", "sshd-core", null, "jar")));
+        assertFalse(analyzer.isConsumed(new ArtifactKey("org.apache.sshd", "sshd-sftp", null, "jar")));
+    }
+}
@@ -0,0 +1,165 @@
+package org.jboss.pnc.rpm.importer.workspace;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.RepositoryCache;
+import org.eclipse.jgit.util.FS;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class WorkspaceManagerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testRelease() throws Exception {
+        WorkspaceManager workspaces = new WorkspaceManager(tempDir.resolve("root"), 0);
+        Path directory = workspaces.create();
+        Files.createDirectories(directory.resolve(".git"));
+        Files.writeString(directory.resolve(".git").resolve("pack"), "data");
+        directory.resolve(".git").resolve("pack").toFile().setReadOnly();
+
+        workspaces.release(directory);
+        assertFalse(Files.exists(directory));
+
+        Path retained = workspaces.create();
+        workspaces.retain(retained, "test");
+        assertTrue(Files.exists(retained));
+
+        // Never deletes directories it does not own
+        workspaces.release(tempDir);
+        assertTrue(Files.exists(tempDir));
+        // Nor a retained directory
+        workspaces.release(retained);
+        assertTrue(Files.exists(retained));
+    }
+
+    @Test
+    void testReleaseUserRepository() throws Exception {
+        // e.g. --repository pointing at a clone kept by an earlier run
+        Path root = tempDir.resolve("root");
+        Path repository = Files.createDirectories(root.resolve("clone-1234"));
+        Files.writeString(repository.resolve("pom.xml"), "<project/>");
+        WorkspaceManager workspaces = new WorkspaceManager(root, 0);
+
+        assertFalse(workspaces.isManaged(repository));
+        workspaces.release(repository);
+        assertTrue(Files.exists(repository.resolve("pom.xml")));
+    }
+
+    @Test
+    void testReleaseClosesRepository() throws Exception {
+        WorkspaceManager workspaces = new WorkspaceManager(tempDir, 0);
+        Path directory = workspaces.create();
+        Git.init().setDirectory(directory.toFile()).call().close();
+        RepositoryCache.FileKey key = RepositoryCache.FileKey.lenient(directory.toFile(), FS.DETECTED);
+        RepositoryCache.open(key).close();
+        assertTrue(RepositoryCache.getRegisteredKeys().contains(key));
+
+        workspaces.release(directory);
+        assertFalse(RepositoryCache.getRegisteredKeys().contains(key));
+        assertFalse(Files.exists(directory));
+    }
+
+    @Test
+    void testQuota() throws Exception {
+        WorkspaceManager workspaces = new WorkspaceManager(tempDir, 1000);
+        Path first = workspaces.create();
+        Files.write(first.resolve("file"), new byte[800]);
+        workspaces.measure(first);
+
+        // The estimate (800 bytes) does not fit alongside the first clone
+        CompletableFuture<Path> second = CompletableFuture.supplyAsync(() -> {
+            try {
+                return workspaces.create();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        try {
+            second.get(500, TimeUnit.MILLISECONDS);
+            throw new AssertionError("Quota was not enforced");
+        } catch (TimeoutException e) {
+            // Expected
+        }
+        workspaces.release(first);
+        assertTrue(Files.isDirectory(second.get(5, TimeUnit.SECONDS)));
+    }
+
+    @Test
+    void testRetainedQuota() throws Exception {
+        WorkspaceManager workspaces = new WorkspaceManager(tempDir, 1000);
+        Path first = workspaces.create();
+        Files.write(first.resolve("file"), new byte[800]);
+        workspaces.measure(first);
+        // e.g. a commit not pushed; it stays on disk so still uses the quota
+        workspaces.retain(first, "test");
+        Path second = workspaces.create();
+
+        // Neither the estimate (800 bytes) nor the retained clone leave room for a third
+        CompletableFuture<Path> third = CompletableFuture.supplyAsync(() -> {
+            try {
+                return workspaces.create();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        try {
+            third.get(500, TimeUnit.MILLISECONDS);
+            throw new AssertionError("Retained directory was not counted against the quota");
+        } catch (TimeoutException e) {
+            // Expected
+        }
+        // Once no other clone is in progress one is allowed, so retained directories cannot stall the run
+        workspaces.release(second);
+        assertTrue(Files.isDirectory(third.get(5, TimeUnit.SECONDS)));
+        assertTrue(Files.exists(first));
+    }
+
+    @Test
+    void testAdopt() throws Exception {
+        Path root = tempDir.resolve("root");
+        // A clone recorded in the journal of an earlier run
+        Path clone = Files.createDirectories(root.resolve("clone-1234"));
+        Files.writeString(clone.resolve("pom.xml"), "<project/>");
+        Path other = Files.createDirectories(root.resolve("repository"));
+        Path outside = Files.createDirectories(tempDir.resolve("clone-5678"));
+        WorkspaceManager workspaces = new WorkspaceManager(root, 0);
+
+        assertTrue(workspaces.adopt(clone));
+        assertTrue(workspaces.isManaged(clone));
+        assertFalse(workspaces.adopt(clone));
+        assertFalse(workspaces.adopt(other));
+        assertFalse(workspaces.adopt(outside));
+        assertFalse(workspaces.adopt(root.resolve("clone-missing")));
+
+        workspaces.release(clone);
+        assertFalse(Files.exists(clone));
+        workspaces.release(other);
+        workspaces.release(outside);
+        assertTrue(Files.exists(other));
+        assertTrue(Files.exists(outside));
+    }
+
+    @Test
+    void testParseSize() {
+        assertEquals(0, WorkspaceManager.parseSize("0"));
+        assertEquals(512 * 1024 * 1024L, WorkspaceManager.parseSize("512M"));
+        assertEquals(2L * 1024 * 1024 * 1024, WorkspaceManager.parseSize("2g"));
+        assertThrows(IllegalArgumentException.class, () -> WorkspaceManager.parseSize(""));
+        assertThrows(IllegalArgumentException.class, () -> WorkspaceManager.parseSize("M"));
+        assertThrows(IllegalArgumentException.class, () -> WorkspaceManager.parseSize("-1G"));
+        assertThrows(IllegalArgumentException.class, () -> WorkspaceManager.parseSize("10T"));
+    }
+}